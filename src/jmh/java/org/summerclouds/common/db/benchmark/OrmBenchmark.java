@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.summerclouds.common.db.AdbTest;
+import org.summerclouds.common.db.DbCollection;
+import org.summerclouds.common.db.DbManager;
+import org.summerclouds.common.db.DbManagerJdbc;
+import org.summerclouds.common.db.model.BookStoreSchema;
+import org.summerclouds.common.db.model.Person;
+import org.summerclouds.common.db.query.Db;
+import org.summerclouds.common.db.sql.DbPool;
+
+/**
+ * Object mapping hot paths against an in-process HSQLDB with the bookstore model of the tests.
+ *
+ * @author mikehummel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrmBenchmark {
+
+    @Param({"1000"})
+    int rows;
+
+    private DbPool pool;
+    private DbManager manager;
+    private UUID[] ids;
+    private Person saved;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        pool = AdbTest.createPool("benchmark").getPool("test");
+        manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+        ids = new UUID[rows];
+        for (int i = 0; i < rows; i++) {
+            Person p = new Person();
+            p.setName("Person " + i);
+            manager.createObject(p);
+            ids[i] = p.getId();
+        }
+        saved = manager.getObject(Person.class, ids[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public Object getObject() throws Exception {
+        next = (next + 1) % rows;
+        return manager.getObject(Person.class, ids[next]);
+    }
+
+    @Benchmark
+    public Object createObject() throws Exception {
+        Person p = new Person();
+        p.setName("Created");
+        manager.createObject(p);
+        return p;
+    }
+
+    @Benchmark
+    public Object saveObject() throws Exception {
+        saved.setName("Saved " + next++);
+        manager.saveObject(saved);
+        return saved;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void iterateCollection(Blackhole bh) throws Exception {
+        DbCollection<Person> res =
+                manager.getByQualification(Db.query(Person.class).like("name", "Person %"));
+        for (Person p : res) bh.consume(p);
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.summerclouds.common.core.node.INode;
+import org.summerclouds.common.db.AdbTest;
+import org.summerclouds.common.db.sql.DbConnection;
+import org.summerclouds.common.db.sql.DbPool;
+import org.summerclouds.common.db.sql.DbPoolBundle;
+
+/**
+ * Connection checkout and return under contention.
+ *
+ * @author mikehummel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class PoolBenchmark {
+
+    @Param({"default", "bounded"})
+    String type;
+
+    private DbPool pool;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        DbPoolBundle bundle = AdbTest.createPool("benchmark");
+        INode config = bundle.getConfig("test");
+        config.setProperty("pool", type);
+        config.setProperty("max_size", "16");
+        pool = bundle.getPool("test");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public void getConnection() throws Exception {
+        DbConnection con = pool.getConnection();
+        con.close();
+    }
+}
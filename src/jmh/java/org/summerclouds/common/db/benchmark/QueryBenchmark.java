@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.benchmark;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.summerclouds.common.core.parser.CompiledString;
+import org.summerclouds.common.core.parser.Parser;
+import org.summerclouds.common.db.AdbTest;
+import org.summerclouds.common.db.DbManager;
+import org.summerclouds.common.db.DbManagerJdbc;
+import org.summerclouds.common.db.model.BookStoreSchema;
+import org.summerclouds.common.db.model.Person;
+import org.summerclouds.common.db.query.Db;
+import org.summerclouds.common.db.sql.DbPool;
+
+/**
+ * Query compiling and rendering without database roundtrip.
+ *
+ * @author mikehummel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    private static final String SQL =
+            "SELECT * FROM $db.person$ WHERE $db.person.name$ like $name$"
+                    + " AND $db.person.id$ <> $id$";
+
+    private DbPool pool;
+    private DbManager manager;
+    private Parser parser;
+    private CompiledString compiled;
+    private HashMap<String, Object> attributes;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        pool = AdbTest.createPool("benchmark").getPool("test");
+        manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+        parser = pool.getDialect().getQueryParser(null);
+        compiled = parser.compileString(SQL);
+        attributes = new HashMap<>(manager.getNameMapping());
+        attributes.put("name", "Klaus%");
+        attributes.put("id", "x");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public Object compileString() throws Exception {
+        return parser.compileString(SQL);
+    }
+
+    @Benchmark
+    public Object compileAndExecute() throws Exception {
+        return parser.compileString(SQL).execute(attributes);
+    }
+
+    @Benchmark
+    public Object execute() throws Exception {
+        return compiled.execute(attributes);
+    }
+
+    @Benchmark
+    public Object createQuery() {
+        return manager.toQualification(
+                Db.query(Person.class).like("name", "Klaus%").ne("id", "x").asc("name").limit(10));
+    }
+}
@@ -44,6 +44,19 @@ public interface DbCollection<O> extends Iterable<O>, Iterator<O>, ICloseable {
 
     boolean isRecycle();
 
+    /**
+     * Load the relations of the next 'size' objects with one query per relation instead of one
+     * query per object. Default is off.
+     *
+     * <p>Not every implementation supports batch loading.
+     *
+     * @param size page size
+     * @return x
+     */
+    default DbCollection<O> setBatchSize(int size) {
+        return this;
+    }
+
     O current() throws MException;
 
     @SuppressWarnings({"rawtypes", "unchecked"})
@@ -97,7 +110,7 @@ public interface DbCollection<O> extends Iterable<O>, Iterator<O>, ICloseable {
         }
     }
 
-    default boolean skip(int cnt) { // TODO optimize, do not fully load objects
+    default boolean skip(int cnt) {
         for (int i = 0; i < cnt && hasNext(); i++) next();
         return hasNext();
     }
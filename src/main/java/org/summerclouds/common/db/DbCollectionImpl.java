@@ -17,6 +17,7 @@ package org.summerclouds.common.db;
 
 import java.nio.file.AccessDeniedException;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.NoSuchElementException;
 
 import org.summerclouds.common.core.error.MException;
@@ -24,6 +25,7 @@ import org.summerclouds.common.core.error.RC;
 import org.summerclouds.common.core.log.MLog;
 import org.summerclouds.common.core.util.Table;
 import org.summerclouds.common.db.model.Field;
+import org.summerclouds.common.db.relation.RelationBatchLoader;
 import org.summerclouds.common.db.sql.DbConnection;
 import org.summerclouds.common.db.sql.DbPool;
 import org.summerclouds.common.db.sql.DbResult;
@@ -47,6 +49,10 @@ public class DbCollectionImpl<O> extends MLog implements DbCollection<O> {
     private boolean ownConnection;
     private O current;
     private DbPool pool;
+    private boolean resDone = false;
+    private int batchSize = 0;
+    private LinkedList<O> buffer;
+    private org.summerclouds.common.db.model.Table table;
 
     public DbCollectionImpl(
             DbManager manager,
@@ -75,23 +81,43 @@ public class DbCollectionImpl<O> extends MLog implements DbCollection<O> {
         this.object = object;
         this.ownConnection = ownConnection;
         this.pool = manager.getPool();
+        if (object != null) {
+            Class<?> clazz = object instanceof Class<?> ? (Class<?>) object : object.getClass();
+            org.summerclouds.common.db.model.Table t = manager.getTable(registryName);
+            if (t != null && t.getClazz() == clazz) table = t;
+        }
 
         nextObject();
     }
 
-    @SuppressWarnings("unchecked")
     private void nextObject() {
         next = null;
         if (!hasNext) return;
+        if (buffer != null) {
+            if (buffer.isEmpty()) fillBuffer();
+            next = buffer.poll();
+        } else {
+            next = readObject();
+        }
+        hasNext = next != null;
+        if (!hasNext) close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private O readObject() {
         try {
             while (true) {
                 try {
-
-                    hasNext = res.next();
-                    if (hasNext) {
-                        O out = object;
-                        if (!recycle) {
-                            try {
+                    if (res == null || resDone) return null;
+                    if (!res.next()) {
+                        resDone = true;
+                        return null;
+                    }
+                    O out = object;
+                    if (!recycle) {
+                        try {
+                            if (table != null) out = (O) table.newObject(res, true);
+                            else
                                 out =
                                         (O)
                                                 manager.getSchema()
@@ -103,17 +129,13 @@ public class DbCollectionImpl<O> extends MLog implements DbCollection<O> {
                                                                 res,
                                                                 manager,
                                                                 true);
-                            } catch (Exception t) {
-                                close();
-                                throw new MException(RC.STATUS.ERROR, con, t);
-                            }
+                        } catch (Exception t) {
+                            close();
+                            throw new MException(RC.STATUS.ERROR, con, t);
                         }
-                        manager.fillObject(registryName, out, con, res);
-                        next = out;
-                    } else {
-                        next = null;
                     }
-                    break;
+                    manager.fillObject(registryName, out, con, res);
+                    return out;
 
                 } catch (AccessDeniedException ade) {
                     // next one
@@ -124,13 +146,78 @@ public class DbCollectionImpl<O> extends MLog implements DbCollection<O> {
             }
         } catch (Exception e) {
             log().w(e);
-            hasNext = false;
+            return null;
         }
-        if (!hasNext) close();
+    }
+
+    private void fillBuffer() {
+        int max = recycle ? 1 : batchSize;
+        while (buffer.size() < max) {
+            O out = readObject();
+            if (out == null) break;
+            buffer.add(out);
+        }
+        // free the connection as early as possible
+        if (resDone) closeResult();
+        if (recycle || buffer.isEmpty()) return;
+        try {
+            RelationBatchLoader.load(manager.getTable(registryName), buffer);
+        } catch (Exception e) {
+            // relations will be loaded lazy
+            log().d("batch loading of relations failed", registryName, e);
+        }
+    }
+
+    /**
+     * Read the objects page by page and load the relations (RelSingle, RelMultible) of a page with
+     * one query per relation. Not possible in recycle mode.
+     *
+     * @param size page size, 0 or 1 disables batch loading
+     * @return x
+     */
+    @Override
+    public DbCollectionImpl<O> setBatchSize(int size) {
+        if (size <= 1 || buffer != null) return this;
+        batchSize = size;
+        buffer = new LinkedList<>();
+        if (next != null) {
+            // already read, load the relations with the first page
+            buffer.add(next);
+            fillBuffer();
+            next = buffer.poll();
+        }
+        return this;
+    }
+
+    /** Skip rows without creating the objects. */
+    @Override
+    public boolean skip(int cnt) {
+        if (buffer != null || cnt <= 0) return DbCollection.super.skip(cnt);
+        if (!hasNext) return false;
+        // the next object is already loaded and is the first skipped row
+        try {
+            for (int i = 1; i < cnt; i++) {
+                if (res == null || resDone) break;
+                if (!res.next()) resDone = true;
+            }
+        } catch (Exception e) {
+            log().w(e);
+            resDone = true;
+        }
+        nextObject();
+        return hasNext;
     }
 
     @Override
     public void close() {
+        next = null;
+        hasNext = false;
+        object = null;
+        if (buffer != null) buffer.clear();
+        closeResult();
+    }
+
+    private void closeResult() {
         if (res != null) {
             try {
                 res.close();
@@ -138,9 +225,6 @@ public class DbCollectionImpl<O> extends MLog implements DbCollection<O> {
                 log().w(e);
             }
             res = null;
-            next = null;
-            hasNext = false;
-            object = null;
         }
         if (con != null) {
             if (ownConnection) manager.getSchema().closeConnection(pool, con);
@@ -27,12 +27,13 @@ import org.summerclouds.common.db.sql.DbConnection;
  * @author mikehummel
  * @version $Id: $Id
  */
-public class DbComfortableObject extends MLog implements DbObject {
+public class DbComfortableObject extends MLog implements DbObject, DbSnapshotHolder {
 
     private DbObjectHandler manager;
     private boolean persistent = false;
     private String registryName;
     private DbConnection con;
+    private transient Object dbSnapshot;
 
     /**
      * isAdbManaged.
@@ -64,7 +65,8 @@ public class DbComfortableObject extends MLog implements DbObject {
     }
 
     /**
-     * Save the object if the object differs from database.
+     * Save the object if the object differs from database. The values are compared with the
+     * snapshot taken while loading, only the changed columns are updated.
      *
      * @return true if the object was saved.
      * @throws de.mhus.lib.errors.MException if any.
@@ -203,6 +205,20 @@ public class DbComfortableObject extends MLog implements DbObject {
         return manager;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    @GenerateHidden
+    public Object getDbSnapshot() {
+        return dbSnapshot;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @GenerateHidden
+    public void setDbSnapshot(Object snapshot) {
+        this.dbSnapshot = snapshot;
+    }
+
     /**
      * isAdbChanged.
      *
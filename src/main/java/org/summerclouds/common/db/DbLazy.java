@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+
+import org.summerclouds.common.core.activator.Activator;
+import org.summerclouds.common.core.error.MException;
+import org.summerclouds.common.core.error.RC;
+import org.summerclouds.common.core.util.MObjectInputStream;
+
+/**
+ * Holder for a BLOB attribute that is deserialized on first access. Declare the attribute as
+ * <code>DbLazy&lt;T&gt;</code> instead of <code>T</code>. The column content is the same as for a
+ * plain BLOB attribute, the raw bytes are kept with the object until {@link #get()} is called.
+ * Objects that never touch the value are written back without deserialization.
+ *
+ * @author mikehummel
+ * @param <T> Type of the value
+ */
+public class DbLazy<T> {
+
+    private T value;
+    private byte[] bytes;
+    private Activator activator;
+
+    public DbLazy() {}
+
+    public DbLazy(T value) {
+        this.value = value;
+    }
+
+    /**
+     * Return the value, deserialize the retained bytes if not already done.
+     *
+     * @return The value or null
+     * @throws MException If the bytes can't be deserialized
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized T get() throws MException {
+        if (bytes != null) {
+            try (MObjectInputStream ois =
+                    new MObjectInputStream(new ByteArrayInputStream(bytes))) {
+                if (activator != null) ois.setActivator(activator);
+                value = (T) ois.readObject();
+            } catch (Exception e) {
+                throw new MException(RC.ERROR, "can't deserialize lazy value", e);
+            }
+            bytes = null;
+            activator = null;
+        }
+        return value;
+    }
+
+    public synchronized void set(T value) {
+        this.value = value;
+        bytes = null;
+        activator = null;
+    }
+
+    /**
+     * Return true if the value is deserialized or was set locally.
+     *
+     * @return true if loaded
+     */
+    public synchronized boolean isLoaded() {
+        return bytes == null;
+    }
+
+    /**
+     * Retain the serialized value loaded from the database.
+     *
+     * @param bytes Serialized value
+     * @param activator Activator to resolve classes or null
+     */
+    public synchronized void setBytes(byte[] bytes, Activator activator) {
+        this.bytes = bytes;
+        this.activator = activator;
+        value = null;
+    }
+
+    /**
+     * Return the serialized form of the value. Retained bytes are returned without a round trip.
+     *
+     * @return Serialized value
+     * @throws MException If the value can't be serialized
+     */
+    public synchronized byte[] toBytes() throws MException {
+        if (bytes != null) return bytes;
+        try {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(os);
+            oos.writeObject(value);
+            oos.close();
+            return os.toByteArray();
+        } catch (Exception e) {
+            throw new MException(RC.ERROR, "can't serialize lazy value", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return isLoaded() ? String.valueOf(value) : "[lazy]";
+    }
+}
@@ -16,6 +16,7 @@
 package org.summerclouds.common.db;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +38,7 @@ import org.summerclouds.common.db.sql.DbResult;
 import org.summerclouds.common.db.sql.MetadataBundle;
 import org.summerclouds.common.db.util.AdbUtil;
 import org.summerclouds.common.db.util.DbProperties;
+import org.summerclouds.common.db.xdb.XdbAsync;
 import org.summerclouds.common.db.xdb.XdbService;
 import org.summerclouds.common.db.xdb.XdbType;
 
@@ -46,6 +48,8 @@ import org.summerclouds.common.db.xdb.XdbType;
  */
 public abstract class DbManager extends MLog implements DbObjectHandler, XdbService {
 
+    private XdbAsync async;
+
     @Override
     public abstract <T> T getObjectByQualification(AQuery<T> qualification) throws MException;
 
@@ -81,6 +85,29 @@ public abstract class DbManager extends MLog implements DbObjectHandler, XdbServ
             Map<String, Object> attributes)
             throws MException;
 
+    /**
+     * Get an collection of partially loaded objects. Only the columns of the projected attributes
+     * and the primary keys are selected and filled.
+     *
+     * @param <T> Type of the object
+     * @param con The connection or null
+     * @param object a representation of the object (empty object)
+     * @param registryName The name of the registry (if not default) or null
+     * @param qualification The WHERE string
+     * @param attributes attributes or null if not needed
+     * @param projection Names of the attributes to load or null to load all
+     * @return A collection with the results
+     * @throws MException
+     */
+    public abstract <T> DbCollection<T> getByQualification(
+            DbConnection con,
+            T object,
+            String registryName,
+            String qualification,
+            Map<String, Object> attributes,
+            String[] projection)
+            throws MException;
+
     public abstract String createSqlSelect(Class<?> clazz, String columns, String qualification);
 
     public abstract <T> long getCountAll(Class<T> clazz) throws MException;
@@ -384,6 +411,40 @@ public abstract class DbManager extends MLog implements DbObjectHandler, XdbServ
     public abstract void deleteObject(DbConnection con, String registryName, Object object)
             throws MException;
 
+    /**
+     * Create a list of objects in the database. The objects are grouped by table and the inserts
+     * are executed as jdbc batch. The order of the tables is the order of the first occurrence in
+     * the collection.
+     *
+     * @param objects The objects to create
+     * @throws MException
+     */
+    public abstract void createObjects(Collection<?> objects) throws MException;
+
+    public abstract void createObjects(DbConnection con, Collection<?> objects) throws MException;
+
+    /**
+     * Update a list of objects in the database. The objects are grouped by table and the updates
+     * are executed as jdbc batch.
+     *
+     * @param objects The objects to save
+     * @throws MException
+     */
+    public abstract void saveObjects(Collection<?> objects) throws MException;
+
+    public abstract void saveObjects(DbConnection con, Collection<?> objects) throws MException;
+
+    /**
+     * Delete a list of objects in the database. The objects are grouped by table and the deletes
+     * are executed as jdbc batch.
+     *
+     * @param objects The objects to delete
+     * @throws MException
+     */
+    public abstract void deleteObjects(Collection<?> objects) throws MException;
+
+    public abstract void deleteObjects(DbConnection con, Collection<?> objects) throws MException;
+
     @Override
     public abstract boolean isConnected();
 
@@ -400,6 +461,41 @@ public abstract class DbManager extends MLog implements DbObjectHandler, XdbServ
 
     public abstract DbPool getPoolRo();
 
+    /**
+     * Create a scanner to process all objects of the type in parallel primary key ranges.
+     *
+     * @param <T>
+     * @param clazz
+     * @return The scanner
+     * @throws MException
+     */
+    public <T> DbScanner<T> scan(Class<T> clazz) throws MException {
+        return new DbScanner<>(this, clazz);
+    }
+
+    /**
+     * Return the asynchronous facade of this manager. The number of concurrent calls is limited by
+     * the maximum size of the connection pool. The calls do not take part in a transaction of the
+     * calling thread.
+     *
+     * @return x
+     */
+    public synchronized XdbAsync async() {
+        if (async == null || async.isClosed())
+            async = new XdbAsync(this, getPool().getMaxSize());
+        return async;
+    }
+
+    /**
+     * Close the asynchronous facade if it was created. The next call of async() creates a new
+     * facade.
+     */
+    public synchronized void closeAsync() {
+        if (async == null) return;
+        async.close();
+        async = null;
+    }
+
     public abstract Activator getActivator();
 
     public abstract Map<String, Object> getNameMapping();
@@ -524,6 +620,19 @@ public abstract class DbManager extends MLog implements DbObjectHandler, XdbServ
             return (DbCollection<T>) service.getByQualification(query);
         }
 
+        @SuppressWarnings("unchecked")
+        @Override
+        public DbCollection<T> getByQualification(
+                String search, Map<String, Object> parameterValues, int offset, int limit)
+                throws MException {
+            StringBuilder sql = new StringBuilder();
+            if (search != null) sql.append(search);
+            service.getPool().getDialect().appendLimit(sql, offset, limit);
+            return (DbCollection<T>)
+                    service.getByQualification(
+                            table.getClazz(), sql.toString().trim(), parameterValues);
+        }
+
         @Override
         public List<String> getAttributeNames() {
             LinkedList<String> out = new LinkedList<>();
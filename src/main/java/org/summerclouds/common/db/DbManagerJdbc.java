@@ -15,15 +15,22 @@
  */
 package org.summerclouds.common.db;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.summerclouds.common.core.activator.Activator;
 import org.summerclouds.common.core.cfg.CfgBoolean;
+import org.summerclouds.common.core.cfg.CfgInt;
 import org.summerclouds.common.core.concurrent.Lock;
 import org.summerclouds.common.core.concurrent.ThreadLock;
 import org.summerclouds.common.core.error.AccessDeniedException;
@@ -44,7 +51,11 @@ import org.summerclouds.common.db.sql.DbPool;
 import org.summerclouds.common.db.sql.DbResult;
 import org.summerclouds.common.db.sql.DbStatement;
 import org.summerclouds.common.db.sql.MetadataBundle;
+import org.summerclouds.common.db.sql.QueryCache;
+import org.summerclouds.common.db.sql.ReplicaDbPool;
 import org.summerclouds.common.db.sql.SqlDialectCreateContext;
+import org.summerclouds.common.db.sql.StructureSnapshot;
+import org.summerclouds.common.db.sql.analytics.SqlAnalytics;
 import org.summerclouds.common.db.util.DbProperties;
 import org.summerclouds.common.db.util.ParserJdbcDebug;
 import org.summerclouds.common.db.util.Property;
@@ -57,9 +68,18 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
 
     private static CfgBoolean CFG_DEBUG_PARSER =
             new CfgBoolean(DbManagerJdbc.class, "debugParser", false);
+    private static CfgInt CFG_BATCH_SIZE = new CfgInt(DbManager.class, "batchSize", 500);
+    private static CfgInt CFG_QUALIFICATION_CACHE_SIZE =
+            new CfgInt(DbManager.class, "qualificationCacheSize", 500);
+    private static CfgBoolean CFG_BULK_METADATA =
+            new CfgBoolean(DbManager.class, "bulkMetadata", true);
+    private static CfgInt CFG_INIT_THREADS = new CfgInt(DbManager.class, "initThreads", 1);
+    private static CfgBoolean CFG_STRUCTURE_FINGERPRINT =
+            new CfgBoolean(DbManager.class, "structureFingerprint", true);
     public static final String DATABASE_VERSION = "db.version";
     public static final String DATABASE_CREATED = "db.created";
     public static final String DATABASE_MANAGER_VERSION = "db.manager.version";
+    public static final String DATABASE_STRUCTURE = "db.structure.";
 
     public static final String MANAGER_VERSION = "1.0";
 
@@ -76,7 +96,11 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
     private MetadataBundle caoBundle;
     private Activator activator;
     private Lock reloadLock = new ThreadLock("reload");
+    private volatile boolean reloading;
+    private HashMap<String, String> structureFingerprints = new HashMap<>();
     private String dataSourceName;
+    private QueryCache<String, String> qualificationCache =
+            new QueryCache<>(CFG_QUALIFICATION_CACHE_SIZE.value());
 
     public DbManagerJdbc(String dataSourceName, DbPool pool, DbPool poolRo, DbSchema schema)
             throws Exception {
@@ -146,11 +170,27 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
                         qualification.getType(),
                         null,
                         toQualification(qualification),
-                        qualification.getAttributes());
+                        qualification.getAttributes(),
+                        qualification.getProjection());
     }
 
     @Override
     public <T> String toQualification(AQuery<T> qualification) {
+        // queries with the same shape render the same sql, the values are attributes
+        StringBuilder shape = new StringBuilder();
+        if (qualification.isFinal() && qualification.appendShape(shape)) {
+            String key = shape.toString();
+            String ret = qualificationCache.get(key);
+            if (ret == null) {
+                ret = renderQualification(qualification);
+                qualificationCache.put(key, ret);
+            }
+            return ret;
+        }
+        return renderQualification(qualification);
+    }
+
+    private <T> String renderQualification(AQuery<T> qualification) {
         StringBuilder buffer = new StringBuilder();
         qualification.setContext(new SqlDialectCreateContext(this, buffer));
         getPool().getDialect().createQuery(qualification, qualification);
@@ -179,12 +219,50 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
             String qualification,
             Map<String, Object> attributes)
             throws MException {
+        return getByQualification(con, object, registryName, qualification, attributes, null);
+    }
+
+    @Override
+    public <T> DbCollection<T> getByQualification(
+            DbConnection con,
+            T object,
+            String registryName,
+            String qualification,
+            Map<String, Object> attributes,
+            String[] projection)
+            throws MException {
         reloadLock.waitWithException(MAX_LOCK);
 
         Class<?> clazz = schema.findClassForObject(object, this);
-        String s = createSqlSelect(clazz, "*", qualification);
+        if (projection == null) {
+            String s = createSqlSelect(clazz, "*", qualification);
+            log().t(
+                    "getByQualification",
+                    registryName == null ? clazz : registryName,
+                    s,
+                    attributes);
+            return executeQuery(con, object, registryName, s, attributes, null, null);
+        }
+
+        Table table = cIndex.get(registryName != null ? registryName : getRegistryName(clazz));
+        if (table == null)
+            throw new MException(RC.ERROR, "class definition not found in schema", clazz);
+        List<Field> fields = table.getProjection(projection);
+        // only a snapshot holder can be marked as partial, a save would clear the other columns
+        Class<?> type = table.getObjectClass() != null ? table.getObjectClass() : table.getClazz();
+        if (!DbSnapshotHolder.class.isAssignableFrom(type))
+            throw new MException(
+                    RC.USAGE,
+                    "projection not supported, {1} is not a DbSnapshotHolder",
+                    table.getRegistryName());
+        StringBuilder columns = new StringBuilder();
+        for (Field f : fields) {
+            if (columns.length() > 0) columns.append(',');
+            columns.append(f.getMappedName());
+        }
+        String s = createSqlSelect(clazz, columns.toString(), qualification);
         log().t("getByQualification", registryName == null ? clazz : registryName, s, attributes);
-        return executeQuery(con, object, registryName, s, attributes);
+        return executeQuery(con, object, registryName, s, attributes, table, fields);
     }
 
     @Override
@@ -413,6 +491,18 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
             String query,
             Map<String, Object> attributes)
             throws MException {
+        return executeQuery(con, clazz, registryName, query, attributes, null, null);
+    }
+
+    private <T> DbCollection<T> executeQuery(
+            DbConnection con,
+            T clazz,
+            String registryName,
+            String query,
+            Map<String, Object> attributes,
+            Table projectionTable,
+            List<Field> projection)
+            throws MException {
         reloadLock.waitWithException(MAX_LOCK);
 
         try (IScope scope =
@@ -432,7 +522,7 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
             DbConnection myCon = null;
             if (con == null) {
                 try {
-                    myCon = schema.getConnection(poolRo);
+                    myCon = schema.getConnection(getReadPool());
                 } catch (Exception t) {
                     throw new MException(RC.STATUS.ERROR, con, query, attributes, t);
                 }
@@ -443,6 +533,7 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
             try {
                 DbStatement sth = con.createStatement(query);
                 DbResult res = sth.executeQuery(map);
+                if (projection != null) projectionTable.setProjection(res, projection);
                 return new DbCollectionImpl<T>(this, con, myCon != null, registryName, clazz, res);
             } catch (Exception t) {
                 throw new MException(RC.STATUS.ERROR, con, query, attributes, t);
@@ -480,7 +571,7 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
             DbConnection myCon = null;
             if (con == null) {
                 try {
-                    myCon = schema.getConnection(poolRo);
+                    myCon = schema.getConnection(getReadPool());
                 } catch (Exception t) {
                     throw new MException(RC.STATUS.ERROR, con, query, attributes, t);
                 }
@@ -531,7 +622,7 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
             DbConnection myCon = null;
             if (con == null) {
                 try {
-                    myCon = schema.getConnection(poolRo);
+                    myCon = schema.getConnection(getReadPool());
                 } catch (Exception t) {
                     throw new MException(RC.STATUS.ERROR, con, query, attributes, t);
                 }
@@ -611,9 +702,10 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
         //		registryName = registryName.toLowerCase();
 
         DbConnection myCon = null;
+        DbPool readPool = getReadPool();
         if (con == null) {
             try {
-                myCon = schema.getConnection(poolRo);
+                myCon = schema.getConnection(readPool);
                 con = myCon;
             } catch (Exception t) {
                 throw new MException(RC.STATUS.ERROR, t);
@@ -625,13 +717,23 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
         if (c == null)
             throw new MException(RC.ERROR, "class definition not found in schema", registryName);
 
+        long start = System.nanoTime();
         try {
-            Object out = c.getObject(con, keys);
+            // only committed reads of an own primary connection are cached, a replica could
+            // return an old row after the key was invalidated
+            boolean cacheable =
+                    myCon != null
+                            && readPool == pool
+                            && !(pool instanceof ReplicaDbPool)
+                            && !DbTransaction.isInTransaction(pool);
+            Object out = c.getObject(con, keys, cacheable);
+            SqlAnalytics.traceTable(registryName, "get", start, null);
             schema.doPostLoad(c, out, con, this);
             return out;
         } catch (AccessDeniedException e) {
             return null;
         } catch (Exception t) {
+            SqlAnalytics.traceTable(registryName, "get", start, t);
             throw new MException(RC.STATUS.ERROR, registryName, t);
         } finally {
 
@@ -688,7 +790,7 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
         DbConnection myCon = null;
         if (con == null) {
             try {
-                myCon = schema.getConnection(poolRo);
+                myCon = schema.getConnection(getReadPool());
                 con = myCon;
             } catch (Exception t) {
                 throw new MException(RC.STATUS.ERROR, t);
@@ -750,7 +852,7 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
         try {
             if (object == null) {
 
-                object = schema.createObject(c.getClazz(), registryName, res, this, true);
+                object = c.newObject(res, true);
             }
             c.fillObject(object, con, res);
 
@@ -864,7 +966,7 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
         DbConnection myCon = null;
         if (con == null) {
             try {
-                myCon = schema.getConnection(poolRo);
+                myCon = schema.getConnection(getReadPool());
                 con = myCon;
             } catch (Exception t) {
                 throw new MException(RC.STATUS.ERROR, t);
@@ -1031,6 +1133,7 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
         if (c == null)
             throw new MException(RC.ERROR, "class definition not found in schema", registryName);
 
+        long start = System.nanoTime();
         try {
             // prepare object
             c.prepareCreate(object);
@@ -1039,16 +1142,19 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
             // save object
 
             c.createObject(con, object);
+            SqlAnalytics.traceTable(registryName, "create", start, null);
 
             schema.doPostCreate(c, object, con, this);
 
         } catch (Exception t) {
+            SqlAnalytics.traceTable(registryName, "create", start, t);
             throw new MException(RC.STATUS.ERROR, registryName, t);
         } finally {
             try {
                 if (myCon != null) {
                     try {
                         schema.commitConnection(pool, myCon);
+                        c.invalidateCache(object);
                     } catch (Exception t) {
                         throw new MException(RC.STATUS.ERROR, t);
                     }
@@ -1111,19 +1217,23 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
         if (c == null)
             throw new MException(RC.ERROR, "class definition not found in schema", registryName);
 
+        long start = System.nanoTime();
         try {
             // prepare object
             schema.doPreSave(c, object, con, this);
 
             // save object
             c.saveObject(con, object);
+            SqlAnalytics.traceTable(registryName, "save", start, null);
         } catch (Exception t) {
+            SqlAnalytics.traceTable(registryName, "save", start, t);
             throw new MException(RC.STATUS.ERROR, registryName, t);
         } finally {
             try {
                 if (myCon != null) {
                     try {
                         schema.commitConnection(pool, myCon);
+                        c.invalidateCache(object);
                     } catch (Exception t) {
                         throw new MException(RC.STATUS.ERROR, t);
                     }
@@ -1202,6 +1312,7 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
                 if (myCon != null) {
                     try {
                         schema.commitConnection(pool, myCon);
+                        c.invalidateCache(object);
                     } catch (Exception t) {
                         throw new MException(RC.STATUS.ERROR, t);
                     }
@@ -1280,6 +1391,7 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
                 if (myCon != null) {
                     try {
                         schema.commitConnection(pool, myCon);
+                        c.invalidateCache(object);
                     } catch (Exception t) {
                         throw new MException(RC.STATUS.ERROR, t);
                     }
@@ -1342,16 +1454,19 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
         if (c == null)
             throw new MException(RC.ERROR, "class definition not found in schema", registryName);
 
+        long start = System.nanoTime();
         try {
             // prepare object
             schema.doPreDelete(c, object, con, this);
 
             // save object
             c.deleteObject(con, object);
+            SqlAnalytics.traceTable(registryName, "delete", start, null);
 
             schema.doPostDelete(c, object, con, this);
 
         } catch (Exception t) {
+            SqlAnalytics.traceTable(registryName, "delete", start, t);
             throw new MException(RC.STATUS.ERROR, registryName, t);
         } finally {
 
@@ -1359,6 +1474,125 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
                 if (myCon != null) {
                     try {
                         schema.commitConnection(pool, myCon);
+                        c.invalidateCache(object);
+                    } catch (Exception t) {
+                        throw new MException(RC.STATUS.ERROR, t);
+                    }
+                    schema.closeConnection(pool, myCon);
+                }
+            } catch (Exception t) {
+                log().w(t);
+            }
+        }
+    }
+
+    @Override
+    public void createObjects(Collection<?> objects) throws MException {
+        createObjects(null, objects);
+    }
+
+    @Override
+    public void createObjects(DbConnection con, Collection<?> objects) throws MException {
+        executeBatch(con, objects, BATCH.CREATE);
+    }
+
+    @Override
+    public void saveObjects(Collection<?> objects) throws MException {
+        saveObjects(null, objects);
+    }
+
+    @Override
+    public void saveObjects(DbConnection con, Collection<?> objects) throws MException {
+        executeBatch(con, objects, BATCH.SAVE);
+    }
+
+    @Override
+    public void deleteObjects(Collection<?> objects) throws MException {
+        deleteObjects(null, objects);
+    }
+
+    @Override
+    public void deleteObjects(DbConnection con, Collection<?> objects) throws MException {
+        executeBatch(con, objects, BATCH.DELETE);
+    }
+
+    private enum BATCH {
+        CREATE,
+        SAVE,
+        DELETE
+    }
+
+    private void executeBatch(DbConnection con, Collection<?> objects, BATCH action)
+            throws MException {
+        if (objects == null || objects.size() == 0) return;
+        reloadLock.waitWithException(MAX_LOCK);
+
+        // group by table, keep the order of the first occurrence
+        LinkedHashMap<String, List<Object>> groups = new LinkedHashMap<>();
+        for (Object object : objects) {
+            Class<?> clazz = schema.findClassForObject(object, this);
+            if (clazz == null)
+                throw new MException(
+                        RC.ERROR,
+                        "class definition not found for object",
+                        object.getClass().getCanonicalName());
+            String registryName = getRegistryName(clazz);
+            if (!cIndex.containsKey(registryName))
+                throw new MException(
+                        RC.ERROR, "class definition not found in schema", registryName);
+            groups.computeIfAbsent(registryName, k -> new LinkedList<>()).add(object);
+        }
+
+        DbConnection myCon = null;
+        if (con == null) {
+            try {
+                myCon = schema.getConnection(pool);
+                con = myCon;
+            } catch (Exception t) {
+                throw new MException(RC.STATUS.ERROR, t);
+            }
+        }
+
+        String traceName = action.name().toLowerCase() + "Batch";
+        int batchSize = CFG_BATCH_SIZE.value();
+        String registryName = null;
+        long start = 0;
+        boolean success = false;
+        try {
+            for (Map.Entry<String, List<Object>> group : groups.entrySet()) {
+                registryName = group.getKey();
+                start = System.nanoTime();
+                List<Object> list = group.getValue();
+                log().t(traceName, registryName, list.size());
+                Table c = cIndex.get(registryName);
+                switch (action) {
+                    case CREATE:
+                        createBatch(con, c, list, batchSize);
+                        break;
+                    case SAVE:
+                        saveBatch(con, c, list, batchSize);
+                        break;
+                    case DELETE:
+                        deleteBatch(con, c, list, batchSize);
+                        break;
+                }
+                SqlAnalytics.traceTable(registryName, traceName, start, null);
+            }
+            success = true;
+        } catch (Exception t) {
+            SqlAnalytics.traceTable(registryName, traceName, start, t);
+            throw new MException(RC.STATUS.ERROR, registryName, t);
+        } finally {
+            try {
+                if (myCon != null) {
+                    try {
+                        // commit all groups or none of them
+                        if (success) schema.commitConnection(pool, myCon);
+                        else schema.rollbackConnection(pool, myCon);
+                        for (Map.Entry<String, List<Object>> group : groups.entrySet()) {
+                            Table c = cIndex.get(group.getKey());
+                            for (Object object : group.getValue()) c.invalidateCache(object);
+                        }
                     } catch (Exception t) {
                         throw new MException(RC.STATUS.ERROR, t);
                     }
@@ -1370,6 +1604,29 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
         }
     }
 
+    private void createBatch(DbConnection con, Table c, List<Object> list, int batchSize)
+            throws Exception {
+        for (Object object : list) {
+            c.prepareCreate(object);
+            schema.doPreCreate(c, object, con, this);
+        }
+        c.createObjects(con, list, batchSize);
+        for (Object object : list) schema.doPostCreate(c, object, con, this);
+    }
+
+    private void saveBatch(DbConnection con, Table c, List<Object> list, int batchSize)
+            throws Exception {
+        for (Object object : list) schema.doPreSave(c, object, con, this);
+        c.saveObjects(con, list, batchSize);
+    }
+
+    private void deleteBatch(DbConnection con, Table c, List<Object> list, int batchSize)
+            throws Exception {
+        for (Object object : list) schema.doPreDelete(c, object, con, this);
+        c.deleteObjects(con, list, batchSize);
+        for (Object object : list) schema.doPostDelete(c, object, con, this);
+    }
+
     @Override
     public boolean isConnected() {
         return nameMapping != null;
@@ -1386,9 +1643,12 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
     @Override
     public void disconnect() {
         log().i("disconnect");
+        // a reconnect keeps the asynchronous facade
+        if (!reloading) closeAsync();
         synchronized (this) {
             if (nameMapping == null) return;
             cIndex.clear();
+            qualificationCache.clear();
 
             nameMapping = null;
             nameMappingRO = null;
@@ -1401,9 +1661,11 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
     public void reconnect() throws MException {
         try {
             reloadLock.lockWithException(MAX_LOCK);
+            reloading = true;
             disconnect();
             connect();
         } finally {
+            reloading = false;
             reloadLock.unlockHard();
         }
     }
@@ -1426,9 +1688,22 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
             if (con == null) return;
 
             cIndex.clear();
+            qualificationCache.clear();
             nameMapping = new HashMap<String, Object>();
             nameMappingRO = Collections.unmodifiableMap(nameMapping);
             caoBundle = new MetadataBundle();
+            structureFingerprints.clear();
+
+            // load the existing structure at once instead of asking for every table and field
+            StructureSnapshot snapshot = null;
+            if (CFG_BULK_METADATA.value()) {
+                try {
+                    snapshot = pool.getDialect().loadStructure(con);
+                    if (snapshot != null) log().d("loaded database structure", snapshot.size());
+                } catch (Exception e) {
+                    log().d("can't load database structure", dataSourceName, e);
+                }
+            }
 
             // schema info
             if (schema.hasPersistentInfo()) {
@@ -1437,13 +1712,26 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
                         getRegistryName(schema.getClass()),
                         Property.class,
                         con,
-                        cleanup);
+                        cleanup,
+                        snapshot);
                 schemaPersistence = new DbProperties(this, getRegistryName(schema.getClass()));
+                loadStructureFingerprints(con, types);
             }
 
-            // classes
-            for (Class<? extends Object> clazz : types) {
-                addClass(null, getRegistryName(clazz), clazz, con, cleanup);
+            // classes, a reload holds the reload lock, the workers would wait for it
+            int threads = Math.min(getInitThreads(), types.length);
+            if (pool.getMaxSize() > 0) threads = Math.min(threads, pool.getMaxSize());
+            if (threads > 1 && !reloading) {
+                // release the init connection, the workers need the capacity of the pool
+                con.commit();
+                con.close();
+                addClasses(types, cleanup, snapshot, threads);
+                con = pool.getConnection();
+                if (con == null) throw new MException(RC.ERROR, "no connection", dataSourceName);
+            } else {
+                for (Class<? extends Object> clazz : types) {
+                    addClass(null, getRegistryName(clazz), clazz, con, cleanup, snapshot);
+                }
             }
             con.commit();
 
@@ -1470,6 +1758,11 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
                 // migrate to current version
                 long dbVersionLong = MCast.tolong(dbVersion, 0);
                 schema.doMigrate(this, dbVersionLong);
+
+                // a migration could change the tables after they are reconciled
+                if (dbVersionLong != MCast.tolong(schemaPersistence.get(DATABASE_VERSION), 0))
+                    removeStructureFingerprints();
+                else saveStructureFingerprints();
             }
 
             con.close();
@@ -1487,8 +1780,19 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
             DbConnection con,
             boolean cleanup)
             throws Exception {
+        addClass(tableName, registryName, clazz, con, cleanup, null);
+    }
+
+    protected void addClass(
+            String tableName,
+            String registryName,
+            Class<? extends Object> clazz,
+            DbConnection con,
+            boolean cleanup,
+            StructureSnapshot snapshot)
+            throws Exception {
         Table c = schema.createTable(this, clazz, registryName, tableName);
-        c.initDatabase(con, cleanup);
+        c.initDatabase(con, cleanup, snapshot, structureFingerprints.get(registryName));
         //		c.registryName = registryName;
         //		parseClass(c,tableName);
         //		c.createTable(con);
@@ -1496,6 +1800,132 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
         cIndex.put(registryName, c);
     }
 
+    /**
+     * Load the fingerprints of the last reconciled table structures from the schema properties.
+     * The init connection is used, the properties table could be not committed or replicated.
+     *
+     * @param con
+     * @param types
+     * @throws MException
+     */
+    protected void loadStructureFingerprints(DbConnection con, Class<? extends Object>[] types)
+            throws MException {
+        structureFingerprints.clear();
+        if (!CFG_STRUCTURE_FINGERPRINT.value()) return;
+        String propertyRegistryName = getRegistryName(schema.getClass());
+        for (Class<? extends Object> clazz : types) {
+            String registryName = getRegistryName(clazz);
+            Property prop =
+                    (Property)
+                            getObject(con, propertyRegistryName, DATABASE_STRUCTURE + registryName);
+            if (prop != null && prop.getValue() != null)
+                structureFingerprints.put(registryName, prop.getValue());
+        }
+    }
+
+    /**
+     * Remove the fingerprints of all tables from the schema properties. The next init compares
+     * the structure of all tables with the database again.
+     *
+     * @throws MException
+     */
+    protected void removeStructureFingerprints() throws MException {
+        if (!CFG_STRUCTURE_FINGERPRINT.value()) return;
+        for (Table c : cIndex.values()) {
+            if (structureFingerprints.containsKey(c.getRegistryName()))
+                schemaPersistence.remove(DATABASE_STRUCTURE + c.getRegistryName());
+        }
+        structureFingerprints.clear();
+    }
+
+    /**
+     * Store the fingerprints of the changed table structures in the schema properties. Must be
+     * called after the migration, a migrated table is compared again by the next init.
+     *
+     * @throws MException
+     */
+    protected void saveStructureFingerprints() throws MException {
+        if (!CFG_STRUCTURE_FINGERPRINT.value()) return;
+        for (Table c : cIndex.values()) {
+            String fingerprint = c.getFingerprint();
+            if (fingerprint == null
+                    || c.getClazz() == Property.class
+                    || fingerprint.equals(structureFingerprints.get(c.getRegistryName())))
+                continue;
+            schemaPersistence.set(DATABASE_STRUCTURE + c.getRegistryName(), fingerprint);
+        }
+        structureFingerprints.clear();
+    }
+
+    /**
+     * Return the number of threads used to initialize the tables. The threads are limited by the
+     * number of tables and the maximum size of the pool.
+     *
+     * @return The configured number of threads
+     */
+    protected int getInitThreads() {
+        return CFG_INIT_THREADS.value();
+    }
+
+    /**
+     * Initialize the tables in parallel. Every worker uses its own connection, tables are
+     * independent while creating or updating the structure. The caller must not hold a connection
+     * of the pool and should limit the threads to the capacity of the pool.
+     *
+     * @param types
+     * @param cleanup
+     * @param snapshot
+     * @param threads
+     * @throws Exception
+     */
+    protected void addClasses(
+            Class<? extends Object>[] types,
+            boolean cleanup,
+            StructureSnapshot snapshot,
+            int threads)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            LinkedList<Future<Table>> futures = new LinkedList<>();
+            for (Class<? extends Object> clazz : types) {
+                String registryName = getRegistryName(clazz);
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    DbConnection con = pool.getConnection();
+                                    if (con == null)
+                                        throw new MException(
+                                                RC.ERROR, "no connection", registryName);
+                                    try {
+                                        Table c =
+                                                schema.createTable(
+                                                        this, clazz, registryName, null);
+                                        c.initDatabase(
+                                                con,
+                                                cleanup,
+                                                snapshot,
+                                                structureFingerprints.get(registryName));
+                                        con.commit();
+                                        return c;
+                                    } finally {
+                                        con.close();
+                                    }
+                                }));
+            }
+            for (Future<Table> future : futures) {
+                try {
+                    Table c = future.get();
+                    cIndex.put(c.getRegistryName(), c);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Override
     public DbSchema getSchema() {
         return schema;
@@ -1511,6 +1941,17 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
         return poolRo;
     }
 
+    /**
+     * Return the pool for read operations. While the thread is inside a transaction encapsulation
+     * of the primary pool reads are pinned to it to see the own changes.
+     *
+     * @return The read pool
+     */
+    protected DbPool getReadPool() {
+        if (poolRo != pool && DbTransaction.isInTransaction(pool)) return pool;
+        return poolRo;
+    }
+
     @Override
     public Activator getActivator() {
         return activator;
@@ -1546,7 +1987,7 @@ public class DbManagerJdbc extends DbManager implements DbObjectHandler {
         Table table = cIndex.get(registryName);
         if (table == null)
             throw new MException(RC.ERROR, "class definition not found in schema", registryName);
-        return schema.createObject(table.getClazz(), table.getRegistryName(), null, this, false);
+        return table.newObject(null, false);
     }
 
     @Override
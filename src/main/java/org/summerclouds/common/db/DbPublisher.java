@@ -0,0 +1,199 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.summerclouds.common.core.log.MLog;
+
+/**
+ * Publish the objects of a DbCollection to reactive subscribers. The collection is opened for
+ * every subscriber when the subscription starts and read on demand: not more objects then
+ * requested are read and delivered. The objects are delivered in chunks by tasks of the executor,
+ * the executor should allow blocking calls. If the subscriber cancels, fails or all objects are
+ * delivered the collection is closed and the connection is returned to the pool.
+ *
+ * @author mikehummel
+ * @param <T>
+ */
+public class DbPublisher<T> extends MLog implements Flow.Publisher<T> {
+
+    private final Callable<DbCollection<T>> source;
+    private final Executor executor;
+    private int chunkSize = 100;
+    private int batchSize = 0;
+
+    /**
+     * Create a publisher.
+     *
+     * @param source Opens the collection, called once per subscriber
+     * @param executor Executes the reading and delivering tasks
+     */
+    public DbPublisher(Callable<DbCollection<T>> source, Executor executor) {
+        this.source = Objects.requireNonNull(source);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Maximum number of objects delivered by one task before the next task is scheduled.
+     *
+     * @param chunkSize
+     * @return x
+     */
+    public DbPublisher<T> setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+        return this;
+    }
+
+    /**
+     * Load the relations of the objects page wise, see DbCollection.setBatchSize.
+     *
+     * @param batchSize
+     * @return x
+     */
+    public DbPublisher<T> setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+        DbSubscription subscription = new DbSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private class DbSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private DbCollection<T> res;
+        private boolean done;
+
+        private DbSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("request must be positive: " + n);
+            } else {
+                demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) submit();
+        }
+
+        private void submit() {
+            try {
+                executor.execute(this::drain);
+            } catch (RuntimeException e) {
+                cancelled = true;
+                close();
+                if (!done) {
+                    done = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            while (true) {
+                if (done) return;
+                if (cancelled) {
+                    done = true;
+                    close();
+                    return;
+                }
+                if (invalidRequest != null) {
+                    fail(invalidRequest);
+                    return;
+                }
+                try {
+                    if (res == null) {
+                        res = source.call();
+                        if (batchSize > 1) res.setBatchSize(batchSize);
+                    }
+                    long requested = demand.get();
+                    long emitted = 0;
+                    while (emitted < requested && emitted < chunkSize && !cancelled) {
+                        if (!res.hasNext()) {
+                            done = true;
+                            close();
+                            subscriber.onComplete();
+                            return;
+                        }
+                        subscriber.onNext(res.next());
+                        emitted++;
+                    }
+                    if (!cancelled && !res.hasNext()) {
+                        // complete without further demand to release the connection
+                        done = true;
+                        close();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    if (emitted > 0 && requested != Long.MAX_VALUE) demand.addAndGet(-emitted);
+                    if (emitted == chunkSize && demand.get() > 0 && !cancelled) {
+                        // give other tasks a chance, keep the work in progress counter
+                        submit();
+                        return;
+                    }
+                } catch (Throwable t) {
+                    fail(t);
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) return;
+            }
+        }
+
+        private void fail(Throwable t) {
+            done = true;
+            close();
+            subscriber.onError(t);
+        }
+
+        private void close() {
+            if (res == null) return;
+            try {
+                res.close();
+            } catch (Throwable t) {
+                log().d("close collection failed", t);
+            }
+            res = null;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.summerclouds.common.core.cfg.CfgInt;
+import org.summerclouds.common.core.error.MException;
+import org.summerclouds.common.core.error.NotSupportedException;
+import org.summerclouds.common.core.error.RC;
+import org.summerclouds.common.core.log.MLog;
+import org.summerclouds.common.db.model.Field;
+import org.summerclouds.common.db.model.Table;
+import org.summerclouds.common.db.query.AQuery;
+import org.summerclouds.common.db.query.Db;
+import org.summerclouds.common.db.sql.DbConnection;
+import org.summerclouds.common.db.sql.JdbcConnection;
+
+/**
+ * Scan all objects of a table in parallel. The table is split in ranges of the primary key (see
+ * Dialect.getSplitPoints), the ranges are processed by a fork/join pool. Every range is read and
+ * processed with its own connection and committed after the last object of the range. A
+ * checkpoint can be used to skip already processed ranges if a scan is restarted.
+ *
+ * <p>The split points depend on the current rows and move with inserts and deletes. To resume a
+ * scan persist the ranges of the first run (see getRanges) and pass them to scan(ranges, handler)
+ * again, otherwise rows could be skipped or processed twice.
+ *
+ * <p>Only tables with one primary key column are supported.
+ *
+ * @author mikehummel
+ * @param <T>
+ */
+public class DbScanner<T> extends MLog {
+
+    private static final CfgInt CFG_PARALLELISM =
+            new CfgInt(DbScanner.class, "parallelism", Runtime.getRuntime().availableProcessors());
+
+    private final DbManager manager;
+    private final Class<T> clazz;
+    private final Table table;
+    private final Field pk;
+    private int parallelism = CFG_PARALLELISM.value();
+    private int parts;
+    private boolean commit = true;
+    private Checkpoint checkpoint;
+
+    public DbScanner(DbManager manager, Class<T> clazz) throws MException {
+        this.manager = manager;
+        this.clazz = clazz;
+        table = manager.getTable(manager.getRegistryName(clazz));
+        if (table == null)
+            throw new MException(RC.NOT_FOUND, "class definition not found in schema", clazz);
+        List<Field> keys = table.getPrimaryKeys();
+        if (keys.size() != 1)
+            throw new NotSupportedException(
+                    "only tables with one primary key column can be scanned", clazz, keys.size());
+        pk = keys.get(0);
+    }
+
+    /**
+     * Number of parallel workers and connections.
+     *
+     * @param parallelism
+     * @return x
+     */
+    public DbScanner<T> setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        return this;
+    }
+
+    /**
+     * Number of ranges, default is four times the parallelism.
+     *
+     * @param parts
+     * @return x
+     */
+    public DbScanner<T> setParts(int parts) {
+        this.parts = parts;
+        return this;
+    }
+
+    /**
+     * Commit the connection after each range, default is true.
+     *
+     * @param commit
+     * @return x
+     */
+    public DbScanner<T> setCommit(boolean commit) {
+        this.commit = commit;
+        return this;
+    }
+
+    public DbScanner<T> setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+        return this;
+    }
+
+    /**
+     * Split the table in ranges of the primary key.
+     *
+     * @return The ranges in order of the primary key
+     * @throws MException
+     */
+    public List<Range> getRanges() throws MException {
+        int cnt = parts > 0 ? parts : parallelism * 4;
+        List<Object> points = Collections.emptyList();
+        DbConnection con = null;
+        try {
+            con = manager.getPool().getConnection();
+            DbConnection instance = con.instance();
+            if (cnt > 1 && instance instanceof JdbcConnection) {
+                Connection jdbc = ((JdbcConnection) instance).getConnection();
+                points =
+                        manager.getPool()
+                                .getDialect()
+                                .getSplitPoints(
+                                        jdbc, table.getTableName(), pk.getMappedName(), cnt);
+            }
+        } catch (Exception e) {
+            throw new MException(RC.ERROR, "can't split table {1}", table.getTableName(), e);
+        } finally {
+            if (con != null) con.close();
+        }
+        ArrayList<Range> ranges = new ArrayList<>(points.size() + 1);
+        Object from = null;
+        for (Object point : points) {
+            ranges.add(new Range(ranges.size(), from, point));
+            from = point;
+        }
+        ranges.add(new Range(ranges.size(), from, null));
+        return ranges;
+    }
+
+    /**
+     * Process all objects of the table. Failed ranges are rolled back and the other ranges are
+     * processed, after all an exception is thrown with the first failure as cause.
+     *
+     * @param handler
+     * @return Number of processed objects
+     * @throws MException
+     */
+    public long scan(Handler<T> handler) throws MException {
+        return scan(getRanges(), handler);
+    }
+
+    /**
+     * Process all objects of the given ranges. Use the persisted ranges of a former run to resume
+     * it with a checkpoint. The ranges must cover the whole key space, see getRanges.
+     *
+     * @param ranges
+     * @param handler
+     * @return Number of processed objects
+     * @throws MException
+     */
+    public long scan(List<Range> ranges, Handler<T> handler) throws MException {
+        AtomicLong processed = new AtomicLong();
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        ForkJoinPool executor = new ForkJoinPool(parallelism);
+        try {
+            ArrayList<RecursiveAction> tasks = new ArrayList<>(ranges.size());
+            for (Range range : ranges)
+                tasks.add(
+                        new RecursiveAction() {
+                            private static final long serialVersionUID = 1L;
+
+                            @Override
+                            protected void compute() {
+                                try {
+                                    processed.addAndGet(scan(range, handler));
+                                } catch (Throwable t) {
+                                    log().w("scan of range failed", table.getName(), range, t);
+                                    errors.add(t);
+                                }
+                            }
+                        });
+            executor.invoke(
+                    new RecursiveAction() {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        protected void compute() {
+                            invokeAll(tasks);
+                        }
+                    });
+        } finally {
+            executor.shutdown();
+        }
+        if (!errors.isEmpty())
+            throw new MException(
+                    RC.ERROR,
+                    "scan of {1} failed in {2} ranges",
+                    table.getName(),
+                    errors.size(),
+                    errors.peek());
+        return processed.get();
+    }
+
+    /**
+     * Process the objects of one range with a new connection.
+     *
+     * @param range
+     * @param handler
+     * @return Number of processed objects
+     * @throws Exception
+     */
+    public long scan(Range range, Handler<T> handler) throws Exception {
+        if (checkpoint != null && checkpoint.isDone(range)) return 0;
+        long cnt = 0;
+        DbConnection con = manager.getPool().getConnection();
+        if (con == null) throw new MException(RC.ERROR, "no connection", table.getName());
+        DbCollection<T> res = null;
+        try {
+            res = select(con, range);
+            while (res.hasNext()) {
+                handler.process(con, res.next());
+                cnt++;
+            }
+            res.close();
+            res = null;
+            if (commit) con.commit();
+        } catch (Exception e) {
+            if (res != null) res.close();
+            try {
+                con.rollback();
+            } catch (Exception e2) {
+                log().d("rollback failed", e2);
+            }
+            throw e;
+        } finally {
+            con.close();
+        }
+        if (checkpoint != null) checkpoint.done(range, cnt);
+        return cnt;
+    }
+
+    @SuppressWarnings("unchecked")
+    private DbCollection<T> select(DbConnection con, Range range) throws MException {
+        if (range.getFrom() == null && range.getTo() == null)
+            return (DbCollection<T>)
+                    manager.getByQualification(con, (Object) clazz, null, "", null);
+        AQuery<T> query = Db.query(clazz);
+        if (range.getFrom() != null) query.ge(pk.getName(), range.getFrom());
+        if (range.getTo() != null) query.lt(pk.getName(), range.getTo());
+        query.doFinal();
+        return (DbCollection<T>)
+                manager.getByQualification(
+                        con,
+                        (Object) clazz,
+                        null,
+                        manager.toQualification(query),
+                        query.getAttributes());
+    }
+
+    public interface Handler<T> {
+
+        /**
+         * Process one object. The connection belongs to the current range and should be used to
+         * store changes.
+         *
+         * @param con
+         * @param object
+         * @throws Exception
+         */
+        void process(DbConnection con, T object) throws Exception;
+    }
+
+    /**
+     * Remember processed ranges. A range is identified by from and to, not by the index. The index
+     * of a range changes if the ranges are computed again.
+     */
+    public interface Checkpoint {
+
+        boolean isDone(Range range);
+
+        void done(Range range, long count);
+    }
+
+    /** A primary key range from (inclusive) to (exclusive), null is unbounded. */
+    public static class Range {
+
+        private final int index;
+        private final Object from;
+        private final Object to;
+
+        public Range(int index, Object from, Object to) {
+            this.index = index;
+            this.from = from;
+            this.to = to;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public Object getFrom() {
+            return from;
+        }
+
+        public Object getTo() {
+            return to;
+        }
+
+        /** Ranges are equal if the bounds are equal, the index is ignored. */
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Range)) return false;
+            Range other = (Range) obj;
+            return Objects.equals(from, other.from) && Objects.equals(to, other.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(from, to);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + (from == null ? "" : from) + ".." + (to == null ? "" : to) + ")";
+        }
+    }
+}
@@ -467,6 +467,19 @@ public abstract class DbSchema extends MLog implements PojoModelFactory {
         con.commit();
     }
 
+    /**
+     * Used to roll back a default connection if the operation failed. See getConnection()
+     *
+     * @param pool
+     * @param con
+     * @throws Exception
+     */
+    public void rollbackConnection(DbPool pool, DbConnection con) throws Exception {
+        DbConnection c = (DbConnection) DbTransaction.getConnection(pool);
+        if (c != null) return;
+        con.rollback();
+    }
+
     public LockStrategy getLockStrategy() {
         return lockStrategy;
     }
@@ -0,0 +1,39 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db;
+
+/**
+ * Objects implementing this interface hold a snapshot of the row values loaded from the database.
+ * The snapshot is used to detect changes in memory and to update only the changed columns.
+ *
+ * @author mikehummel
+ */
+public interface DbSnapshotHolder {
+
+    /**
+     * Return the snapshot set by the table or null.
+     *
+     * @return x
+     */
+    Object getDbSnapshot();
+
+    /**
+     * Store the snapshot. The content is managed by the table, do not modify.
+     *
+     * @param snapshot
+     */
+    void setDbSnapshot(Object snapshot);
+}
@@ -179,6 +179,17 @@ public class DbTransaction {
         return TransactionPool.instance().getConnection(owner);
     }
 
+    /**
+     * Register a task executed after the current transaction was committed, rolled back or
+     * released. The task is not executed if there is no current transaction.
+     *
+     * @param task The task
+     * @return true if the task was registered
+     */
+    public static boolean afterCompletion(Runnable task) {
+        return TransactionPool.instance().afterCompletion(task);
+    }
+
     /**
      * Commit and close all transaction connections This method will never throw an Throwable.
      *
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.summerclouds.common.core.error.MException;
+import org.summerclouds.common.core.util.Table;
+
+/**
+ * Return at most 'limit' objects of another collection. The inner collection is closed if the
+ * limit is reached.
+ *
+ * @author mikehummel
+ * @param <O>
+ */
+public class LimitedDbCollection<O> implements DbCollection<O> {
+
+    private final DbCollection<O> inner;
+    private int remaining;
+
+    public LimitedDbCollection(DbCollection<O> inner, int limit) {
+        this.inner = inner;
+        this.remaining = limit;
+        if (remaining <= 0) inner.close();
+    }
+
+    @Override
+    public Iterator<O> iterator() {
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0 && inner.hasNext();
+    }
+
+    @Override
+    public O next() {
+        if (remaining <= 0) throw new NoSuchElementException();
+        O out = inner.next();
+        remaining--;
+        if (remaining <= 0) inner.close();
+        return out;
+    }
+
+    @Override
+    public void close() {
+        remaining = 0;
+        inner.close();
+    }
+
+    @Override
+    public DbCollection<O> setRecycle(boolean on) {
+        inner.setRecycle(on);
+        return this;
+    }
+
+    @Override
+    public boolean isRecycle() {
+        return inner.isRecycle();
+    }
+
+    @Override
+    public DbCollection<O> setBatchSize(int size) {
+        inner.setBatchSize(size);
+        return this;
+    }
+
+    @Override
+    public O current() throws MException {
+        return inner.current();
+    }
+
+    @Override
+    public Table toTableAndClose(int maxSize) {
+        int max = maxSize > 0 ? Math.min(maxSize, remaining) : remaining;
+        if (max <= 0) {
+            close();
+            return inner.toTableAndClose(1);
+        }
+        return inner.toTableAndClose(max);
+    }
+}
@@ -37,4 +37,19 @@ public @interface DbEntity {
     String attributes() default "";
 
     String service() default "default";
+
+    /**
+     * Maximum size of the primary key cache of the table. 0 disables the cache (default). Use it
+     * for read-mostly tables only.
+     *
+     * @return x
+     */
+    int cacheSize() default 0;
+
+    /**
+     * Time to live of cached entries, e.g. 10m
+     *
+     * @return x
+     */
+    String cacheTtl() default "10m";
 }
@@ -17,7 +17,6 @@ package org.summerclouds.common.db.cmd;
 
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -180,82 +179,60 @@ public class CmdSelect extends CmdOperation {
         //		    AQuery<?> query = Db.parse(type, qualification);
         //		}
 
+        // paging, rendered by the dialect. With a filter the page is selected after filtering.
+        int offset = 0;
+        int limit = -1;
+        boolean tail = false;
         if (page == null) {
-            for (Object object : type.getByQualification(parser.getQualification(), queryParam)) {
-
-                if (skipResult(type, object)) continue;
-
-                ConsoleTable.Row row = out.addRow();
-                for (String name : fieldNames) {
-                    Object value = getValueValue(type, object, name);
-                    row.add(value);
-                }
-            }
+            // all
         } else if (page.startsWith("f")) {
-            int lines = MCast.toint(page.substring(1), 100);
-            DbCollection<?> res = type.getByQualification(parser.getQualification(), null);
-            for (Object object : res) {
-
-                if (skipResult(type, object)) continue;
-
-                ConsoleTable.Row row = out.addRow();
-                for (String name : fieldNames) {
-                    Object value = getValueValue(type, object, name);
-                    row.add(value);
-                }
-                lines--;
-                if (lines <= 0) {
-                    res.close();
-                    break;
-                }
-            }
+            limit = MCast.toint(page.substring(1), 100);
         } else if (page.startsWith("l")) {
-            int lines = MCast.toint(page.substring(1), 100);
-            for (Object object : type.getByQualification(parser.getQualification(), null)) {
-
-                if (skipResult(type, object)) continue;
-
-                ConsoleTable.Row row = out.addRow();
-                for (String name : fieldNames) {
-                    Object value = getValueValue(type, object, name);
-                    row.add(value);
-                }
-                if (out.size() > lines) out.removeFirstRow();
-            }
+            limit = MCast.toint(page.substring(1), 100);
+            if (condition == null) {
+                long cnt = type.count(parser.getQualification(), queryParam);
+                offset = (int) Math.max(0, cnt - limit);
+            } else tail = true;
         } else if (page.startsWith("p")) {
-            int lines = 100;
+            limit = 100;
             int p = 0;
-            if (MString.isIndex(page, ',')) {
-                lines = MCast.toint(MString.beforeIndex(page, ','), lines);
-                p = MCast.toint(MString.afterIndex(page, ','), p);
+            String def = page.substring(1);
+            if (MString.isIndex(def, ',')) {
+                limit = MCast.toint(MString.beforeIndex(def, ','), limit);
+                p = MCast.toint(MString.afterIndex(def, ','), p);
             } else {
-                p = MCast.toint(page, p);
+                p = MCast.toint(def, p);
             }
-            System.out.println("Page size: " + lines + ", Page: " + p);
-
-            DbCollection<?> res = type.getByQualification(parser.getQualification(), null);
-            int cnt = 0;
-            Iterator<?> iter = res.iterator();
-            while (iter.hasNext()) {
-                iter.next();
-                cnt++;
-                if (cnt >= p * lines) break;
+            System.out.println("Page size: " + limit + ", Page: " + p);
+            offset = p * limit;
+        }
+
+        DbCollection<?> res;
+        int skip = 0;
+        if (condition == null && limit >= 0)
+            res = type.getByQualification(parser.getQualification(), queryParam, offset, limit);
+        else {
+            res = type.getByQualification(parser.getQualification(), queryParam);
+            skip = offset;
+        }
+        for (Object object : res) {
+
+            if (skipResult(type, object)) continue;
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+
+            ConsoleTable.Row row = out.addRow();
+            for (String name : fieldNames) {
+                Object value = getValueValue(type, object, name);
+                row.add(value);
             }
-            while (iter.hasNext()) {
-                Object object = iter.next();
-
-                if (skipResult(type, object)) continue;
-
-                ConsoleTable.Row row = out.addRow();
-                for (String name : fieldNames) {
-                    Object value = getValueValue(type, object, name);
-                    row.add(value);
-                }
-                lines--;
-                if (lines <= 0) {
-                    res.close();
-                    break;
-                }
+            if (tail) {
+                if (out.size() > limit) out.removeFirstRow();
+            } else if (limit >= 0 && out.size() >= limit) {
+                res.close();
+                break;
             }
         }
 
@@ -15,6 +15,11 @@
  */
 package org.summerclouds.common.db.model;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.LinkedList;
 
@@ -27,6 +32,8 @@ import org.summerclouds.common.core.tool.MCast;
 import org.summerclouds.common.core.tool.MSystem;
 import org.summerclouds.common.db.DbDynamic;
 import org.summerclouds.common.db.DbManager;
+import org.summerclouds.common.db.annotations.DbPersistent;
+import org.summerclouds.common.db.annotations.DbPrimaryKey;
 import org.summerclouds.common.db.sql.DbResult;
 
 public abstract class Field extends MLog {
@@ -50,6 +57,12 @@ public abstract class Field extends MLog {
     protected PojoAttribute<Object> attribute;
     private LinkedList<AttributeFeature> features = new LinkedList<>();
     protected boolean readOnly = false;
+    private MethodHandle getter;
+    private MethodHandle setter;
+    private Class<?> valueType;
+    private Object[] enumValues;
+    private HashMap<String, Integer> enumIndex;
+    private boolean plain = false;
 
     public abstract void prepareCreate(Object obj) throws Exception;
 
@@ -59,6 +72,19 @@ public abstract class Field extends MLog {
 
     public abstract void setToTarget(DbResult res, Object obj) throws Exception;
 
+    /**
+     * Set the value of the column with the given index to the object. Used by the RowMapper, the
+     * index is resolved once per result set. The default implementation reads by column name.
+     *
+     * @param res
+     * @param columnIndex
+     * @param obj
+     * @throws Exception
+     */
+    public void setToTarget(DbResult res, int columnIndex, Object obj) throws Exception {
+        setToTarget(res, obj);
+    }
+
     public abstract boolean changed(DbResult res, Object obj) throws Exception;
 
     public abstract void fillNameMapping(HashMap<String, Object> nameMapping);
@@ -73,6 +99,125 @@ public abstract class Field extends MLog {
         }
     }
 
+    /**
+     * Resolve the accessors once, called by the table after all fields and features are known.
+     * Attributes of annotated java fields are bound to the field, attributes of annotated getters
+     * to the public getter and setter. Enum constants are cached. If the attribute can't be
+     * resolved the PojoAttribute is used.
+     */
+    protected void bindAccessors() {
+        plain = features.isEmpty() && table.getFeatures().isEmpty();
+        if (attribute == null) return;
+        Class<?> type = attribute.getType();
+        valueType = MethodType.methodType(type).wrap().returnType();
+        if (type.isEnum()) {
+            enumValues = type.getEnumConstants();
+            enumIndex = new HashMap<>();
+            for (int i = 0; i < enumValues.length; i++) enumIndex.put(enumValues[i].toString(), i);
+        }
+        if (dynamicField != null || table.getClazz() == null) return;
+        String attrName = attribute.getName();
+        java.lang.reflect.Field javaField = findAnnotatedField(attrName);
+        if (javaField != null) {
+            if (javaField.getType() != type) return;
+            try {
+                javaField.setAccessible(true);
+                getter =
+                        MethodHandles.lookup()
+                                .unreflectGetter(javaField)
+                                .asType(MethodType.methodType(Object.class, Object.class));
+                if (!Modifier.isFinal(javaField.getModifiers()))
+                    setter =
+                            MethodHandles.lookup()
+                                    .unreflectSetter(javaField)
+                                    .asType(
+                                            MethodType.methodType(
+                                                    void.class, Object.class, Object.class));
+            } catch (Exception e) {
+                log().t("can't bind field", attrName, javaField, e);
+                getter = null;
+                setter = null;
+            }
+            return;
+        }
+        for (Method method : table.getClazz().getMethods()) {
+            try {
+                String mName = method.getName();
+                boolean isGetter =
+                        mName.equalsIgnoreCase("get" + attrName)
+                                || type == boolean.class && mName.equalsIgnoreCase("is" + attrName);
+                if (isGetter && method.getParameterCount() == 0 && method.getReturnType() == type)
+                    getter =
+                            MethodHandles.publicLookup()
+                                    .unreflect(method)
+                                    .asType(MethodType.methodType(Object.class, Object.class));
+                else if (method.getParameterCount() == 1
+                        && method.getParameterTypes()[0] == type
+                        && mName.equalsIgnoreCase("set" + attrName))
+                    setter =
+                            MethodHandles.publicLookup()
+                                    .unreflect(method)
+                                    .asType(
+                                            MethodType.methodType(
+                                                    void.class, Object.class, Object.class));
+            } catch (IllegalAccessException e) {
+                log().t("can't bind accessor", attrName, method, e);
+            }
+        }
+    }
+
+    // the java field of a field based attribute or null if the attribute is method based
+    private java.lang.reflect.Field findAnnotatedField(String attrName) {
+        for (Class<?> c = table.getClazz(); c != null && c != Object.class; c = c.getSuperclass())
+            for (java.lang.reflect.Field f : c.getDeclaredFields())
+                if (f.getName().equalsIgnoreCase(attrName)
+                        && (f.isAnnotationPresent(DbPersistent.class)
+                                || f.isAnnotationPresent(DbPrimaryKey.class))) return f;
+        return null;
+    }
+
+    /**
+     * Return true if the attribute is accessed by bound method handles.
+     *
+     * @return x
+     */
+    public boolean isBound() {
+        return getter != null;
+    }
+
+    private Object getAttribute(Object obj) throws Exception {
+        if (getter == null) return attribute.get(obj);
+        try {
+            return (Object) getter.invokeExact(obj);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new MException(RC.ERROR, "get {1} failed", name, t);
+        }
+    }
+
+    private void setAttribute(Object obj, Object value) throws Exception {
+        // values of other types are converted by the pojo attribute
+        boolean direct =
+                value == null ? !attribute.getType().isPrimitive() : valueType.isInstance(value);
+        if (setter == null || !direct) {
+            attribute.set(obj, value, false);
+            return;
+        }
+        try {
+            setter.invokeExact(obj, value);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new MException(RC.ERROR, "set {1} failed", name, t);
+        }
+    }
+
+    private Object[] getEnumValues() {
+        if (enumValues == null) return attribute.getType().getEnumConstants();
+        return enumValues;
+    }
+
     public void set(Object obj, Object value) throws Exception {
 
         if (attribute.getType().isEnum()) {
@@ -80,10 +225,14 @@ public abstract class Field extends MLog {
             if (value == null) index = MCast.toint(defValue, -1);
             else if (value instanceof Number) index = ((Number) value).intValue();
 
-            Object[] values = attribute.getType().getEnumConstants();
+            Object[] values = getEnumValues();
             if (value instanceof String) {
-                for (int i = 0; i < values.length; i++)
-                    if (values[i].toString().equals(value)) index = i;
+                if (enumIndex != null) {
+                    Integer i = enumIndex.get(value);
+                    if (i != null) index = i;
+                } else
+                    for (int i = 0; i < values.length; i++)
+                        if (values[i].toString().equals(value)) index = i;
                 if (index < 0) index = MCast.toint(value, -1);
             }
 
@@ -94,13 +243,27 @@ public abstract class Field extends MLog {
             value = values[index];
         }
 
-        for (Feature f : table.getFeatures()) value = f.setValue(obj, this, value);
+        if (!plain) {
+            for (Feature f : table.getFeatures()) value = f.setValue(obj, this, value);
 
-        for (AttributeFeature f : features) value = f.set(obj, value);
+            for (AttributeFeature f : features) value = f.set(obj, value);
+        }
 
         if (dynamicField != null && obj instanceof DbDynamic)
             ((DbDynamic) obj).setValue(dynamicField, value);
-        else attribute.set(obj, value, false);
+        else setAttribute(obj, value);
+    }
+
+    /**
+     * Return the value of the object for the row snapshot. The value is detached from the object,
+     * see RowSnapshot.
+     *
+     * @param obj
+     * @return x
+     * @throws Exception
+     */
+    public Object getSnapshotValue(Object obj) throws Exception {
+        return RowSnapshot.toValue(get(obj));
     }
 
     public boolean different(Object obj, Object value) throws Exception {
@@ -110,7 +273,7 @@ public abstract class Field extends MLog {
             if (value == null) index = MCast.toint(defValue, -1);
             else if (value instanceof Number) index = ((Number) value).intValue();
 
-            Object[] values = attribute.getType().getEnumConstants();
+            Object[] values = getEnumValues();
             if (index < 0 || index >= values.length)
                 throw new MException(
                         RC.ERROR, "index {1} not found in enum", attribute.getType().getName());
@@ -121,20 +284,22 @@ public abstract class Field extends MLog {
 
             if (dynamicField != null && obj instanceof DbDynamic)
                 objValue = ((DbDynamic) obj).getValue(dynamicField);
-            else objValue = attribute.get(obj);
+            else objValue = getAttribute(obj);
 
             return !MSystem.equals(String.valueOf(value), String.valueOf(objValue));
         }
 
-        for (Feature f : table.getFeatures()) value = f.setValue(obj, this, value);
+        if (!plain) {
+            for (Feature f : table.getFeatures()) value = f.setValue(obj, this, value);
 
-        for (AttributeFeature f : features) value = f.set(obj, value);
+            for (AttributeFeature f : features) value = f.set(obj, value);
+        }
 
         Object objValue = null;
 
         if (dynamicField != null && obj instanceof DbDynamic)
             objValue = ((DbDynamic) obj).getValue(dynamicField);
-        else objValue = attribute.get(obj);
+        else objValue = getAttribute(obj);
 
         //		for (AttributeFeature f : features)
         //			objValue = f.get(obj, objValue);
@@ -149,7 +314,9 @@ public abstract class Field extends MLog {
         Object val = null;
         if (dynamicField != null && obj instanceof DbDynamic)
             val = ((DbDynamic) obj).getValue(dynamicField);
-        else val = attribute.get(obj);
+        else val = getAttribute(obj);
+
+        if (plain) return val;
 
         for (AttributeFeature f : features) val = f.get(obj, val);
 
@@ -20,6 +20,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.ObjectOutputStream;
 import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.UUID;
@@ -33,6 +34,7 @@ import org.summerclouds.common.core.util.MObjectInputStream;
 import org.summerclouds.common.core.util.MUri;
 import org.summerclouds.common.core.util.Raw;
 import org.summerclouds.common.db.DbDynamic;
+import org.summerclouds.common.db.DbLazy;
 import org.summerclouds.common.db.DbManager;
 import org.summerclouds.common.db.annotations.DbType;
 import org.summerclouds.common.db.sql.DbResult;
@@ -46,6 +48,7 @@ import org.summerclouds.common.db.sql.DbResult;
 public class FieldPersistent extends Field {
 
     private String autoPrefix;
+    private DbType.TYPE type;
 
     /**
      * Constructor for FieldPersistent.
@@ -115,6 +118,12 @@ public class FieldPersistent extends Field {
         description = attr.getExtracted("description");
         hints = MUri.explodeArray(attr.getString("hints", null));
         if (isPrimary) nullable = false;
+        try {
+            type = DbType.TYPE.valueOf(retDbType);
+        } catch (IllegalArgumentException e) {
+            // custom type, can't be mapped to the object
+            type = null;
+        }
 
         super.init(features);
     }
@@ -170,6 +179,7 @@ public class FieldPersistent extends Field {
     @Override
     public Object getFromTarget(Object obj) throws Exception {
         Object out = get(obj);
+        if (out instanceof DbLazy) return new ByteArrayInputStream(((DbLazy<?>) out).toBytes());
         if (retDbType.equals(DbType.TYPE.BLOB.name())) {
             ByteArrayOutputStream os = new ByteArrayOutputStream();
             ObjectOutputStream oos = new ObjectOutputStream(os);
@@ -183,48 +193,91 @@ public class FieldPersistent extends Field {
     /** {@inheritDoc} */
     @Override
     public void setToTarget(DbResult res, Object obj) throws Exception {
+        if (type == null) {
+            log().d("can't set to target ", name, retDbType);
+            return;
+        }
+        setToTarget(res, res.findColumn(name), obj);
+    }
 
-        if (retDbType.equals(DbType.TYPE.INT.name())) set(obj, res.getInt(name));
-        else if (retDbType.equals(DbType.TYPE.LONG.name())) set(obj, res.getLong(name));
-        else if (retDbType.equals(DbType.TYPE.BOOL.name())) set(obj, res.getBoolean(name));
-        else if (retDbType.equals(DbType.TYPE.DATETIME.name())) {
-            try {
-                if (attribute.getType() == Date.class) set(obj, res.getTimestamp(name));
-                else if (attribute.getType() == java.sql.Date.class) {
-                    Timestamp time = res.getTimestamp(name);
-                    set(obj, time == null ? null : new java.sql.Date(time.getTime()));
-                } else set(obj, MDate.toCalendar(res.getTimestamp(name)));
-            } catch (java.sql.SQLException sqle) {
-                // Caused by: java.sql.SQLException: Value '0000-00-00 00:00:00' can not be
-                // represented as java.sql.Timestamp
-                set(obj, null);
-            }
-        } else if (retDbType.equals(DbType.TYPE.DOUBLE.name())) set(obj, res.getDouble(name));
-        else if (retDbType.equals(DbType.TYPE.BIGDECIMAL.name())) set(obj, res.getBigDecimal(name));
-        else if (retDbType.equals(DbType.TYPE.FLOAT.name())) set(obj, res.getFloat(name));
-        else if (retDbType.equals(DbType.TYPE.STRING.name())) set(obj, res.getString(name));
-        else if (retDbType.equals(DbType.TYPE.UUID.name())) {
-            String o = res.getString(name);
-            if (o == null) set(obj, (UUID) null);
-            else
+    /** {@inheritDoc} */
+    @Override
+    public void setToTarget(DbResult res, int columnIndex, Object obj) throws Exception {
+        if (type == null) {
+            log().d("can't set to target ", name, retDbType);
+            return;
+        }
+        switch (type) {
+            case INT:
+                set(obj, res.getInt(columnIndex));
+                break;
+            case LONG:
+                set(obj, res.getLong(columnIndex));
+                break;
+            case BOOL:
+                set(obj, res.getBoolean(columnIndex));
+                break;
+            case DATETIME:
                 try {
-                    set(obj, UUID.fromString(o));
-                } catch (Exception t) {
-                    log().d("uuid", name, o, t);
-                    set(obj, (UUID) null);
+                    Timestamp time = res.getTimestamp(columnIndex);
+                    if (attribute.getType() == Date.class) set(obj, time);
+                    else if (attribute.getType() == java.sql.Date.class)
+                        set(obj, time == null ? null : new java.sql.Date(time.getTime()));
+                    else set(obj, time == null ? null : MDate.toCalendar(time));
+                } catch (java.sql.SQLException sqle) {
+                    // Caused by: java.sql.SQLException: Value '0000-00-00 00:00:00' can not be
+                    // represented as java.sql.Timestamp
+                    set(obj, null);
                 }
-        } else if (retDbType.equals(DbType.TYPE.BLOB.name())) {
-            InputStream st = res.getBinaryStream(name);
-            if (st != null) {
-                @SuppressWarnings("resource")
-                MObjectInputStream ois = new MObjectInputStream(st);
-                ois.setActivator(manager.getActivator());
-                //												ois.setClassLoader(manager.getActivator());
-
-                Object o = ois.readObject();
-                set(obj, o);
-            } else set(obj, null);
-        } else log().d("can't set to target ", name, retDbType);
+                break;
+            case DOUBLE:
+                set(obj, res.getDouble(columnIndex));
+                break;
+            case BIGDECIMAL:
+                set(obj, res.getBigDecimal(columnIndex));
+                break;
+            case FLOAT:
+                set(obj, res.getFloat(columnIndex));
+                break;
+            case STRING:
+                set(obj, res.getString(columnIndex));
+                break;
+            case UUID:
+                String o = res.getString(columnIndex);
+                if (o == null) set(obj, (UUID) null);
+                else
+                    try {
+                        set(obj, UUID.fromString(o));
+                    } catch (Exception t) {
+                        log().d("uuid", name, o, t);
+                        set(obj, (UUID) null);
+                    }
+                break;
+            case BLOB:
+                InputStream st = res.getBinaryStream(columnIndex);
+                if (isLazy()) {
+                    DbLazy<?> lazy = (DbLazy<?>) get(obj);
+                    if (lazy == null) {
+                        lazy = new DbLazy<>();
+                        set(obj, lazy);
+                    }
+                    if (st != null) lazy.setBytes(st.readAllBytes(), manager.getActivator());
+                    else lazy.set(null);
+                } else if (st != null) {
+                    byte[] bytes = st.readAllBytes();
+                    @SuppressWarnings("resource")
+                    MObjectInputStream ois =
+                            new MObjectInputStream(new ByteArrayInputStream(bytes));
+                    ois.setActivator(manager.getActivator());
+                    Object v = ois.readObject();
+                    set(obj, v);
+                    // the snapshot compares the loaded bytes, no need to serialize the value again
+                    RowSnapshot.setLoadedValue(table, obj, this, bytes);
+                } else set(obj, null);
+                break;
+            default:
+                log().d("can't set to target ", name, retDbType);
+        }
     }
 
     /** {@inheritDoc} */
@@ -257,7 +310,12 @@ public class FieldPersistent extends Field {
                 }
         } else if (retDbType.equals(DbType.TYPE.BLOB.name())) {
             InputStream st = res.getBinaryStream(name);
-            if (st != null) {
+            if (isLazy()) {
+                DbLazy<?> lazy = (DbLazy<?>) get(obj);
+                byte[] current = lazy == null ? new DbLazy<>().toBytes() : lazy.toBytes();
+                byte[] stored = st == null ? new DbLazy<>().toBytes() : st.readAllBytes();
+                return !Arrays.equals(current, stored);
+            } else if (st != null) {
                 @SuppressWarnings("resource")
                 MObjectInputStream ois = new MObjectInputStream(st);
                 ois.setClassLoader(manager.getActivator());
@@ -270,6 +328,16 @@ public class FieldPersistent extends Field {
         return false;
     }
 
+    /**
+     * Return true if the attribute is a {@link DbLazy} holder, the value is deserialized on first
+     * access.
+     *
+     * @return true if lazy
+     */
+    public boolean isLazy() {
+        return attribute.getType() == DbLazy.class;
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean isPersistent() {
@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.model;
+
+import java.util.HashMap;
+import java.util.List;
+
+import org.summerclouds.common.db.sql.DbResult;
+
+/**
+ * Column index array for the fields of a table, resolved once per result set. Filling an object
+ * reads the columns by index and avoids the name lookup of the driver for every value.
+ *
+ * @author mikehummel
+ */
+public class RowMapper {
+
+    private final Table table;
+    private final Field[] fields;
+    private final int[] indexes;
+    private final boolean partial;
+
+    RowMapper(Table table, List<Field> fList, DbResult res) throws Exception {
+        this(table, fList, res, false);
+    }
+
+    RowMapper(Table table, List<Field> fList, DbResult res, boolean partial) throws Exception {
+        this.table = table;
+        this.partial = partial;
+        HashMap<String, Integer> columns = new HashMap<>();
+        int index = 1;
+        for (String name : res.getColumnNames()) {
+            columns.putIfAbsent(name.toLowerCase(), index);
+            index++;
+        }
+        fields = fList.toArray(new Field[fList.size()]);
+        indexes = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            Integer nr = columns.get(fields[i].name.toLowerCase());
+            indexes[i] = nr == null ? -1 : nr;
+        }
+    }
+
+    /**
+     * Return the mapper attached to the result or create and attach a new one.
+     *
+     * @param table
+     * @param fList
+     * @param res
+     * @return The mapper for the table and result
+     * @throws Exception
+     */
+    static RowMapper get(Table table, List<Field> fList, DbResult res) throws Exception {
+        Object mapper = res.getRowMapper();
+        if (mapper instanceof RowMapper && ((RowMapper) mapper).table == table)
+            return (RowMapper) mapper;
+        RowMapper ret = new RowMapper(table, fList, res);
+        res.setRowMapper(ret);
+        return ret;
+    }
+
+    /**
+     * True if the mapper fills only a projection of the fields.
+     *
+     * @return x
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    public int size() {
+        return fields.length;
+    }
+
+    public Field getField(int nr) {
+        return fields[nr];
+    }
+
+    /**
+     * Set the value of the field to the object. If the column was not found in the result the
+     * field is read by name.
+     *
+     * @param nr The field number
+     * @param res
+     * @param obj
+     * @throws Exception
+     */
+    public void setToTarget(int nr, DbResult res, Object obj) throws Exception {
+        int index = indexes[nr];
+        if (index < 1) fields[nr].setToTarget(res, obj);
+        else fields[nr].setToTarget(res, index, obj);
+    }
+}
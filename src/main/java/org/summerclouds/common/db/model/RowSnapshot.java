@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.time.temporal.TemporalAccessor;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+import org.summerclouds.common.db.DbLazy;
+import org.summerclouds.common.db.DbSnapshotHolder;
+
+/**
+ * Values of the updatable columns of a row as loaded or last written. Mutable values are copied,
+ * values which can't be copied are never equal and always treated as changed.
+ *
+ * @author mikehummel
+ */
+public class RowSnapshot {
+
+    private static final Object UNKNOWN = new Object();
+
+    private final Table table;
+    private final Object[] values;
+    private final boolean partial;
+
+    RowSnapshot(Table table, Object[] values, boolean partial) {
+        this.table = table;
+        this.values = values;
+        this.partial = partial;
+    }
+
+    Table getTable() {
+        return table;
+    }
+
+    /**
+     * True if the row was loaded with a projection, the values of not loaded columns are unknown.
+     *
+     * @return x
+     */
+    boolean isPartial() {
+        return partial;
+    }
+
+    boolean isChanged(int index, Object current) {
+        Object value = values[index];
+        if (value == UNKNOWN || current == UNKNOWN) return true;
+        return !Objects.deepEquals(value, current);
+    }
+
+    /**
+     * Remember the raw column value of a field while the object is filled. takeSnapshot() uses it
+     * instead of copying the value of the object again, e.g. the bytes of a serialized BLOB.
+     *
+     * @param table
+     * @param obj
+     * @param field
+     * @param value Comparable and detached value, see toValue()
+     */
+    static void setLoadedValue(Table table, Object obj, Field field, Object value) {
+        if (!(obj instanceof DbSnapshotHolder)) return;
+        DbSnapshotHolder holder = (DbSnapshotHolder) obj;
+        Object current = holder.getDbSnapshot();
+        Loading loading;
+        if (current instanceof Loading && ((Loading) current).table == table)
+            loading = (Loading) current;
+        else {
+            loading = new Loading(table);
+            holder.setDbSnapshot(loading);
+        }
+        loading.values.put(field, value);
+    }
+
+    /**
+     * Return the values collected with setLoadedValue() or null.
+     *
+     * @param table
+     * @param obj
+     * @return x
+     */
+    static Map<Field, Object> getLoadedValues(Table table, Object obj) {
+        if (!(obj instanceof DbSnapshotHolder)) return null;
+        Object current = ((DbSnapshotHolder) obj).getDbSnapshot();
+        if (current instanceof Loading && ((Loading) current).table == table)
+            return ((Loading) current).values;
+        return null;
+    }
+
+    /**
+     * Return a comparable and detached copy of the value.
+     *
+     * @param value
+     * @return x
+     */
+    static Object toValue(Object value) {
+        if (value == null
+                || value instanceof String
+                || value instanceof Number
+                || value instanceof Boolean
+                || value instanceof Character
+                || value instanceof Enum
+                || value instanceof UUID
+                || value instanceof TemporalAccessor) return value;
+        if (value instanceof Date) return ((Date) value).getTime();
+        if (value instanceof Calendar) return ((Calendar) value).getTimeInMillis();
+        if (value instanceof byte[]) return ((byte[]) value).clone();
+        if (value instanceof DbLazy) {
+            try {
+                return ((DbLazy<?>) value).toBytes();
+            } catch (Exception e) {
+                return UNKNOWN;
+            }
+        }
+        if (value instanceof Serializable) {
+            try {
+                ByteArrayOutputStream os = new ByteArrayOutputStream();
+                ObjectOutputStream oos = new ObjectOutputStream(os);
+                oos.writeObject(value);
+                oos.close();
+                return os.toByteArray();
+            } catch (Exception e) {
+                return UNKNOWN;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    // placeholder in the holder until the snapshot is taken
+    private static class Loading {
+        private final Table table;
+        private final HashMap<Field, Object> values = new HashMap<>();
+
+        private Loading(Table table) {
+            this.table = table;
+        }
+    }
+}
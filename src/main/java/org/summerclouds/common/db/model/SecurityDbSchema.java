@@ -26,7 +26,7 @@ import org.summerclouds.common.db.DbManager;
 import org.summerclouds.common.db.DbPermissionManager;
 import org.summerclouds.common.db.DbSchema;
 import org.summerclouds.common.db.sql.DbConnection;
-import org.summerclouds.common.db.transaction.MemoryLockStrategy;
+import org.summerclouds.common.db.transaction.StripedMemoryLockStrategy;
 
 public abstract class SecurityDbSchema extends DbSchema implements DbPermissionManager {
 
@@ -36,8 +36,8 @@ public abstract class SecurityDbSchema extends DbSchema implements DbPermissionM
     public SecurityDbSchema(INode config) {
         setConfig(config);
         if (trace) log().i("start");
-        lockStrategy = new MemoryLockStrategy();
-        ((MemoryLockStrategy) lockStrategy)
+        lockStrategy = new StripedMemoryLockStrategy();
+        ((StripedMemoryLockStrategy) lockStrategy)
                 .setMaxLockAge(
                         getConfig().getLong("maxLockAge", MPeriod.MINUTE_IN_MILLISECONDS * 5));
     }
@@ -15,16 +15,30 @@
  */
 package org.summerclouds.common.db.model;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Statement;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 import java.util.UUID;
 
+import org.summerclouds.common.core.activator.Activator;
+import org.summerclouds.common.core.cfg.CfgBoolean;
+import org.summerclouds.common.core.cfg.CfgInt;
 import org.summerclouds.common.core.error.MException;
 import org.summerclouds.common.core.error.NotFoundException;
 import org.summerclouds.common.core.error.RC;
@@ -32,12 +46,17 @@ import org.summerclouds.common.core.log.MLog;
 import org.summerclouds.common.core.node.INode;
 import org.summerclouds.common.core.node.MNode;
 import org.summerclouds.common.core.node.NodeList;
+import org.summerclouds.common.core.tool.MPeriod;
+import org.summerclouds.common.core.tool.MSpring;
 import org.summerclouds.common.core.tool.MString;
 import org.summerclouds.common.core.tool.MSystem;
 import org.summerclouds.common.core.util.MUri;
 import org.summerclouds.common.core.util.Raw;
 import org.summerclouds.common.db.DbManager;
+import org.summerclouds.common.db.DbObject;
 import org.summerclouds.common.db.DbSchema;
+import org.summerclouds.common.db.DbSnapshotHolder;
+import org.summerclouds.common.db.DbTransaction;
 import org.summerclouds.common.db.annotations.DbIndex;
 import org.summerclouds.common.db.annotations.DbPersistent;
 import org.summerclouds.common.db.annotations.DbPrimaryKey;
@@ -47,7 +66,10 @@ import org.summerclouds.common.db.annotations.DbIndex.TYPE;
 import org.summerclouds.common.db.sql.DbConnection;
 import org.summerclouds.common.db.sql.DbPrepared;
 import org.summerclouds.common.db.sql.DbResult;
+import org.summerclouds.common.db.sql.DbStatement;
 import org.summerclouds.common.db.sql.Dialect;
+import org.summerclouds.common.db.sql.QueryCache;
+import org.summerclouds.common.db.sql.StructureSnapshot;
 
 /**
  * Abstract Table class.
@@ -57,6 +79,11 @@ import org.summerclouds.common.db.sql.Dialect;
  */
 public abstract class Table extends MLog {
 
+    private static final CfgBoolean CFG_PARTIAL_UPDATE =
+            new CfgBoolean(Table.class, "partialUpdate", true);
+    private static final CfgInt CFG_PARTIAL_UPDATE_CACHE_SIZE =
+            new CfgInt(Table.class, "partialUpdateCacheSize", 64);
+
     protected Class<?> clazz;
     protected String registryName;
     protected DbManager manager;
@@ -71,12 +98,19 @@ public abstract class Table extends MLog {
     private HashMap<String, IndexStruc> iIdx = new HashMap<String, IndexStruc>();
     protected LinkedList<Field> pk = new LinkedList<Field>();
     private DbPrepared sqlPrimary;
+    private DbPrepared sqlExists;
     private DbPrepared sqlInsert;
     private DbPrepared sqlUpdate;
     private DbPrepared sqlUpdateForce;
     private DbPrepared sqlDelete;
+    private Field[] updateFields;
+    private QueryCache<String, DbPrepared> partialUpdates =
+            new QueryCache<>(CFG_PARTIAL_UPDATE_CACHE_SIZE.value());
     private LinkedList<Feature> features = new LinkedList<Feature>();
     protected INode attributes;
+    protected TableCache cache;
+    private Constructor<?> constructor;
+    private String fingerprint;
 
     /**
      * init.
@@ -92,6 +126,79 @@ public abstract class Table extends MLog {
         this.clazz = clazz;
         this.registryName = registryName;
         this.tableName = tableName;
+        this.constructor = findConstructor();
+    }
+
+    /**
+     * Resolve the entity class through the default activator once and cache its no-arg
+     * constructor. The class is loaded only, no object is created while the schema is loaded.
+     * Only used if the schema does not overwrite the object factory and the manager uses the
+     * default activator, otherwise the schema is responsible to create the objects.
+     *
+     * @return The constructor or null
+     */
+    private Constructor<?> findConstructor() {
+        if (clazz == null
+                || clazz.isInterface()
+                || Modifier.isAbstract(clazz.getModifiers())
+                || (clazz.getEnclosingClass() != null
+                        && !Modifier.isStatic(clazz.getModifiers()))) return null;
+        try {
+            Class<?> factory =
+                    schema.getClass()
+                            .getMethod(
+                                    "createObject",
+                                    Class.class,
+                                    String.class,
+                                    DbResult.class,
+                                    DbManager.class,
+                                    boolean.class)
+                            .getDeclaringClass();
+            if (factory != DbSchema.class) return null;
+            // a custom activator could create other objects, leave it to the schema
+            Activator activator = manager.getActivator();
+            if (activator == null || activator != MSpring.getDefaultActivator()) return null;
+            Class<?> resolved = activator.loadClass(clazz.getName());
+            if (resolved == null
+                    || !clazz.isAssignableFrom(resolved)
+                    || Modifier.isAbstract(resolved.getModifiers())) return null;
+            Constructor<?> c = resolved.getDeclaredConstructor();
+            if (!Modifier.isPublic(c.getModifiers())
+                    || !Modifier.isPublic(resolved.getModifiers())) c.setAccessible(true);
+            return c;
+        } catch (Exception e) {
+            log().d("use schema to create objects", registryName, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Return the class of the objects created by newObject() or null if the schema creates the
+     * objects.
+     *
+     * @return x
+     */
+    public Class<?> getObjectClass() {
+        return constructor == null ? null : constructor.getDeclaringClass();
+    }
+
+    /**
+     * Create a new instance of the entity. The constructor is resolved once while init. If not
+     * possible the schema object factory is used.
+     *
+     * @param ret The current row or null
+     * @param isPersistent
+     * @return The new object
+     * @throws Exception
+     */
+    public Object newObject(DbResult ret, boolean isPersistent) throws Exception {
+        if (constructor == null)
+            return schema.createObject(clazz, registryName, ret, manager, isPersistent);
+        Object object = constructor.newInstance();
+        if (object instanceof DbObject) {
+            ((DbObject) object).doInit(manager, registryName, isPersistent);
+        }
+        return object;
     }
 
     /**
@@ -102,6 +209,23 @@ public abstract class Table extends MLog {
      * @throws java.lang.Exception if any.
      */
     public void initDatabase(DbConnection con, boolean cleanup) throws Exception {
+        initDatabase(con, cleanup, null, null);
+    }
+
+    /**
+     * Initialize the table and create or update the table structure. The snapshot is used to find
+     * existing tables and columns. If the fingerprint of the structure definition is equal to the
+     * known fingerprint the database structure is not compared again.
+     *
+     * @param con
+     * @param cleanup
+     * @param snapshot The preloaded database structure or null
+     * @param knownFingerprint The fingerprint of the last reconciled structure or null
+     * @throws Exception
+     */
+    public void initDatabase(
+            DbConnection con, boolean cleanup, StructureSnapshot snapshot, String knownFingerprint)
+            throws Exception {
 
         DbEntity table = MSystem.findAnnotation(clazz, DbEntity.class);
         if (tableName != null) {
@@ -118,6 +242,14 @@ public abstract class Table extends MLog {
             attributes = new MNode();
         }
 
+        if (table != null && table.cacheSize() > 0) {
+            cache =
+                    new TableCache(
+                            table.cacheSize(),
+                            MPeriod.toMilliseconds(
+                                    table.cacheTtl(), MPeriod.MINUTE_IN_MILLISECONDS * 10));
+        }
+
         tableNameOrg = schema.getTableName(name);
         tableName = manager.getPool().getDialect().normalizeTableName(tableNameOrg);
 
@@ -133,7 +265,7 @@ public abstract class Table extends MLog {
             }
         }
 
-        createTable(con, cleanup);
+        createTable(con, cleanup, snapshot, knownFingerprint);
         postInit();
     }
 
@@ -243,6 +375,8 @@ public abstract class Table extends MLog {
         schema.internalCreateObject(con, name, object, attributes);
 
         sqlInsert.getStatement(con).execute(attributes);
+        invalidateCache(con, object);
+        takeSnapshot(object, false);
 
         for (Feature f : features) f.postCreateObject(con, object);
 
@@ -251,6 +385,49 @@ public abstract class Table extends MLog {
         }
     }
 
+    /**
+     * Create a list of objects. The feature hooks are called for every object, the inserts are
+     * executed as jdbc batch.
+     *
+     * @param con
+     * @param objects
+     * @param batchSize Maximum rows per batch
+     * @throws Exception
+     */
+    public void createObjects(DbConnection con, List<?> objects, int batchSize) throws Exception {
+
+        LinkedList<Map<String, Object>> rows = new LinkedList<>();
+        for (Object object : objects) {
+            for (Feature f : features) f.preCreateObject(con, object);
+
+            HashMap<String, Object> attributes = new HashMap<String, Object>();
+            for (Field f : fList) {
+                attributes.put(f.name, f.getFromTarget(object));
+            }
+
+            schema.internalCreateObject(con, name, object, attributes);
+            rows.add(attributes);
+        }
+
+        DbStatement sth = sqlInsert.getStatement(con);
+        try {
+            sth.executeBatch(rows, batchSize);
+        } finally {
+            sth.close();
+        }
+
+        for (Object object : objects) {
+            invalidateCache(con, object);
+            takeSnapshot(object, false);
+
+            for (Feature f : features) f.postCreateObject(con, object);
+
+            for (FieldRelation f : relationList) {
+                f.created(con, object);
+            }
+        }
+    }
+
     /**
      * saveObject.
      *
@@ -271,11 +448,32 @@ public abstract class Table extends MLog {
             f.prepareSave(con, object);
         }
 
+        List<Field> dirty =
+                CFG_PARTIAL_UPDATE.value() || isPartial(object) ? getChangedFields(object) : null;
+        HashMap<String, Object> before = dirty == null ? null : new HashMap<>(attributes);
+
         schema.internalSaveObject(con, name, object, attributes);
 
-        int c = sqlUpdate.getStatement(con).executeUpdate(attributes);
-        if (c != 1)
-            throw new MException(RC.ERROR, "update {2} failed, updated objects {1}", c, object);
+        DbPrepared update = sqlUpdate;
+        if (dirty != null) {
+            // values set by the schema hook are written too
+            addHookChanges(dirty, before, attributes);
+            if (dirty.size() < updateFields.length) update = getPartialUpdate(dirty);
+        }
+        if (dirty != null && dirty.isEmpty()) {
+            // nothing to write, but the row must still exist
+            DbResult res = sqlExists.getStatement(con).executeQuery(attributes);
+            boolean exists = res.next();
+            res.close();
+            if (!exists) throw new MException(RC.ERROR, "update {1} failed, not found", object);
+        } else {
+            int c = update.getStatement(con).executeUpdate(attributes);
+            invalidateCache(con, object);
+            if (c != 1)
+                throw new MException(
+                        RC.ERROR, "update {2} failed, updated objects {1}", c, object);
+            takeSnapshot(object);
+        }
 
         for (Feature f : features) f.postSaveObject(con, object);
 
@@ -284,6 +482,102 @@ public abstract class Table extends MLog {
         }
     }
 
+    /**
+     * Update a list of objects. The feature hooks are called for every object, the updates are
+     * executed as jdbc batch. Like saveObject only the changed columns are written, the rows are
+     * grouped by the set of changed columns and every group is executed as own batch. Unchanged
+     * objects are not written, only the existence of the row is checked.
+     *
+     * @param con
+     * @param objects
+     * @param batchSize Maximum rows per batch
+     * @throws Exception
+     */
+    public void saveObjects(DbConnection con, List<?> objects, int batchSize) throws Exception {
+
+        LinkedHashMap<DbPrepared, List<Object>> groups = new LinkedHashMap<>();
+        LinkedHashMap<DbPrepared, List<Map<String, Object>>> rows = new LinkedHashMap<>();
+        LinkedList<Object> unchanged = new LinkedList<>();
+        for (Object object : objects) {
+            for (Feature f : features) f.preSaveObject(con, object);
+
+            HashMap<String, Object> attributes = new HashMap<String, Object>();
+            for (Field f : fList) {
+                attributes.put(f.name, f.getFromTarget(object));
+            }
+
+            for (FieldRelation f : relationList) {
+                f.prepareSave(con, object);
+            }
+
+            List<Field> dirty =
+                    CFG_PARTIAL_UPDATE.value() || isPartial(object)
+                            ? getChangedFields(object)
+                            : null;
+            HashMap<String, Object> before = dirty == null ? null : new HashMap<>(attributes);
+
+            schema.internalSaveObject(con, name, object, attributes);
+
+            DbPrepared update = sqlUpdate;
+            if (dirty != null) {
+                addHookChanges(dirty, before, attributes);
+                if (dirty.isEmpty()) update = sqlExists;
+                else if (dirty.size() < updateFields.length) update = getPartialUpdate(dirty);
+            }
+            groups.computeIfAbsent(update, k -> new LinkedList<>()).add(object);
+            rows.computeIfAbsent(update, k -> new LinkedList<>()).add(attributes);
+        }
+
+        // nothing to write, but the rows must still exist
+        List<Map<String, Object>> exists = rows.remove(sqlExists);
+        if (exists != null) {
+            Iterator<Object> objIter = groups.remove(sqlExists).iterator();
+            for (Map<String, Object> attributes : exists) {
+                Object object = objIter.next();
+                DbResult res = sqlExists.getStatement(con).executeQuery(attributes);
+                boolean found = res.next();
+                res.close();
+                if (!found) throw new MException(RC.ERROR, "update {1} failed, not found", object);
+                unchanged.add(object);
+            }
+        }
+
+        LinkedHashMap<DbPrepared, int[]> counts = new LinkedHashMap<>();
+        for (Map.Entry<DbPrepared, List<Map<String, Object>>> entry : rows.entrySet()) {
+            DbStatement sth = entry.getKey().getStatement(con);
+            try {
+                counts.put(entry.getKey(), sth.executeBatch(entry.getValue(), batchSize));
+            } finally {
+                sth.close();
+            }
+        }
+
+        for (Map.Entry<DbPrepared, List<Object>> entry : groups.entrySet()) {
+            int[] groupCounts = counts.get(entry.getKey());
+            int nr = 0;
+            for (Object object : entry.getValue()) {
+                invalidateCache(con, object);
+                int c = groupCounts[nr];
+                nr++;
+                // some drivers do not report the count of batched rows
+                if (c != 1 && c != Statement.SUCCESS_NO_INFO)
+                    throw new MException(
+                            RC.ERROR, "update {2} failed, updated objects {1}", c, object);
+                takeSnapshot(object);
+                postSaveObject(con, object);
+            }
+        }
+        for (Object object : unchanged) postSaveObject(con, object);
+    }
+
+    private void postSaveObject(DbConnection con, Object object) throws Exception {
+        for (Feature f : features) f.postSaveObject(con, object);
+
+        for (FieldRelation f : relationList) {
+            f.saved(con, object);
+        }
+    }
+
     /**
      * saveObjectForce.
      *
@@ -295,6 +589,8 @@ public abstract class Table extends MLog {
     public void saveObjectForce(DbConnection con, Object object, boolean raw) throws Exception {
 
         manager.getSchema().authorizeSaveForceAllowed(con, this, object, raw);
+        if (isPartial(object))
+            throw new MException(RC.USAGE, "object is partially loaded", registryName, object);
 
         if (!raw) for (Feature f : features) f.preSaveObject(con, object);
 
@@ -310,8 +606,10 @@ public abstract class Table extends MLog {
         schema.internalSaveObject(con, name, object, attributes);
 
         int c = sqlUpdateForce.getStatement(con).executeUpdate(attributes);
+        invalidateCache(con, object);
         if (c != 1)
             throw new MException(RC.ERROR, "update {2} failed, updated objects {1}", c, object);
+        takeSnapshot(object);
 
         if (!raw) for (Feature f : features) f.postSaveObject(con, object);
 
@@ -381,6 +679,7 @@ public abstract class Table extends MLog {
         schema.internalSaveObject(con, name, object, attributes);
 
         int c = query.getStatement(con).executeUpdate(attributes);
+        invalidateCache(con, object);
         if (c != 1)
             throw new MException(
                     RC.STATUS.ERROR, "update {2} failed, updated objects {1}", c, object);
@@ -401,6 +700,8 @@ public abstract class Table extends MLog {
      */
     protected void postInit() throws MException {
 
+        for (Field f : fList) f.bindAccessors();
+
         Collections.sort(
                 pk,
                 new Comparator<Field>() {
@@ -421,6 +722,14 @@ public abstract class Table extends MLog {
 
         sqlPrimary = manager.getPool().createStatement(sql);
 
+        sql = "SELECT 1 FROM " + tableName + " WHERE ";
+        nr = 0;
+        for (Field f : pk) {
+            sql += (nr > 0 ? " AND " : "") + f.name + "=$" + f.name + "$";
+            nr++;
+        }
+        sqlExists = manager.getPool().createStatement(sql);
+
         // ------
 
         sql = "INSERT INTO " + tableName + " (";
@@ -449,13 +758,17 @@ public abstract class Table extends MLog {
 
         sql = "UPDATE " + tableName + " SET ";
         nr = 0;
+        LinkedList<Field> updates = new LinkedList<>();
         for (Field f : fList) {
             if (!f.isPrimary && f.isPersistent() && !f.isReadOnly()) {
                 if (nr > 0) sql += ",";
                 sql += f.name + "=$" + f.name + "$";
                 nr++;
+                updates.add(f);
             }
         }
+        updateFields = updates.toArray(new Field[updates.size()]);
+        partialUpdates.clear();
         sql += " WHERE ";
         nr = 0;
         for (Field f : pk) {
@@ -506,27 +819,55 @@ public abstract class Table extends MLog {
      * @throws java.lang.Exception if any.
      */
     public Object getObject(DbConnection con, Object[] keys) throws Exception {
+        return getObject(con, keys, false);
+    }
 
-        HashMap<String, Object> attributes = new HashMap<String, Object>();
-        int nr = 0;
-        for (Object key : keys) {
-            attributes.put(String.valueOf(nr), key);
-            nr++;
-        }
-        DbResult ret = sqlPrimary.getStatement(con).executeQuery(attributes);
-        if (!ret.next()) {
-            ret.close();
-            return null;
+    /**
+     * Load the object by primary key. The primary key cache is only used if the connection is
+     * owned by the caller of this method and reads committed data, e.g. a new connection outside
+     * of a transaction.
+     *
+     * @param con The connection
+     * @param keys Primary key values
+     * @param cacheable true if the cache can be used
+     * @return The object or null
+     * @throws Exception
+     */
+    public Object getObject(DbConnection con, Object[] keys, boolean cacheable) throws Exception {
+
+        boolean useCache = cacheable && cache != null;
+        DbResult ret = useCache ? cache.get(keys) : null;
+        if (ret == null) {
+            long version = useCache ? cache.getVersion(keys) : 0;
+            HashMap<String, Object> attributes = new HashMap<String, Object>();
+            int nr = 0;
+            for (Object key : keys) {
+                attributes.put(String.valueOf(nr), key);
+                nr++;
+            }
+            ret = sqlPrimary.getStatement(con).executeQuery(attributes);
+            if (!ret.next()) {
+                ret.close();
+                return null;
+            }
+            if (useCache) {
+                DbResult row = cache.put(keys, ret, version);
+                ret.close();
+                ret = row;
+            }
         }
 
         for (Feature f : features) f.preGetObject(con, ret);
 
-        Object obj = schema.createObject(clazz, registryName, ret, manager, true);
+        Object obj = newObject(ret, true);
 
         // fill object
-        for (Field f : fList) {
-            f.setToTarget(ret, obj);
+        RowMapper mapper = RowMapper.get(this, fList, ret);
+        for (int i = 0; i < mapper.size(); i++) {
+            mapper.setToTarget(i, ret, obj);
         }
+        ret.close();
+        takeSnapshot(obj, false);
 
         for (Feature f : features) f.postGetObject(con, obj);
 
@@ -537,6 +878,49 @@ public abstract class Table extends MLog {
         return obj;
     }
 
+    /**
+     * Remove the object from the primary key cache. Inside of a transaction the object is removed
+     * again after the transaction is finished. The manager calls this method again after it
+     * committed its own connection.
+     *
+     * @param object
+     * @throws Exception
+     */
+    public void invalidateCache(Object object) throws Exception {
+        invalidateCache(null, object);
+    }
+
+    /**
+     * Remove the object from the primary key cache and again after the connection is committed or
+     * rolled back. Another thread could cache the old row until the change is committed.
+     *
+     * @param con The connection used to change the object or null
+     * @param object
+     * @throws Exception
+     */
+    public void invalidateCache(DbConnection con, Object object) throws Exception {
+        if (cache == null) return;
+        Object[] keys = new Object[pk.size()];
+        int nr = 0;
+        for (Field f : pk) {
+            keys[nr] = f.getFromTarget(object);
+            nr++;
+        }
+        cache.remove(keys);
+        if (con != null) con.afterCompletion(() -> cache.remove(keys));
+        if (DbTransaction.isInTransaction(manager.getPool()))
+            DbTransaction.afterCompletion(() -> cache.remove(keys));
+    }
+
+    /**
+     * Return the primary key cache or null if caching is not enabled for this table.
+     *
+     * @return x
+     */
+    public TableCache getCache() {
+        return cache;
+    }
+
     /**
      * existsObject.
      *
@@ -586,13 +970,16 @@ public abstract class Table extends MLog {
 
         for (Feature f : features) f.preFillObject(obj, con, res);
 
-        for (Field f : fList) {
+        RowMapper mapper = RowMapper.get(this, fList, res);
+        for (int i = 0; i < mapper.size(); i++) {
             try {
-                f.setToTarget(res, obj);
+                mapper.setToTarget(i, res, obj);
             } catch (Exception t) {
-                manager.getSchema().onFillObjectException(Table.this, obj, res, f, t);
+                manager.getSchema()
+                        .onFillObjectException(Table.this, obj, res, mapper.getField(i), t);
             }
         }
+        takeSnapshot(obj, mapper.isPartial());
 
         for (Feature f : features) f.postFillObject(obj, con);
 
@@ -627,14 +1014,17 @@ public abstract class Table extends MLog {
         for (Feature f : features) f.preFillObject(obj, con, ret);
 
         // fill object
-        for (Field f : fList) {
+        RowMapper mapper = RowMapper.get(this, fList, ret);
+        for (int i = 0; i < mapper.size(); i++) {
             try {
-                f.setToTarget(ret, obj);
+                mapper.setToTarget(i, ret, obj);
             } catch (Exception t) {
-                manager.getSchema().onFillObjectException(Table.this, obj, ret, f, t);
+                manager.getSchema()
+                        .onFillObjectException(Table.this, obj, ret, mapper.getField(i), t);
             }
         }
         ret.close();
+        takeSnapshot(obj, false);
 
         for (Feature f : features) f.postFillObject(obj, con);
 
@@ -661,6 +1051,18 @@ public abstract class Table extends MLog {
             if (field.isChanged(obj)) return true;
         }
 
+        // compare in memory if the loaded values are known
+        List<Field> dirty = getChangedFields(obj);
+        if (dirty != null) {
+            for (Field f : dirty) {
+                if (!f.isTechnical()) {
+                    log().d("changed field", getName(), f, f.getName());
+                    return true;
+                }
+            }
+            return false;
+        }
+
         HashMap<String, Object> attributes = new HashMap<String, Object>();
         int nr = 0;
         for (Object key : keys) {
@@ -689,6 +1091,155 @@ public abstract class Table extends MLog {
         return false;
     }
 
+    /**
+     * Store the current values of the updatable columns in the object if it's a DbSnapshotHolder.
+     * Called after the object is loaded or written.
+     *
+     * @param obj
+     * @throws Exception
+     */
+    protected void takeSnapshot(Object obj) throws Exception {
+        takeSnapshot(obj, isPartial(obj));
+    }
+
+    /**
+     * Store the current values of the updatable columns.
+     *
+     * @param obj
+     * @param partial true if not all columns are loaded
+     * @throws Exception
+     */
+    protected void takeSnapshot(Object obj, boolean partial) throws Exception {
+        if (!(obj instanceof DbSnapshotHolder) || updateFields == null) return;
+        // raw column values collected while the object was filled
+        Map<Field, Object> loaded = RowSnapshot.getLoadedValues(this, obj);
+        Object[] values = new Object[updateFields.length];
+        for (int i = 0; i < values.length; i++) {
+            Field f = updateFields[i];
+            values[i] =
+                    loaded != null && loaded.containsKey(f)
+                            ? loaded.get(f)
+                            : f.getSnapshotValue(obj);
+        }
+        ((DbSnapshotHolder) obj).setDbSnapshot(new RowSnapshot(this, values, partial));
+    }
+
+    /**
+     * Return true if the object was loaded with a projection and not all columns are filled. Only
+     * the changed columns of partial objects are updated.
+     *
+     * @param obj
+     * @return x
+     */
+    public boolean isPartial(Object obj) {
+        if (!(obj instanceof DbSnapshotHolder)) return false;
+        Object snapshot = ((DbSnapshotHolder) obj).getDbSnapshot();
+        return snapshot instanceof RowSnapshot
+                && ((RowSnapshot) snapshot).getTable() == this
+                && ((RowSnapshot) snapshot).isPartial();
+    }
+
+    /**
+     * Return the fields of a projection. The primary keys are always part of the projection.
+     *
+     * @param attributes Names of the attributes to load
+     * @return The fields to select
+     * @throws MException if an attribute is not a persistent field
+     */
+    public List<Field> getProjection(String... attributes) throws MException {
+        LinkedList<Field> out = new LinkedList<>(pk);
+        for (String attribute : attributes) {
+            Field field = null;
+            for (Field f : fList)
+                if (f.getName().equalsIgnoreCase(attribute)
+                        || f.createName.equalsIgnoreCase(attribute)) field = f;
+            if (field == null || !field.isPersistent())
+                throw new MException(
+                        RC.USAGE, "attribute {1} not found in {2}", attribute, registryName);
+            if (!out.contains(field)) out.add(field);
+        }
+        return out;
+    }
+
+    /**
+     * Attach the projection to the result. The objects filled from the result contain only the
+     * values of the projected fields and are marked as partial.
+     *
+     * @param res
+     * @param fields The projected fields, see getProjection
+     * @throws Exception
+     */
+    public void setProjection(DbResult res, List<Field> fields) throws Exception {
+        res.setRowMapper(new RowMapper(this, fields, res, fields.size() < fList.size()));
+    }
+
+    /**
+     * Return the updatable fields changed since the last snapshot or null if the object has no
+     * snapshot of this table.
+     *
+     * @param obj
+     * @return x
+     * @throws Exception
+     */
+    public List<Field> getChangedFields(Object obj) throws Exception {
+        if (!(obj instanceof DbSnapshotHolder)) return null;
+        Object snapshot = ((DbSnapshotHolder) obj).getDbSnapshot();
+        if (!(snapshot instanceof RowSnapshot) || ((RowSnapshot) snapshot).getTable() != this)
+            return null;
+        LinkedList<Field> out = new LinkedList<>();
+        for (int i = 0; i < updateFields.length; i++)
+            if (((RowSnapshot) snapshot).isChanged(i, updateFields[i].getSnapshotValue(obj)))
+                out.add(updateFields[i]);
+        return out;
+    }
+
+    // add the updatable fields whose attribute value was replaced by the schema hook
+    private void addHookChanges(
+            List<Field> dirty, Map<String, Object> before, Map<String, Object> after) {
+        boolean changed = false;
+        for (Field f : updateFields)
+            if (before.get(f.name) != after.get(f.name) && !dirty.contains(f)) {
+                dirty.add(f);
+                changed = true;
+            }
+        if (!changed) return;
+        // keep the order of updateFields, it's the key of the statement cache
+        List<Field> order = Arrays.asList(updateFields);
+        dirty.sort(Comparator.comparingInt(order::indexOf));
+    }
+
+    /**
+     * Return the cached update statement for the set of columns.
+     *
+     * @param dirty The fields to update in the order of updateFields
+     * @return x
+     * @throws MException
+     */
+    protected DbPrepared getPartialUpdate(List<Field> dirty) throws MException {
+        StringBuilder key = new StringBuilder();
+        for (Field f : dirty) key.append(f.name).append(',');
+        return partialUpdates.get(
+                key.toString(),
+                k -> {
+                    StringBuilder sql =
+                            new StringBuilder("UPDATE ").append(tableName).append(" SET ");
+                    int nr = 0;
+                    for (Field f : dirty) {
+                        if (nr > 0) sql.append(",");
+                        sql.append(f.name).append("=$").append(f.name).append("$");
+                        nr++;
+                    }
+                    sql.append(" WHERE ");
+                    nr = 0;
+                    for (Field f : pk) {
+                        if (nr > 0) sql.append(" AND ");
+                        sql.append(f.name).append("=$").append(f.name).append("$");
+                        nr++;
+                    }
+                    return manager.getPool().createStatement(sql.toString());
+                });
+    }
+
     /**
      * Create the dables in the database.
      *
@@ -697,7 +1248,17 @@ public abstract class Table extends MLog {
      * @throws java.lang.Exception if any.
      */
     public void createTable(DbConnection con, boolean cleanup) throws Exception {
+        createTable(con, cleanup, null, null);
+    }
+
+    protected void createTable(
+            DbConnection con,
+            boolean cleanup,
+            StructureSnapshot snapshot,
+            String knownFingerprint)
+            throws Exception {
 
+        Dialect dialect = manager.getPool().getDialect();
         INode cstr = new MNode();
         INode ctable = cstr.createObject("table");
         ctable.setProperty("name", tableNameOrg);
@@ -748,9 +1309,80 @@ public abstract class Table extends MLog {
             cindex.setString(Dialect.I_FIELDS, fields.toString());
         }
 
-        manager.getPool()
-                .getDialect()
-                .createStructure(cstr, con, manager.getCaoMetadata(), cleanup);
+        fingerprint = toFingerprint(dialect.getClass().getName() + '|' + toCanonical(cstr));
+        // a dropped table must be created again even if the definition is not changed
+        if (!cleanup
+                && fingerprint.equals(knownFingerprint)
+                && (snapshot == null
+                        ? dialect.existsTable(con, tableName)
+                        : snapshot.hasTable(tableName))) {
+            log().d("structure not changed", tableNameOrg);
+            return;
+        }
+
+        dialect.createStructure(cstr, con, manager.getCaoMetadata(), cleanup, snapshot);
+    }
+
+    /**
+     * Serialize the generated structure definition in a stable form. Properties are sorted by
+     * key, the order of the fields is kept and the indexes are sorted.
+     *
+     * @param cstr The structure definition
+     * @return The canonical form
+     */
+    private static String toCanonical(INode cstr) {
+        StringBuilder out = new StringBuilder();
+        for (INode ctable : cstr.getObjectList("table")) {
+            out.append("table");
+            appendProperties(out, ctable, "field");
+            for (INode cfield : ctable.getObjectList("field")) {
+                out.append("field");
+                appendProperties(out, cfield);
+            }
+        }
+        TreeSet<String> indexes = new TreeSet<>();
+        for (INode cindex : cstr.getObjectList("index")) {
+            StringBuilder index = new StringBuilder("index");
+            appendProperties(index, cindex);
+            indexes.add(index.toString());
+        }
+        for (String index : indexes) out.append(index);
+        return out.toString();
+    }
+
+    private static void appendProperties(StringBuilder out, INode node, String... children) {
+        TreeSet<String> keys = new TreeSet<>();
+        for (String key : node.getPropertyKeys()) keys.add(key);
+        for (String child : children) keys.remove(child);
+        out.append('{');
+        for (String key : keys) {
+            String value = node.getString(key, null);
+            // length prefix, the values could contain any separator
+            out.append(key)
+                    .append('=')
+                    .append(value == null ? -1 : value.length())
+                    .append(':')
+                    .append(value == null ? "" : value)
+                    .append(';');
+        }
+        out.append('}');
+    }
+
+    private static String toFingerprint(String definition) throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[] digest = md.digest(definition.getBytes(StandardCharsets.UTF_8));
+        StringBuilder out = new StringBuilder();
+        for (byte b : digest) out.append(String.format("%02x", b));
+        return out.toString();
+    }
+
+    /**
+     * Return the fingerprint of the structure definition used by the last createTable.
+     *
+     * @return The fingerprint or null if the table is not created
+     */
+    public String getFingerprint() {
+        return fingerprint;
     }
 
     /**
@@ -772,6 +1404,40 @@ public abstract class Table extends MLog {
         schema.internalDeleteObject(con, name, object, attributes);
 
         sqlDelete.getStatement(con).execute(attributes);
+        invalidateCache(con, object);
+    }
+
+    /**
+     * Delete a list of objects. The deletes are executed as jdbc batch.
+     *
+     * @param con
+     * @param objects
+     * @param batchSize Maximum rows per batch
+     * @throws Exception
+     */
+    public void deleteObjects(DbConnection con, List<?> objects, int batchSize) throws Exception {
+
+        LinkedList<Map<String, Object>> rows = new LinkedList<>();
+        for (Object object : objects) {
+            for (Feature f : features) f.deleteObject(con, object);
+
+            HashMap<String, Object> attributes = new HashMap<String, Object>();
+            for (Field f : pk) {
+                attributes.put(f.name, f.getFromTarget(object));
+            }
+
+            schema.internalDeleteObject(con, name, object, attributes);
+            rows.add(attributes);
+        }
+
+        DbStatement sth = sqlDelete.getStatement(con);
+        try {
+            sth.executeBatch(rows, batchSize);
+        } finally {
+            sth.close();
+        }
+
+        for (Object object : objects) invalidateCache(con, object);
     }
 
     /**
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.summerclouds.common.core.log.MLog;
+import org.summerclouds.common.db.sql.DbResult;
+import org.summerclouds.common.db.sql.SnapshotResult;
+
+/**
+ * Bounded primary key cache of a table. The cache holds a snapshot of the database row, every
+ * cache hit creates a new object from the snapshot. Entries are removed after the time to live or
+ * if the cache is full (least recently used first).
+ *
+ * <p>Every remove() increments the version of the key stripe. A reader fetches the version with
+ * getVersion() before it selects the row and put() drops the row if the key was removed in the
+ * meantime. Writes remove the key while writing and again after the commit.
+ *
+ * @author mikehummel
+ */
+public class TableCache extends MLog {
+
+    private static final int STRIPES = 64;
+
+    private final int maxSize;
+    private final long ttl;
+    private final LinkedHashMap<List<String>, Entry> cache;
+    private final long[] versions = new long[STRIPES];
+    private long hits;
+    private long misses;
+
+    public TableCache(int maxSize, long ttl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        cache =
+                new LinkedHashMap<List<String>, Entry>(16, 0.75f, true) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<List<String>, Entry> eldest) {
+                        return size() > TableCache.this.maxSize;
+                    }
+                };
+    }
+
+    /**
+     * Return a result positioned on the cached row or null.
+     *
+     * @param keys primary key values
+     * @return x
+     */
+    public synchronized DbResult get(Object[] keys) {
+        List<String> key = toKey(keys);
+        Entry entry = cache.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (ttl > 0 && System.currentTimeMillis() > entry.expires) {
+            cache.remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.row.copy();
+    }
+
+    /**
+     * Return the current version of the key. Fetch it before the row is selected.
+     *
+     * @param keys primary key values
+     * @return x
+     */
+    public synchronized long getVersion(Object[] keys) {
+        return versions[stripe(toKey(keys))];
+    }
+
+    /**
+     * Store a snapshot of the current row of the result. The result itself is not changed. The
+     * snapshot is not stored if the key was removed since the version was fetched.
+     *
+     * @param keys primary key values
+     * @param res result positioned on the row
+     * @param version The version returned by getVersion() before the row was selected
+     * @return A result positioned on the snapshot
+     * @throws Exception
+     */
+    public DbResult put(Object[] keys, DbResult res, long version) throws Exception {
+        SnapshotResult row = new SnapshotResult(res);
+        List<String> key = toKey(keys);
+        synchronized (this) {
+            if (versions[stripe(key)] == version)
+                cache.put(key, new Entry(row, System.currentTimeMillis() + ttl));
+        }
+        return row.copy();
+    }
+
+    public synchronized void remove(Object[] keys) {
+        List<String> key = toKey(keys);
+        cache.remove(key);
+        versions[stripe(key)]++;
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+        for (int i = 0; i < STRIPES; i++) versions[i]++;
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    // keys could be provided with different types (e.g. UUID or String), use the string
+    // representation
+    private static List<String> toKey(Object[] keys) {
+        ArrayList<String> out = new ArrayList<>(keys.length);
+        for (Object key : keys) out.add(String.valueOf(key));
+        return out;
+    }
+
+    private static int stripe(List<String> key) {
+        return (key.hashCode() & 0x7fffffff) % STRIPES;
+    }
+
+    private static class Entry {
+        private SnapshotResult row;
+        private long expires;
+
+        private Entry(SnapshotResult row, long expires) {
+            this.row = row;
+            this.expires = expires;
+        }
+    }
+}
@@ -39,4 +39,10 @@ public class AAnd extends APart {
     public void append(APart pa) {
         operations = MCollection.append(operations, pa);
     }
+
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        shape.append("and");
+        return appendShape(shape, operations);
+    }
 }
@@ -65,4 +65,14 @@ public class ACompare extends APart {
     public void append(APart pa) throws NotSupportedException {
         throw new NotSupportedException();
     }
+
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        shape.append("cmp:").append(eq).append('(');
+        if (!left.appendShape(shape)) return false;
+        shape.append(',');
+        if (!right.appendShape(shape)) return false;
+        shape.append(')');
+        return true;
+    }
 }
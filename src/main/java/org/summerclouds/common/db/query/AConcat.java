@@ -45,4 +45,10 @@ public class AConcat extends AAttribute {
     public AAttribute[] getParts() {
         return parts;
     }
+
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        shape.append("concat");
+        return appendShape(shape, parts);
+    }
 }
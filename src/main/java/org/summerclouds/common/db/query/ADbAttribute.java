@@ -51,4 +51,13 @@ public class ADbAttribute extends AAttribute {
     public Class<?> getClazz() {
         return clazz;
     }
+
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        shape.append("attr:")
+                .append(clazz == null ? "" : clazz.getName())
+                .append('.')
+                .append(attribute);
+        return true;
+    }
 }
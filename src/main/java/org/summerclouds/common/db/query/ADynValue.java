@@ -137,4 +137,17 @@ public class ADynValue extends AAttribute {
         }
         return getName();
     }
+
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        // the value is not part of the rendered query, only the attribute name
+        if (name == null) return false;
+        shape.append("dyn:")
+                .append(name)
+                .append(':')
+                .append(type == null ? "" : type.getName())
+                .append(':')
+                .append(field);
+        return true;
+    }
 }
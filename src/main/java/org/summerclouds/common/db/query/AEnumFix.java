@@ -31,4 +31,10 @@ public class AEnumFix extends AAttribute {
     public Enum<?> getValue() {
         return value;
     }
+
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        shape.append("enum:").append(value.ordinal());
+        return true;
+    }
 }
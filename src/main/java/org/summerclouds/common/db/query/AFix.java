@@ -31,4 +31,10 @@ public class AFix extends AAttribute {
     public String getValue() {
         return value;
     }
+
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        shape.append("fix:").append(value.length()).append(':').append(value);
+        return true;
+    }
 }
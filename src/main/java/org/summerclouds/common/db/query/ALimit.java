@@ -41,4 +41,10 @@ public class ALimit extends AOperation {
     public int getOffset() {
         return offset;
     }
+
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        shape.append("limit:").append(offset).append(',').append(limit);
+        return true;
+    }
 }
@@ -33,4 +33,10 @@ public class AList extends AAttribute {
     public AAttribute[] getOperations() {
         return operations;
     }
+
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        shape.append("list");
+        return appendShape(shape, operations);
+    }
 }
@@ -37,4 +37,10 @@ public class ALiteral extends APart {
     public void append(APart pa) throws NotSupportedException {
         throw new NotSupportedException();
     }
+
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        shape.append("lit:").append(literal.length()).append(':').append(literal);
+        return true;
+    }
 }
@@ -51,4 +51,10 @@ public class ALiteralList extends APart {
     public void append(APart pa) throws NotSupportedException {
         throw new NotSupportedException();
     }
+
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        shape.append("lits");
+        return appendShape(shape, operations);
+    }
 }
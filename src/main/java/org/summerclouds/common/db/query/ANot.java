@@ -39,4 +39,12 @@ public class ANot extends APart {
     public void append(APart pa) throws NotSupportedException {
         throw new NotSupportedException();
     }
+
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        shape.append("not(");
+        if (!operation.appendShape(shape)) return false;
+        shape.append(')');
+        return true;
+    }
 }
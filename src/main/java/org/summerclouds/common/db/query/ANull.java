@@ -58,4 +58,12 @@ public class ANull extends APart {
     public void append(APart pa) throws NotSupportedException {
         throw new NotSupportedException();
     }
+
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        shape.append("null:").append(is).append('(');
+        if (!attr.appendShape(shape)) return false;
+        shape.append(')');
+        return true;
+    }
 }
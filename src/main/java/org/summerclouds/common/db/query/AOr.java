@@ -39,4 +39,10 @@ public class AOr extends APart {
     public void append(APart pa) {
         operations = MCollection.append(operations, pa);
     }
+
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        shape.append("or");
+        return appendShape(shape, operations);
+    }
 }
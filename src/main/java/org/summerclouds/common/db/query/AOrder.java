@@ -43,4 +43,15 @@ public class AOrder extends AOperation {
     public boolean isAsc() {
         return asc;
     }
+
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        shape.append("order:")
+                .append(clazz == null ? "" : clazz.getName())
+                .append('.')
+                .append(attribute)
+                .append(':')
+                .append(asc);
+        return true;
+    }
 }
@@ -20,4 +20,26 @@ import org.summerclouds.common.core.parser.AttributeMap;
 public abstract class APrint {
 
     public abstract void getAttributes(AQuery<?> query, AttributeMap map);
+
+    /**
+     * Append a key describing the structure of the part to the shape. Two parts with the same
+     * shape render the same sql, values of ADynValue are not part of the shape. Used to cache
+     * rendered queries.
+     *
+     * @param shape
+     * @return false if the part can't describe its shape, the query will not be cached
+     */
+    public boolean appendShape(StringBuilder shape) {
+        return false;
+    }
+
+    protected static boolean appendShape(StringBuilder shape, APrint[] parts) {
+        shape.append('(');
+        for (APrint part : parts) {
+            if (!part.appendShape(shape)) return false;
+            shape.append(';');
+        }
+        shape.append(')');
+        return true;
+    }
 }
@@ -20,8 +20,11 @@ import java.util.List;
 import java.util.Map;
 
 import org.summerclouds.common.core.consts.Identifier;
+import org.summerclouds.common.core.error.MRuntimeException;
+import org.summerclouds.common.core.error.RC;
 import org.summerclouds.common.core.parser.AttributeMap;
 import org.summerclouds.common.core.pojo.MPojo;
+import org.summerclouds.common.db.sql.DbStatement;
 
 /**
  * AQuery class.
@@ -37,6 +40,8 @@ public class AQuery<T> extends APrint {
     private ACreateContext context;
     private int unique = 0;
     private AttributeMap map;
+    private int fetchSize = 0;
+    private String[] projection;
 
     /**
      * Constructor for AQuery.
@@ -81,6 +86,7 @@ public class AQuery<T> extends APrint {
             map = new AttributeMap();
             getAttributes(this, map);
         }
+        if (fetchSize != 0) map.put(DbStatement.FETCH_SIZE_KEY, fetchSize);
         return map;
     }
 
@@ -608,6 +614,88 @@ public class AQuery<T> extends APrint {
         return this;
     }
 
+    /**
+     * Select the page with the given number. The paging is rendered by the dialect, the database
+     * skips the rows of the previous pages.
+     *
+     * @param page The page number, starting with 0
+     * @param size The page size
+     * @return x
+     */
+    public AQuery<T> page(int page, int size) {
+        if (page < 0 || size < 0)
+            throw new MRuntimeException(RC.USAGE, "invalid page {1} or size {2}", page, size);
+        int offset;
+        try {
+            offset = Math.multiplyExact(page, size);
+        } catch (ArithmeticException e) {
+            throw new MRuntimeException(
+                    RC.USAGE, "page {1} of size {2} is out of range", page, size);
+        }
+        operations.add(Db.limit(offset, size));
+        return this;
+    }
+
+    /**
+     * Select the page after the given key (keyset paging). The key values correspond to the order
+     * attributes of the query or to the primary key if no order is defined. Deep pages are
+     * selected with an index range scan instead of skipping rows.
+     *
+     * @param size The page size
+     * @param lastKey The key values of the last row of the previous page, nothing for the first
+     *     page
+     * @return x
+     */
+    public AQuery<T> seek(int size, Object... lastKey) {
+        operations.add(new ASeek(type, lastKey));
+        operations.add(Db.limit(size));
+        return this;
+    }
+
+    /**
+     * Set the fetch size hint for the driver. Zero uses the driver default.
+     *
+     * @param fetchSize
+     * @return x
+     */
+    public AQuery<T> fetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * Read the result row by row with a forward only cursor instead of buffering the whole result.
+     * Use it together with DbCollection.setRecycle(true) to scan big tables in constant memory.
+     * Keep the collection open as short as possible, some drivers block the connection while
+     * streaming.
+     *
+     * @return x
+     */
+    public AQuery<T> streaming() {
+        return fetchSize(DbStatement.FETCH_STREAMING);
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Load only the given attributes (and the primary keys). The objects are marked as partially
+     * loaded, saving them updates only the changed columns. Only supported for objects
+     * implementing DbSnapshotHolder, otherwise the query fails.
+     *
+     * @param attributes
+     * @return x
+     */
+    public AQuery<T> select(String... attributes) {
+        projection = attributes == null || attributes.length == 0 ? null : attributes;
+        return this;
+    }
+
+    public String[] getProjection() {
+        return projection;
+    }
+
     /**
      * isNull.
      *
@@ -710,4 +798,9 @@ public class AQuery<T> extends APrint {
     //			recorder = (Recorder<T>) RecordingObject.create(type);
     //	}
 
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        shape.append("query:").append(type.getName());
+        return appendShape(shape, operations.toArray(new APrint[operations.size()]));
+    }
 }
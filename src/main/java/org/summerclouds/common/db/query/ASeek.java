@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.query;
+
+import org.summerclouds.common.core.parser.AttributeMap;
+
+/**
+ * Keyset paging. Restricts the result to the rows after the given key in the order of the query.
+ * The key columns are the AOrder attributes of the query or the primary key if no order is
+ * defined. Without key values the first page is selected.
+ *
+ * @author mikehummel
+ */
+public class ASeek extends AOperation {
+
+    private ADynValue[] values;
+
+    public ASeek(Class<?> type, Object... after) {
+        if (after == null) after = new Object[0];
+        values = new ADynValue[after.length];
+        for (int i = 0; i < after.length; i++)
+            values[i] = new ADynValue(type, null, null, after[i]);
+    }
+
+    @Override
+    public void getAttributes(AQuery<?> query, AttributeMap map) {
+        for (ADynValue value : values) value.getAttributes(query, map);
+    }
+
+    public ADynValue[] getValues() {
+        return values;
+    }
+
+    public boolean isFirstPage() {
+        return values.length == 0;
+    }
+
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        shape.append("seek");
+        return appendShape(shape, values);
+    }
+}
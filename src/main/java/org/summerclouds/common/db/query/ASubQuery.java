@@ -53,4 +53,16 @@ public class ASubQuery extends APart {
     public void append(APart pa) throws NotSupportedException {
         throw new NotSupportedException();
     }
+
+    @Override
+    public boolean appendShape(StringBuilder shape) {
+        shape.append("sub(");
+        if (!left.appendShape(shape)) return false;
+        shape.append(',');
+        if (!projection.appendShape(shape)) return false;
+        shape.append(',');
+        if (!subQuery.appendShape(shape)) return false;
+        shape.append(')');
+        return true;
+    }
 }
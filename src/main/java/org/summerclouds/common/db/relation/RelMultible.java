@@ -15,6 +15,8 @@
  */
 package org.summerclouds.common.db.relation;
 
+import java.util.List;
+
 import org.summerclouds.common.core.parser.AttributeMap;
 import org.summerclouds.common.db.IRelationObject;
 import org.summerclouds.common.db.model.Field;
@@ -88,6 +90,17 @@ public class RelMultible<T> implements IRelationObject {
         return relations;
     }
 
+    /**
+     * Set the already loaded relations, e.g. by the RelationBatchLoader.
+     *
+     * @param list The loaded objects
+     */
+    public void setLoadedRelations(List<?> list) {
+        synchronized (this) {
+            relations = new RelList<T>(list, field.getConfig());
+        }
+    }
+
     /** reset. */
     public void reset() {
         synchronized (this) {
@@ -29,11 +29,12 @@ public class RelSingle<T> implements IRelationObject {
     private Object obj;
     private T relation;
     private boolean changed = false;
+    private boolean loadedEmpty = false;
 
     @SuppressWarnings("unchecked")
     public T getRelation() throws Exception {
         synchronized (this) {
-            if (relation == null) {
+            if (relation == null && !loadedEmpty) {
 
                 String src = field.getConfig().sourceAttribute();
                 if ("".equals(src)) src = field.getName() + "id";
@@ -72,12 +73,28 @@ public class RelSingle<T> implements IRelationObject {
 
     public void setRelation(T relation) {
         changed = true;
+        loadedEmpty = false;
         this.relation = relation;
     }
 
+    /**
+     * Set the already loaded relation, e.g. by the RelationBatchLoader. The relation will not be
+     * marked as changed. null means there is no related object.
+     *
+     * @param relation
+     */
+    public void setLoadedRelation(T relation) {
+        synchronized (this) {
+            this.relation = relation;
+            loadedEmpty = relation == null;
+            changed = false;
+        }
+    }
+
     public void reset() {
         synchronized (this) {
             relation = null;
+            loadedEmpty = false;
         }
     }
 
@@ -134,6 +151,7 @@ public class RelSingle<T> implements IRelationObject {
     public void loaded(DbConnection con) {
         synchronized (this) {
             relation = null;
+            loadedEmpty = false;
             changed = false;
         }
     }
@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.relation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.summerclouds.common.core.cfg.CfgInt;
+import org.summerclouds.common.core.log.Log;
+import org.summerclouds.common.core.parser.AttributeMap;
+import org.summerclouds.common.db.DbManager;
+import org.summerclouds.common.db.IRelationObject;
+import org.summerclouds.common.db.model.Field;
+import org.summerclouds.common.db.model.FieldRelation;
+import org.summerclouds.common.db.model.Table;
+
+/**
+ * Load the relations (RelSingle and RelMultible) of a list of objects with one query per relation
+ * instead of one query per object and relation. The loaded objects are set into the relation
+ * objects.
+ *
+ * @author mikehummel
+ */
+public class RelationBatchLoader {
+
+    private static final Log log = Log.getLog(RelationBatchLoader.class);
+
+    /** Maximum number of ids in one IN list, drivers limit the number of bind parameters. */
+    public static final CfgInt CFG_CHUNK_SIZE =
+            new CfgInt(RelationBatchLoader.class, "chunkSize", 500);
+
+    /**
+     * Load all relations of the objects. All objects must be of the same type.
+     *
+     * @param manager
+     * @param objects
+     * @throws Exception
+     */
+    public static void load(DbManager manager, List<?> objects) throws Exception {
+        if (objects == null || objects.isEmpty()) return;
+        Table table = manager.getTable(manager.getRegistryName(objects.get(0)));
+        if (table == null) return;
+        load(table, objects);
+    }
+
+    /**
+     * Load all relations of the objects of the table.
+     *
+     * @param table
+     * @param objects
+     * @throws Exception
+     */
+    public static void load(Table table, List<?> objects) throws Exception {
+        if (objects == null || objects.isEmpty()) return;
+        for (FieldRelation field : table.getFieldRelations()) {
+            IRelationObject rel = field.getRelationObject(objects.get(0));
+            if (rel instanceof RelSingle) loadSingle(field, objects);
+            else if (rel instanceof RelMultible) loadMultible(field, objects);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected static void loadSingle(FieldRelation field, List<?> objects) throws Exception {
+        String src = field.getConfig().sourceAttribute();
+        if ("".equals(src)) src = field.getName() + "id";
+        src = src.toLowerCase();
+        String tar = field.getConfig().targetAttribute();
+        if ("".equals(tar)) tar = "id";
+
+        Field idField = field.getTable().getField(src);
+        if (idField == null) return;
+
+        Map<String, Object> found = find(field, idField, tar, objects, "", false);
+        if (found == null) return;
+
+        for (Object obj : objects) {
+            IRelationObject rel = field.getRelationObject(obj);
+            if (!(rel instanceof RelSingle)) continue;
+            Object id = idField.getFromTarget(obj);
+            ((RelSingle) rel).setLoadedRelation(id == null ? null : found.get(String.valueOf(id)));
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    protected static void loadMultible(FieldRelation field, List<?> objects) throws Exception {
+        Class<?> target = field.getConfig().target();
+        String src = field.getConfig().sourceAttribute();
+        if ("".equals(src)) src = "id";
+        src = src.toLowerCase();
+        String tar = field.getConfig().targetAttribute();
+        if ("".equals(tar)) tar = field.getName() + "id";
+
+        String order = "";
+        if (!"".equals(field.getConfig().orderBy())) {
+            order =
+                    " ORDER BY $db."
+                            + field.getManager().getMappingName(target)
+                            + "."
+                            + field.getConfig().orderBy()
+                            + "$";
+        }
+
+        Field idField = field.getTable().getField(src);
+        if (idField == null) return;
+
+        Map<String, Object> found = find(field, idField, tar, objects, order, true);
+        if (found == null) return;
+
+        for (Object obj : objects) {
+            IRelationObject rel = field.getRelationObject(obj);
+            if (!(rel instanceof RelMultible)) continue;
+            Object id = idField.getFromTarget(obj);
+            if (id == null) continue;
+            List<?> list = (List<?>) found.get(String.valueOf(id));
+            ((RelMultible) rel).setLoadedRelations(list == null ? new LinkedList<>() : list);
+        }
+    }
+
+    /**
+     * Query all related objects with IN queries of at most CFG_CHUNK_SIZE ids. The result is
+     * mapped by the string representation of the target attribute.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> find(
+            FieldRelation field,
+            Field idField,
+            String tar,
+            List<?> objects,
+            String order,
+            boolean multiple)
+            throws Exception {
+        LinkedHashSet<Object> ids = new LinkedHashSet<>();
+        for (Object obj : objects) {
+            Object id = idField.getFromTarget(obj);
+            if (id != null) ids.add(id);
+        }
+        HashMap<String, Object> found = new HashMap<>();
+        if (ids.isEmpty()) return found;
+
+        DbManager manager = field.getManager();
+        Class<?> target = field.getConfig().target();
+        Table targetTable = manager.getTable(manager.getRegistryName(target));
+        Field targetField = targetTable == null ? null : targetTable.getField(tar.toLowerCase());
+        if (targetField == null) {
+            log.d("target attribute not found", target, tar);
+            return null;
+        }
+
+        String qualification =
+                "$db." + manager.getMappingName(target) + "." + tar + "$ IN ($ids$)" + order;
+        int chunkSize = Math.max(1, CFG_CHUNK_SIZE.value());
+        ArrayList<Object> all = new ArrayList<>(ids);
+        // all rows of one id are in the same chunk, the order of the lists is kept
+        for (int start = 0; start < all.size(); start += chunkSize) {
+            List<Object> chunk =
+                    new ArrayList<>(all.subList(start, Math.min(start + chunkSize, all.size())));
+            List<?> res =
+                    manager.getByQualification(
+                                    target, qualification, new AttributeMap("ids", chunk))
+                            .toCacheAndClose();
+
+            for (Object o : res) {
+                String key = String.valueOf(targetField.get(o));
+                if (multiple) {
+                    List<Object> list = (List<Object>) found.get(key);
+                    if (list == null) {
+                        list = new LinkedList<>();
+                        found.put(key, list);
+                    }
+                    list.add(o);
+                } else if (!found.containsKey(key)) found.put(key, o);
+            }
+        }
+        return found;
+    }
+}
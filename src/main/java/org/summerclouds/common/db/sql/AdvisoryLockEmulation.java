@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emulates advisory locks in the JVM for embedded databases without native support (hsqldb, h2).
+ * The locks are scoped by the database url and owned by the connection. Other than native locks
+ * they are not released if the connection is closed, call releaseAll() before. A lock entry is
+ * removed if it is not owned and nobody is waiting for it.
+ *
+ * @author mikehummel
+ */
+class AdvisoryLockEmulation {
+
+    private static final ConcurrentHashMap<String, Holder> locks = new ConcurrentHashMap<>();
+
+    private AdvisoryLockEmulation() {}
+
+    static boolean lock(Connection con, String key, long timeout) throws SQLException {
+        String name = toName(con, key);
+        // the holder is counted as used by the owner and every waiting thread
+        Holder holder =
+                locks.compute(
+                        name,
+                        (k, h) -> {
+                            if (h == null) h = new Holder();
+                            h.users++;
+                            return h;
+                        });
+        boolean locked = false;
+        try {
+            if (holder.owner == con) return true; // already counted by the owner
+            if (!holder.permit.tryAcquire(Math.max(0, timeout), TimeUnit.MILLISECONDS))
+                return false;
+            holder.owner = con;
+            locked = true;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            if (!locked) leave(name, holder);
+        }
+    }
+
+    static boolean unlock(Connection con, String key) throws SQLException {
+        String name = toName(con, key);
+        Holder holder = locks.get(name);
+        return holder != null && release(name, holder, con);
+    }
+
+    /**
+     * Release all locks owned by the connection. Must be called before the connection is closed.
+     *
+     * @param con The connection, could be closed already
+     * @return Number of released locks
+     */
+    static int releaseAll(Connection con) {
+        int cnt = 0;
+        for (Map.Entry<String, Holder> entry : locks.entrySet())
+            if (release(entry.getKey(), entry.getValue(), con)) cnt++;
+        return cnt;
+    }
+
+    private static boolean release(String name, Holder holder, Connection con) {
+        synchronized (holder) {
+            if (holder.owner != con) return false;
+            holder.owner = null;
+        }
+        holder.permit.release();
+        leave(name, holder);
+        return true;
+    }
+
+    private static void leave(String name, Holder holder) {
+        locks.computeIfPresent(
+                name,
+                (k, h) -> {
+                    if (h != holder) return h;
+                    h.users--;
+                    return h.users <= 0 ? null : h;
+                });
+    }
+
+    private static String toName(Connection con, String key) throws SQLException {
+        return con.getMetaData().getURL() + "#" + key;
+    }
+
+    private static class Holder {
+        private final Semaphore permit = new Semaphore(1, true);
+        private volatile Connection owner;
+        // changed inside of compute only
+        private int users;
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.sql;
+
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.summerclouds.common.core.M;
+import org.summerclouds.common.core.log.Log;
+import org.summerclouds.common.core.tool.MCast;
+import org.summerclouds.common.core.tool.MDate;
+
+/**
+ * Ordered list of bind parameters collected while a compiled query is executed in bind mode. Every
+ * entry corresponds to a '?' placeholder in the rendered query. The parameters are set to the
+ * PreparedStatement with typed setXxx calls.
+ *
+ * @author mikehummel
+ */
+public class BindParameters {
+
+    /** Type used to bind InputStream values (blobs). */
+    public static final String TYPE_BINARY = "binary";
+
+    private static final Log log = Log.getLog(BindParameters.class);
+
+    private final ArrayList<String> types = new ArrayList<>();
+    private final ArrayList<Object> values = new ArrayList<>();
+
+    /**
+     * Append a parameter. The type is one of the M.TYPE_ constants or TYPE_BINARY.
+     *
+     * @param type
+     * @param value
+     */
+    public void add(String type, Object value) {
+        types.add(type);
+        values.add(value);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public String getType(int index) {
+        return types.get(index);
+    }
+
+    public Object getValue(int index) {
+        return values.get(index);
+    }
+
+    /**
+     * Set all parameters to the statement starting with the given parameter index.
+     *
+     * @param sth
+     * @param start first parameter index, jdbc indexes start with 1
+     * @return The next free parameter index
+     * @throws SQLException
+     */
+    public int bind(PreparedStatement sth, int start) throws SQLException {
+        int index = start;
+        for (int i = 0; i < values.size(); i++) {
+            bind(sth, index, types.get(i), values.get(i));
+            index++;
+        }
+        return index;
+    }
+
+    protected void bind(PreparedStatement sth, int index, String type, Object value)
+            throws SQLException {
+        if (value == null) sth.setObject(index, null);
+        else if (M.TYPE_TEXT.equals(type) || M.TYPE_STRING.equals(type))
+            sth.setString(index, String.valueOf(value));
+        else if (M.TYPE_INT.equals(type)) {
+            if (value instanceof Enum) sth.setInt(index, ((Enum<?>) value).ordinal());
+            else {
+                long v = toLong(value);
+                if (v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE) sth.setInt(index, (int) v);
+                else sth.setLong(index, v);
+            }
+        } else if (M.TYPE_LONG.equals(type)) sth.setLong(index, toLong(value));
+        else if (M.TYPE_FLOAT.equals(type) || M.TYPE_DOUBLE.equals(type))
+            sth.setDouble(index, toDouble(value));
+        else if (M.TYPE_DATE.equals(type)) sth.setTimestamp(index, toTimestamp(value));
+        else if (M.TYPE_BOOL.equals(type))
+            sth.setBoolean(index, MCast.toboolean(value.toString(), false));
+        else if (TYPE_BINARY.equals(type)) sth.setBinaryStream(index, (InputStream) value);
+        else {
+            if (!M.TYPE_RAW.equals(type)) log.w("Unknown attribute type:", type);
+            sth.setObject(index, value);
+        }
+    }
+
+    protected long toLong(Object value) {
+        if (value instanceof Number) return ((Number) value).longValue();
+        if (value instanceof Date) return ((Date) value).getTime();
+        if (value instanceof Calendar) return ((Calendar) value).getTimeInMillis();
+        if (value instanceof Character) return (Character) value;
+        return MCast.tolong(value, 0);
+    }
+
+    protected double toDouble(Object value) {
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        if (value instanceof Date) return ((Date) value).getTime();
+        if (value instanceof Calendar) return ((Calendar) value).getTimeInMillis();
+        return MCast.todouble(value, 0);
+    }
+
+    protected Timestamp toTimestamp(Object value) {
+        if (value instanceof Timestamp) return (Timestamp) value;
+        if (value instanceof Date) return new Timestamp(((Date) value).getTime());
+        if (value instanceof Calendar) return new Timestamp(((Calendar) value).getTimeInMillis());
+        if (value instanceof LocalDateTime) return Timestamp.valueOf((LocalDateTime) value);
+        if (value instanceof LocalDate)
+            return new Timestamp(MDate.toDate((LocalDate) value, null).getTime());
+        if (value instanceof Number) return new Timestamp(((Number) value).longValue());
+        Date date = MCast.toDate(value, null);
+        if (date == null) return null;
+        return new Timestamp(date.getTime());
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+}
@@ -0,0 +1,298 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.sql;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.summerclouds.common.core.activator.Activator;
+import org.summerclouds.common.core.cfg.CfgInt;
+import org.summerclouds.common.core.cfg.CfgTimeInterval;
+import org.summerclouds.common.core.error.MException;
+import org.summerclouds.common.core.error.RC;
+import org.summerclouds.common.core.error.TimeoutRuntimeException;
+import org.summerclouds.common.core.node.INode;
+import org.summerclouds.common.core.tool.MCast;
+import org.summerclouds.common.core.tool.MPeriod;
+import org.summerclouds.common.core.tool.MSystem;
+import org.summerclouds.common.db.sql.analytics.SqlAnalytics;
+
+/**
+ * Connection pool with a maximum size. Idle connections are held in a concurrent deque, borrow and
+ * return do not need a global lock. If all connections are in use the caller waits in fair order
+ * until a connection is returned or the wait timeout is reached. The pool creates 'min_idle'
+ * connections in advance.
+ *
+ * <p>Configuration: max_size, min_idle, max_wait (e.g. 30s) beside the provider configuration.
+ *
+ * @author mikehummel
+ */
+public class BoundedDbPool extends DbPool {
+
+    private static final CfgInt CFG_MAX_SIZE = new CfgInt(BoundedDbPool.class, "maxSize", 20);
+    private static final CfgInt CFG_MIN_IDLE = new CfgInt(BoundedDbPool.class, "minIdle", 0);
+    private static final CfgTimeInterval CFG_MAX_WAIT =
+            new CfgTimeInterval(BoundedDbPool.class, "maxWait", "30s");
+
+    private ConcurrentLinkedDeque<InternalDbConnection> idle = new ConcurrentLinkedDeque<>();
+    private Set<InternalDbConnection> all = ConcurrentHashMap.newKeySet();
+    private Semaphore permits;
+    private int maxSize;
+    private int minIdle;
+    private long maxWait;
+    private volatile boolean closed = false;
+
+    /**
+     * Create a new pool from central configuration.
+     *
+     * @throws Exception
+     */
+    public BoundedDbPool() throws Exception {
+        this(null, null);
+    }
+
+    /**
+     * Create a new pool from a configuration.
+     *
+     * @param config Config element or null. null will use the central configuration.
+     * @param activator Activator or null. null will use the central Activator.
+     * @throws Exception
+     */
+    public BoundedDbPool(INode config, Activator activator) throws Exception {
+        super(config, activator);
+        doInit();
+    }
+
+    /**
+     * Create a pool with the DbProvider.
+     *
+     * @param provider
+     */
+    public BoundedDbPool(DbProvider provider) {
+        super(provider);
+        doInit();
+    }
+
+    protected void doInit() {
+        INode config = getConfig();
+        maxSize = Math.max(1, MCast.toint(config.getExtracted("max_size"), CFG_MAX_SIZE.value()));
+        minIdle =
+                Math.min(maxSize, MCast.toint(config.getExtracted("min_idle"), CFG_MIN_IDLE.value()));
+        maxWait = MPeriod.toMilliseconds(config.getExtracted("max_wait"), CFG_MAX_WAIT.interval());
+        permits = new Semaphore(maxSize, true);
+        fillMinIdle();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Borrow an idle connection or create a new one. If the pool is exhausted wait until a
+     * connection is returned.
+     */
+    @Override
+    public DbConnection getConnection() throws Exception {
+        log().t(getName(), "getConnection");
+        if (closed) throw new MException(RC.CONFLICT, "pool {1} is closed", getName());
+
+        long start = System.nanoTime();
+        if (!permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+            printStackTrace();
+            TimeoutRuntimeException e =
+                    new TimeoutRuntimeException(
+                            "no free connection in pool", getName(), maxSize, maxWait);
+            SqlAnalytics.tracePoolBorrow(getName(), this, start, e);
+            throw e;
+        }
+        try {
+            while (true) {
+                InternalDbConnection con = idle.pollFirst();
+                if (con == null) {
+                    con = createConnection();
+                } else if (con.isClosed() || con.checkTimedOut()) {
+                    discard(con);
+                    continue;
+                }
+                con.setUsed(true);
+                SqlAnalytics.tracePoolBorrow(getName(), this, start, null);
+                return new DbConnectionProxy(this, con);
+            }
+        } catch (Exception e) {
+            permits.release();
+            SqlAnalytics.tracePoolBorrow(getName(), this, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Overwrite to configure new created connections before use.
+     *
+     * @return created connection
+     * @throws Exception
+     */
+    protected InternalDbConnection createConnection() throws Exception {
+        try {
+            InternalDbConnection con = getProvider().createConnection();
+            if (con == null) throw new MException(RC.ERROR, "can't create connection", getName());
+            con.setPool(this);
+            all.add(con);
+            if (tracePoolSize.value()) log().d("Create DB Connection", all.size());
+            return con;
+        } catch (Exception e) {
+            // see DefaultDbPool, e.g. mysql: Too many connections
+            if (e.getMessage() != null && e.getMessage().indexOf("Too many connections") > -1) {
+                printStackTrace();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    protected void onReleaseConnection(DbConnection con) {
+        if (!(con instanceof InternalDbConnection) || !all.contains(con)) return;
+        InternalDbConnection icon = (InternalDbConnection) con;
+        if (closed || icon.isClosed()) discard(icon);
+        else idle.offerFirst(icon);
+        permits.release();
+    }
+
+    private void discard(InternalDbConnection con) {
+        all.remove(con);
+        try {
+            con.close();
+        } catch (Exception e) {
+            log().t(e);
+        }
+    }
+
+    protected void fillMinIdle() {
+        try {
+            while (!closed && idle.size() < minIdle && all.size() < maxSize) {
+                if (!permits.tryAcquire()) return;
+                try {
+                    idle.offerLast(createConnection());
+                } finally {
+                    permits.release();
+                }
+            }
+        } catch (Exception e) {
+            log().w("can't create idle connections", getName(), e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Current pool size.
+     */
+    @Override
+    public int getSize() {
+        return all.size();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getUsedSize() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public int getIdleSize() {
+        return idle.size();
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Return the number of threads waiting for a connection.
+     *
+     * @return x
+     */
+    public int getWaitingSize() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Remove closed and timed out idle connections. If unusedAlso is set idle connections are
+     * removed down to 'min_idle'. Afterwards the pool is filled up to 'min_idle' connections.
+     */
+    @Override
+    public void cleanup(boolean unusedAlso) {
+        log().t(getName(), "cleanup");
+        boolean removed = false;
+        for (InternalDbConnection con : idle) {
+            try {
+                if (con.isClosed()
+                        || con.isTimedOut()
+                        || unusedAlso && idle.size() > minIdle) {
+                    // remove only if no other thread borrowed it in the meantime, close it
+                    // after it left the idle set
+                    if (idle.remove(con)) {
+                        discard(con);
+                        removed = true;
+                    }
+                }
+            } catch (Exception t) {
+            } // for secure - do not impact the thread
+        }
+        if (removed && tracePoolSize.value()) log().d("Pool cleanup", all.size());
+        fillMinIdle();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Close the pool and all connections.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        log().t(getName(), "close");
+        closed = true;
+        for (InternalDbConnection con : all) {
+            con.close();
+        }
+        all.clear();
+        idle.clear();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String dumpUsage(boolean used) {
+        StringBuilder out = new StringBuilder();
+        for (ConnectionTrace trace : getStackTraces().values()) {
+            out.append(trace.toString()).append("\n");
+        }
+        return out.toString();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public String toString() {
+        return MSystem.toString(this, all.size(), idle.size(), maxSize);
+    }
+}
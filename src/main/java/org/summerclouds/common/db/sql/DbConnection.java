@@ -53,6 +53,15 @@ public interface DbConnection extends TransactionConnection {
     @Override
     public void rollback() throws Exception;
 
+    /**
+     * Execute the task after the next commit or rollback of the connection. Used to invalidate
+     * cached values after the changes are visible to other connections. Tasks are dropped if the
+     * connection is closed.
+     *
+     * @param task
+     */
+    public void afterCompletion(Runnable task);
+
     /**
      * Returns a predefined statement.
      *
@@ -38,8 +38,8 @@ public class DbConnectionProxy extends MLog implements DbConnection {
     private DbPool pool;
 
     public DbConnectionProxy(DbPool pool, DbConnection instance) {
+        this.pool = pool;
         if (CFG_TRACE_CALLER.value()) {
-            this.pool = pool;
             pool.getStackTraces().put(MSystem.getObjectId(this), new ConnectionTrace(this));
             //			instance.setUsedTrace(createStackTrace);
         }
@@ -63,6 +63,13 @@ public class DbConnectionProxy extends MLog implements DbConnection {
         instance.rollback();
     }
 
+    @Override
+    public void afterCompletion(Runnable task) {
+        DbConnection current = instance;
+        if (current == null) task.run(); // released, nothing left to wait for
+        else current.afterCompletion(task);
+    }
+
     @Override
     public DbStatement getStatement(String name) throws MException {
         return instance.getStatement(name);
@@ -83,7 +90,11 @@ public class DbConnectionProxy extends MLog implements DbConnection {
     public void setUsed(boolean used) {
         if (instance == null) return;
         instance.setUsed(used);
-        if (!used) instance = null; // invalidate this proxy
+        if (!used) {
+            DbConnection released = instance;
+            instance = null; // invalidate this proxy
+            if (pool != null) pool.onReleaseConnection(released);
+        }
     }
 
     @Override
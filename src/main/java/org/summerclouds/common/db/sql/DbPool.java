@@ -173,6 +173,15 @@ public abstract class DbPool extends MLog implements DbTransactionable {
 
     public abstract int getUsedSize();
 
+    /**
+     * Maximum number of connections the pool will open.
+     *
+     * @return x The maximum or -1 if not limited
+     */
+    public int getMaxSize() {
+        return -1;
+    }
+
     /**
      * Cleanup the connection pool. Unused or closed connections will be removed. TODO new strategy
      * to remove unused connections - not prompt, need a timeout time or minimum pool size.
@@ -184,6 +193,14 @@ public abstract class DbPool extends MLog implements DbTransactionable {
     /** Close the pool and all connections. */
     public abstract void close();
 
+    /**
+     * Called by the connection proxy if the connection is released and no more used by the
+     * caller. Overwrite to bring the connection back into the pool.
+     *
+     * @param con The released connection instance
+     */
+    protected void onReleaseConnection(DbConnection con) {}
+
     @SuppressWarnings("deprecation")
     @Override
     protected void finalize() throws Throwable {
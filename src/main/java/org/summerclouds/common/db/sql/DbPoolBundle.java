@@ -15,6 +15,7 @@
  */
 package org.summerclouds.common.db.sql;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
@@ -78,7 +79,11 @@ public class DbPoolBundle extends MLog {
             if (pool == null) {
                 INode poolCon = config.getObject(name);
                 if (poolCon != null) {
-                    pool = new DefaultDbPool(poolCon, activator);
+                    String replicas = poolCon.getExtracted("replicas");
+                    if (replicas != null) pool = createReplicaPool(poolCon, replicas);
+                    else if ("bounded".equals(poolCon.getExtracted("pool")))
+                        pool = new BoundedDbPool(poolCon, activator);
+                    else pool = new DefaultDbPool(poolCon, activator);
                     bundle.put(name, pool);
                 } else {
                     throw new MException(RC.ERROR, "config for pool {1} not found", name);
@@ -88,6 +93,20 @@ public class DbPoolBundle extends MLog {
         }
     }
 
+    /**
+     * Create a read pool over the replica pools of this bundle. The optional 'fallback' is the name
+     * of the pool used if no replica is available.
+     */
+    protected DbPool createReplicaPool(INode poolCon, String replicas) throws Exception {
+        ArrayList<DbPool> list = new ArrayList<>();
+        for (String replica : replicas.split(",")) {
+            replica = replica.trim();
+            if (replica.length() > 0) list.add(getPool(replica));
+        }
+        String fallback = poolCon.getExtracted("fallback");
+        return new ReplicaDbPool(poolCon, list, fallback == null ? null : getPool(fallback));
+    }
+
     /**
      * getNames.
      *
@@ -18,6 +18,7 @@ package org.summerclouds.common.db.sql;
 import java.io.InputStream;
 import java.math.BigDecimal;
 import java.sql.Date;
+import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.List;
@@ -32,6 +33,8 @@ import org.summerclouds.common.core.lang.ICloseable;
  */
 public abstract class DbResult implements ICloseable {
 
+    private Object rowMapper;
+
     /**
      * getString.
      *
@@ -155,4 +158,75 @@ public abstract class DbResult implements ICloseable {
      * @throws Exception
      */
     public abstract BigDecimal getBigDecimal(String columnLabel) throws Exception;
+
+    /**
+     * Return the index of the column, the first column is 1. Implementations should override the
+     * index based getters, the default implementation maps the index back to the column name.
+     *
+     * @param columnLabel
+     * @return The index
+     * @throws Exception If the column is not found
+     */
+    public int findColumn(String columnLabel) throws Exception {
+        int index = 1;
+        for (String name : getColumnNames()) {
+            if (name.equalsIgnoreCase(columnLabel)) return index;
+            index++;
+        }
+        throw new SQLException("column not found: " + columnLabel);
+    }
+
+    protected String getColumnLabel(int columnIndex) throws Exception {
+        return getColumnNames().get(columnIndex - 1);
+    }
+
+    public String getString(int columnIndex) throws Exception {
+        return getString(getColumnLabel(columnIndex));
+    }
+
+    public InputStream getBinaryStream(int columnIndex) throws Exception {
+        return getBinaryStream(getColumnLabel(columnIndex));
+    }
+
+    public boolean getBoolean(int columnIndex) throws Exception {
+        return getBoolean(getColumnLabel(columnIndex));
+    }
+
+    public int getInt(int columnIndex) throws Exception {
+        return getInt(getColumnLabel(columnIndex));
+    }
+
+    public long getLong(int columnIndex) throws Exception {
+        return getLong(getColumnLabel(columnIndex));
+    }
+
+    public float getFloat(int columnIndex) throws Exception {
+        return getFloat(getColumnLabel(columnIndex));
+    }
+
+    public double getDouble(int columnIndex) throws Exception {
+        return getDouble(getColumnLabel(columnIndex));
+    }
+
+    public Timestamp getTimestamp(int columnIndex) throws Exception {
+        return getTimestamp(getColumnLabel(columnIndex));
+    }
+
+    public BigDecimal getBigDecimal(int columnIndex) throws Exception {
+        return getBigDecimal(getColumnLabel(columnIndex));
+    }
+
+    /**
+     * Return the row mapper attached by the consumer of this result. The mapper is bound to the
+     * shape of the result and created once per result set.
+     *
+     * @return The mapper or null
+     */
+    public Object getRowMapper() {
+        return rowMapper;
+    }
+
+    public void setRowMapper(Object rowMapper) {
+        this.rowMapper = rowMapper;
+    }
 }
@@ -16,6 +16,7 @@
 package org.summerclouds.common.db.sql;
 
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Map;
 
 import org.summerclouds.common.core.log.MLog;
@@ -28,6 +29,18 @@ import org.summerclouds.common.core.log.MLog;
 public abstract class DbStatement extends MLog {
 
     public static final String RETURN_BINARY_KEY = "return_binary_attribute_";
+    /**
+     * Attribute key of the BindParameters list. If set and the query is compiled in bind mode the
+     * parameters are collected in the list and rendered as '?' placeholders.
+     */
+    public static final String BIND_PARAMETERS_KEY = "bind_parameters_attribute_";
+    /**
+     * Attribute key of the fetch size for select queries (Integer). Use FETCH_STREAMING to read the
+     * result row by row, the value is translated by the dialect.
+     */
+    public static final String FETCH_SIZE_KEY = "fetch_size_attribute_";
+    /** Fetch size value to request a streaming result with constant memory usage. */
+    public static final int FETCH_STREAMING = -1;
 
     @Override
     protected void finalize() throws Throwable {
@@ -66,6 +79,18 @@ public abstract class DbStatement extends MLog {
      */
     public abstract int executeUpdate(Map<String, Object> attributes) throws Exception;
 
+    /**
+     * Execute the update query once for every attributes map. Rows rendering the same query are
+     * sent to the database as jdbc batch, a batch is flushed after batchSize rows.
+     *
+     * @param attributesList
+     * @param batchSize Maximum rows per batch
+     * @return The update count per row, can be Statement.SUCCESS_NO_INFO
+     * @throws Exception
+     */
+    public abstract int[] executeBatch(List<Map<String, Object>> attributesList, int batchSize)
+            throws Exception;
+
     /**
      * Return the used connection.
      *
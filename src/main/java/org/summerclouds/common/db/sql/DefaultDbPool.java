@@ -21,6 +21,7 @@ import java.util.List;
 import org.summerclouds.common.core.activator.Activator;
 import org.summerclouds.common.core.node.INode;
 import org.summerclouds.common.core.tool.MSystem;
+import org.summerclouds.common.db.sql.analytics.SqlAnalytics;
 
 /**
  * The pool handles a bundle of connections. The connections should have the same credentials (url,
@@ -72,6 +73,8 @@ public class DefaultDbPool extends DbPool {
     public DbConnection getConnection() throws Exception {
         log().t(getName(), "getConnection");
         boolean foundClosed = false;
+        long start = System.nanoTime();
+        Exception error = null;
         try {
             synchronized (pool) {
                 for (InternalDbConnection con : pool) {
@@ -84,8 +87,12 @@ public class DefaultDbPool extends DbPool {
                 }
                 return createConnection();
             }
+        } catch (Exception e) {
+            error = e;
+            throw e;
         } finally {
             if (foundClosed) cleanup(false);
+            SqlAnalytics.tracePoolBorrow(getName(), this, start, error);
         }
     }
 
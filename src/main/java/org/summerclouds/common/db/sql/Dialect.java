@@ -15,17 +15,27 @@
  */
 package org.summerclouds.common.db.sql;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
 
+import org.summerclouds.common.core.cfg.CfgBoolean;
+import org.summerclouds.common.core.cfg.CfgInt;
 import org.summerclouds.common.core.error.MException;
+import org.summerclouds.common.core.error.NotSupportedException;
 import org.summerclouds.common.core.error.RC;
 import org.summerclouds.common.core.log.MLog;
 import org.summerclouds.common.core.node.INode;
+import org.summerclouds.common.core.parser.CompiledString;
 import org.summerclouds.common.core.parser.Parser;
 import org.summerclouds.common.core.parser.ParsingPart;
 import org.summerclouds.common.core.tool.MCast;
@@ -91,8 +101,17 @@ public abstract class Dialect extends MLog implements ICompiler, AQueryCreator {
 
     public static final String C_ENUMERATION = "[enum]";
 
+    private static final CfgBoolean CFG_BIND_PARAMETERS =
+            new CfgBoolean(Dialect.class, "bindParameters", true);
+    private static final CfgInt CFG_QUERY_CACHE_SIZE =
+            new CfgInt(Dialect.class, "queryCacheSize", 1000);
+    private static final CfgInt CFG_STREAMING_FETCH_SIZE =
+            new CfgInt(Dialect.class, "streamingFetchSize", 500);
+
     private Parser sqlParser = new SqlCompiler(this);
     private Parser commonParser = new Common2SqlCompiler(this);
+    private QueryCache<String, CompiledString> queryCache =
+            new QueryCache<>(CFG_QUERY_CACHE_SIZE.value());
 
     /**
      * Return the named type for a TYPE enum value. Use this function to be sure you have all hacks
@@ -118,8 +137,29 @@ public abstract class Dialect extends MLog implements ICompiler, AQueryCreator {
      */
     public void createStructure(
             INode data, DbConnection db, MetadataBundle caoMeta, boolean cleanup) throws Exception {
+        createStructure(data, db, caoMeta, cleanup, null);
+    }
+
+    /**
+     * Create a database structure from configuration. The snapshot is used to find existing tables
+     * and columns without asking the database.
+     *
+     * @param data
+     * @param db
+     * @param caoMeta
+     * @param cleanup
+     * @param snapshot The preloaded structure or null
+     * @throws Exception
+     */
+    public void createStructure(
+            INode data,
+            DbConnection db,
+            MetadataBundle caoMeta,
+            boolean cleanup,
+            StructureSnapshot snapshot)
+            throws Exception {
         try (IScope scope = MTracing.enter("sql create structure", "cleanup", cleanup)) {
-            createTables(data, db, caoMeta, cleanup);
+            createTables(data, db, caoMeta, cleanup, snapshot);
             createIndexes(data, db, caoMeta, cleanup);
             createData(data, db);
         }
@@ -141,6 +181,52 @@ public abstract class Dialect extends MLog implements ICompiler, AQueryCreator {
             INode data, DbConnection db, MetadataBundle caoBundle, boolean cleanup)
             throws Exception;
 
+    /**
+     * Create or update the defined tables using a preloaded structure snapshot. The default
+     * implementation ignores the snapshot.
+     *
+     * @param data
+     * @param db
+     * @param caoBundle
+     * @param cleanup
+     * @param snapshot The preloaded structure or null
+     * @throws Exception
+     */
+    public void createTables(
+            INode data,
+            DbConnection db,
+            MetadataBundle caoBundle,
+            boolean cleanup,
+            StructureSnapshot snapshot)
+            throws Exception {
+        createTables(data, db, caoBundle, cleanup);
+    }
+
+    /**
+     * Load the table and column structure of the database with bulk metadata calls. Return null if
+     * not supported by the dialect.
+     *
+     * @param db
+     * @return The snapshot or null
+     * @throws Exception
+     */
+    public StructureSnapshot loadStructure(DbConnection db) throws Exception {
+        return null;
+    }
+
+    /**
+     * Return true if the table exists. Used to skip the structure reconciliation without a
+     * snapshot. Return false if not supported by the dialect, the structure is reconciled then.
+     *
+     * @param db
+     * @param tableName The normalized table name
+     * @return true if the table exists
+     * @throws Exception
+     */
+    public boolean existsTable(DbConnection db, String tableName) throws Exception {
+        return false;
+    }
+
     /**
      * Create or update indexes. The configuration need a bundle of 'index' elements to define the
      * indexes. Example: [config] [index name='name' table='table name' btree=yes/no unique=yes/no
@@ -345,12 +431,61 @@ public abstract class Dialect extends MLog implements ICompiler, AQueryCreator {
         throw new MException(RC.STATUS.ERROR, "language {2} not supported", this, language);
     }
 
+    /**
+     * Compile the query with the parser of the language. The compiled queries are cached by the
+     * query text, the CompiledString can be executed concurrently.
+     *
+     * @param query
+     * @param language The language or null for sql
+     * @return The compiled query
+     * @throws MException
+     */
+    public CompiledString compileQuery(String query, String language) throws MException {
+        String key = language + ":" + isBindParameters() + ":" + query;
+        return queryCache.get(key, k -> getQueryParser(language).compileString(query));
+    }
+
+    public QueryCache<String, CompiledString> getQueryCache() {
+        return queryCache;
+    }
+
     /** Interface for the parser. */
     @Override
     public boolean isParseAttributes() {
         return true;
     }
 
+    /**
+     * Append the paging clause to a query. The default renders 'LIMIT n OFFSET m'.
+     *
+     * @param buffer The query
+     * @param offset Rows to skip, zero or less to ignore
+     * @param limit Maximum rows, less than zero to ignore
+     */
+    public void appendLimit(StringBuilder buffer, int offset, int limit) {
+        if (limit >= 0) buffer.append(" LIMIT ").append(limit);
+        if (offset > 0) buffer.append(" OFFSET ").append(offset);
+    }
+
+    /**
+     * Return the fetch size to set to the jdbc statement. The result set is read forward only and
+     * read only. DbStatement.FETCH_STREAMING is translated to the driver specific value to stream
+     * the rows.
+     *
+     * @param fetchSize Requested fetch size or DbStatement.FETCH_STREAMING
+     * @return The fetch size for the driver
+     */
+    public int getFetchSize(int fetchSize) {
+        if (fetchSize == DbStatement.FETCH_STREAMING) return CFG_STREAMING_FETCH_SIZE.value();
+        return fetchSize;
+    }
+
+    /** Interface for the parser. Execute statements with bind parameters if enabled. */
+    @Override
+    public boolean isBindParameters() {
+        return CFG_BIND_PARAMETERS.value();
+    }
+
     /** Interface for the parser. */
     @Override
     public ParsingPart compileFunction(FunctionPart function) {
@@ -401,4 +536,216 @@ public abstract class Dialect extends MLog implements ICompiler, AQueryCreator {
     public void prepareConnection(Connection con) throws SQLException {
         con.setAutoCommit(false);
     }
+
+    /**
+     * Return true if the dialect supports advisory locks. The locks are bound to the session of the
+     * connection and waiting is done by the database.
+     *
+     * @return true if advisoryLock can be used
+     */
+    public boolean isAdvisoryLockSupported() {
+        return false;
+    }
+
+    /**
+     * Acquire an advisory lock for the key. The lock is bound to the session of the connection
+     * until advisoryUnlock is called or the session is closed.
+     *
+     * @param con The connection holding the lock
+     * @param key The lock key
+     * @param timeout Maximum wait time in milliseconds, zero to try once
+     * @return true if the lock was acquired, false on timeout
+     * @throws SQLException
+     */
+    public boolean advisoryLock(Connection con, String key, long timeout) throws SQLException {
+        throw new NotSupportedException("advisory locks not supported", getClass());
+    }
+
+    /**
+     * Release an advisory lock acquired with the same connection.
+     *
+     * @param con The connection holding the lock
+     * @param key The lock key
+     * @return true if the lock was held and is released
+     * @throws SQLException
+     */
+    public boolean advisoryUnlock(Connection con, String key) throws SQLException {
+        throw new NotSupportedException("advisory locks not supported", getClass());
+    }
+
+    /**
+     * Release all advisory locks held by the connection. Called before the connection is closed.
+     * Native locks are released with the session, the default does nothing.
+     *
+     * @param con The connection holding the locks, could be closed
+     * @throws SQLException
+     */
+    public void advisoryReleaseAll(Connection con) throws SQLException {}
+
+    /**
+     * Return true if the advisory lock is held by any session. The default tries to acquire and
+     * release the lock with the given connection.
+     *
+     * @param con A connection not holding the lock
+     * @param key The lock key
+     * @return true if locked
+     * @throws SQLException
+     */
+    public boolean isAdvisoryLocked(Connection con, String key) throws SQLException {
+        if (!advisoryLock(con, key, 0)) return true;
+        advisoryUnlock(con, key);
+        return false;
+    }
+
+    /**
+     * Return the replication lag of a read replica in milliseconds. Zero if the database is not a
+     * replica, -1 if unknown.
+     *
+     * @param con A connection to the replica
+     * @return The lag in milliseconds
+     * @throws SQLException
+     */
+    public long getReplicationLag(Connection con) throws SQLException {
+        return -1;
+    }
+
+    /**
+     * Return the split points to divide the table in parts by the (primary key) column. Integral
+     * columns are split in ranges of equal width between min and max, other columns are split in
+     * parts of equal row count. The points are sorted and distinct, the parts are (-inf, p1), [p1,
+     * p2), ... [pn, +inf). Without window functions the key column is streamed once, the
+     * connection must not be in auto commit mode to stream with PostgreSQL.
+     *
+     * @param con The connection
+     * @param table The table name
+     * @param column The column name
+     * @param parts Number of parts
+     * @return The split points, could be less then parts - 1
+     * @throws SQLException
+     */
+    public List<Object> getSplitPoints(Connection con, String table, String column, int parts)
+            throws SQLException {
+        LinkedList<Object> points = new LinkedList<>();
+        if (parts < 2) return points;
+        long count;
+        Object min;
+        Object max;
+        try (Statement sth = con.createStatement();
+                ResultSet res =
+                        sth.executeQuery(
+                                "SELECT COUNT(*), MIN("
+                                        + column
+                                        + "), MAX("
+                                        + column
+                                        + ") FROM "
+                                        + table)) {
+            if (!res.next()) return points;
+            count = res.getLong(1);
+            min = res.getObject(2);
+            max = res.getObject(3);
+        }
+        if (count < parts || min == null) return points;
+
+        if (isIntegral(min) && isIntegral(max)) {
+            // big integer, the width of the range could overflow a long
+            BigInteger from = toBigInteger(min);
+            BigInteger step =
+                    toBigInteger(max).subtract(from).divide(BigInteger.valueOf(parts));
+            if (step.signum() <= 0) return points;
+            for (int i = 1; i < parts; i++) {
+                BigInteger point = from.add(step.multiply(BigInteger.valueOf(i)));
+                if (min instanceof BigDecimal) points.add(new BigDecimal(point));
+                else if (min instanceof BigInteger) points.add(point);
+                else points.add(point.longValue()); // between min and max
+            }
+            return points;
+        }
+
+        if (supportsWindowFunctions(con)) {
+            // the first row of every tile, one query instead of an offset query per point
+            StringBuilder sql = new StringBuilder();
+            sql.append("SELECT MIN(")
+                    .append(column)
+                    .append(") FROM (SELECT ")
+                    .append(column)
+                    .append(", NTILE(")
+                    .append(parts)
+                    .append(") OVER (ORDER BY ")
+                    .append(column)
+                    .append(") AS tile_ FROM ")
+                    .append(table)
+                    .append(") tiles_ GROUP BY tile_ ORDER BY tile_");
+            try (Statement sth = con.createStatement();
+                    ResultSet res = sth.executeQuery(sql.toString())) {
+                if (!res.next()) return points; // the first tile starts with min
+                while (res.next()) addSplitPoint(points, res.getObject(1));
+            }
+            return points;
+        }
+
+        // step through the ordered keys once, only the key column is read and streamed
+        try (Statement sth = con.createStatement()) {
+            sth.setFetchSize(getFetchSize(DbStatement.FETCH_STREAMING));
+            try (ResultSet res =
+                    sth.executeQuery(
+                            "SELECT " + column + " FROM " + table + " ORDER BY " + column)) {
+                long row = 0;
+                int i = 1;
+                long next = count / parts;
+                while (i < parts && res.next()) {
+                    if (row++ < next) continue;
+                    addSplitPoint(points, res.getObject(1));
+                    i++;
+                    next = count * i / parts;
+                }
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Return true if the database supports the window function NTILE. Used to find split points.
+     *
+     * @param con The connection
+     * @return true if supported
+     * @throws SQLException
+     */
+    protected boolean supportsWindowFunctions(Connection con) throws SQLException {
+        return false;
+    }
+
+    private void addSplitPoint(LinkedList<Object> points, Object point) {
+        if (point != null && (points.isEmpty() || !points.getLast().equals(point)))
+            points.add(point);
+    }
+
+    private BigInteger toBigInteger(Object value) {
+        if (value instanceof BigInteger) return (BigInteger) value;
+        if (value instanceof BigDecimal) return ((BigDecimal) value).toBigIntegerExact();
+        return BigInteger.valueOf(((Number) value).longValue());
+    }
+
+    private boolean isIntegral(Object value) {
+        return value instanceof Long
+                || value instanceof Integer
+                || value instanceof Short
+                || value instanceof Byte
+                || value instanceof BigInteger
+                || value instanceof BigDecimal && ((BigDecimal) value).scale() == 0;
+    }
+
+    /**
+     * Return a 64 bit hash (FNV-1a) of the key for databases using numeric lock ids.
+     *
+     * @param key The lock key
+     * @return The lock id
+     */
+    protected long toAdvisoryLockId(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
 }
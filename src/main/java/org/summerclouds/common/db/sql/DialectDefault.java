@@ -24,11 +24,15 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.TreeSet;
 
+import org.summerclouds.common.core.error.MRuntimeException;
 import org.summerclouds.common.core.error.NotSupportedException;
+import org.summerclouds.common.core.error.RC;
 import org.summerclouds.common.core.node.INode;
 import org.summerclouds.common.core.tool.MSql;
 import org.summerclouds.common.core.tool.MString;
 import org.summerclouds.common.db.DbManager;
+import org.summerclouds.common.db.model.Field;
+import org.summerclouds.common.db.model.Table;
 import org.summerclouds.common.db.query.AAnd;
 import org.summerclouds.common.db.query.AAttribute;
 import org.summerclouds.common.db.query.ACompare;
@@ -49,6 +53,7 @@ import org.summerclouds.common.db.query.AOrder;
 import org.summerclouds.common.db.query.APart;
 import org.summerclouds.common.db.query.APrint;
 import org.summerclouds.common.db.query.AQuery;
+import org.summerclouds.common.db.query.ASeek;
 import org.summerclouds.common.db.query.ASubQuery;
 
 /**
@@ -81,6 +86,17 @@ public class DialectDefault extends Dialect {
     @Override
     public void createTables(INode data, DbConnection db, MetadataBundle caoBundle, boolean cleanup)
             throws Exception {
+        createTables(data, db, caoBundle, cleanup, null);
+    }
+
+    @Override
+    public void createTables(
+            INode data,
+            DbConnection db,
+            MetadataBundle caoBundle,
+            boolean cleanup,
+            StructureSnapshot snapshot)
+            throws Exception {
 
         Connection con = ((JdbcConnection) db.instance()).getConnection();
         Statement sth = con.createStatement();
@@ -95,9 +111,15 @@ public class DialectDefault extends Dialect {
             log().d("process table {1}", tnOrg);
             String tn = normalizeTableName(tnOrg);
 
-            ResultSet tRes = findTable(meta, tn);
+            // tables not in the snapshot could be in another schema, ask the database
+            boolean known = snapshot != null && snapshot.hasTable(tn);
+            ResultSet tRes = known ? null : findTable(meta, tn);
 
-            if (caoBundle != null) caoBundle.getBundle().remove(tName);
+            if (caoBundle != null) {
+                synchronized (caoBundle) {
+                    caoBundle.getBundle().remove(tName);
+                }
+            }
 
             //			boolean found = false;
             //			while (tRes.next()) {
@@ -107,14 +129,16 @@ public class DialectDefault extends Dialect {
             //				}
             //			}
 
-            if (tRes.next()) {
+            if (known || tRes.next()) {
                 // merge table definition
                 log().t("--- found table", tName);
 
                 MutableMetadata caoMeta = null;
                 if (caoBundle != null) {
                     caoMeta = new MutableMetadata();
-                    caoBundle.getBundle().put(tName, caoMeta);
+                    synchronized (caoBundle) {
+                        caoBundle.getBundle().put(tName, caoMeta);
+                    }
                 }
 
                 // check fields
@@ -128,14 +152,17 @@ public class DialectDefault extends Dialect {
                     String fName = normalizeColumnName(fNameOrg);
 
                     if (cfield.getString(K_CATEGORIES, "").indexOf(C_VIRTUAL) < 0) {
-                        ResultSet fRes = findColumn(meta, tn, fName);
+                        StructureSnapshot.Column column =
+                                known
+                                        ? snapshot.getColumn(tn, fName)
+                                        : findColumnDefinition(meta, tn, fName);
                         log().t("field", tName, fNameOrg);
-                        if (fRes.next()) {
-                            String fName2 = fRes.getString("COLUMN_NAME");
-                            String fType = fRes.getString("TYPE_NAME");
-                            int fSize = fRes.getInt("COLUMN_SIZE");
-                            int fNull = fRes.getInt("NULLABLE");
-                            String fDef = fRes.getString("COLUMN_DEF");
+                        if (column != null) {
+                            String fName2 = column.getName();
+                            String fType = column.getType();
+                            int fSize = column.getSize();
+                            int fNull = column.getNullable();
+                            String fDef = column.getDefault();
                             log().t("found field", tName, fName2, fType, fSize, fNull, fDef);
 
                             // check field type && not null
@@ -161,7 +188,6 @@ public class DialectDefault extends Dialect {
                         } else {
                             alterColumnAdd(sth, tn, cfield);
                         }
-                        fRes.close();
 
                         if (fieldsInTable != null)
                             fieldsInTable.add(fName); // remember not to remove
@@ -185,12 +211,19 @@ public class DialectDefault extends Dialect {
 
                 // END fields
 
-                if (tRes.next()) {
+                if (tRes != null && tRes.next()) {
                     log().t("*** found more then one table", tName);
                 }
 
                 // remove fields
-                if (fieldsInTable != null) {
+                if (fieldsInTable != null && known) {
+                    for (StructureSnapshot.Column column : snapshot.getColumns(tn)) {
+                        if (!fieldsInTable.contains(column.getName())) {
+                            log().t("remove column", column.getName());
+                            alterColumnDrop(sth, tn, column.getName());
+                        }
+                    }
+                } else if (fieldsInTable != null) {
                     ResultSet fRes = meta.getColumns(null, null, tn, null);
                     while (fRes.next()) {
                         String fName2 = fRes.getString("COLUMN_NAME");
@@ -208,7 +241,9 @@ public class DialectDefault extends Dialect {
                 MutableMetadata caoMeta = null;
                 if (caoBundle != null) {
                     caoMeta = new MutableMetadata();
-                    caoBundle.getBundle().put(tName, caoMeta);
+                    synchronized (caoBundle) {
+                        caoBundle.getBundle().put(tName, caoMeta);
+                    }
                 }
 
                 createTable(sth, tn, ctable);
@@ -226,7 +261,7 @@ public class DialectDefault extends Dialect {
                     }
                 }
             }
-            tRes.close();
+            if (tRes != null) tRes.close();
 
             // check primary key
 
@@ -282,6 +317,32 @@ public class DialectDefault extends Dialect {
         return meta.getColumns(null, null, tn, fName);
     }
 
+    private StructureSnapshot.Column findColumnDefinition(
+            DatabaseMetaData meta, String tn, String fName) throws SQLException {
+        try (ResultSet fRes = findColumn(meta, tn, fName)) {
+            if (!fRes.next()) return null;
+            return new StructureSnapshot.Column(
+                    fRes.getString("COLUMN_NAME"),
+                    fRes.getString("TYPE_NAME"),
+                    fRes.getInt("COLUMN_SIZE"),
+                    fRes.getInt("NULLABLE"),
+                    fRes.getString("COLUMN_DEF"));
+        }
+    }
+
+    @Override
+    public StructureSnapshot loadStructure(DbConnection db) throws Exception {
+        return StructureSnapshot.load(((JdbcConnection) db.instance()).getConnection());
+    }
+
+    @Override
+    public boolean existsTable(DbConnection db, String tableName) throws Exception {
+        DatabaseMetaData meta = ((JdbcConnection) db.instance()).getConnection().getMetaData();
+        try (ResultSet res = findTable(meta, tableName)) {
+            return res.next();
+        }
+    }
+
     protected ResultSet findTable(DatabaseMetaData meta, String name) throws SQLException {
         return meta.getTables(null, null, name, new String[] {"TABLE"});
     }
@@ -632,11 +693,73 @@ public class DialectDefault extends Dialect {
         return MSql.escape(text);
     }
 
+    /**
+     * Render the keyset condition: (k1 > v1) or (k1 = v1 and k2 > v2) ... The comparison is
+     * reversed for descending orders.
+     *
+     * @param seek
+     * @param orders
+     * @param query
+     */
+    protected void createSeek(ASeek seek, List<AOrder> orders, AQuery<?> query) {
+        StringBuilder buffer = ((SqlDialectCreateContext) query.getContext()).getBuffer();
+        ADynValue[] values = seek.getValues();
+        if (values.length != orders.size())
+            throw new MRuntimeException(
+                    RC.USAGE,
+                    "seek needs one value per order attribute {1}, got {2}",
+                    orders.size(),
+                    values.length);
+        buffer.append('(');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) buffer.append(" or ");
+            buffer.append('(');
+            for (int j = 0; j < i; j++) {
+                createSeekAttribute(orders.get(j), query);
+                buffer.append(" = ");
+                createQuery(values[j], query);
+                buffer.append(" and ");
+            }
+            createSeekAttribute(orders.get(i), query);
+            buffer.append(orders.get(i).isAsc() ? " > " : " < ");
+            createQuery(values[i], query);
+            buffer.append(')');
+        }
+        buffer.append(')');
+    }
+
+    private void createSeekAttribute(AOrder order, AQuery<?> query) {
+        DbManager manager = ((SqlDialectCreateContext) query.getContext()).getManager();
+        ((SqlDialectCreateContext) query.getContext())
+                .getBuffer()
+                .append("$db.")
+                .append(manager.getMappingName(order.getClazz()))
+                .append('.')
+                .append(order.getAttribute())
+                .append('$');
+    }
+
     @Override
     public void createQuery(APrint p, AQuery<?> query) {
         StringBuilder buffer = ((SqlDialectCreateContext) query.getContext()).getBuffer();
 
         if (p instanceof AQuery) {
+            ASeek seek = null;
+            LinkedList<AOrder> orders = new LinkedList<>();
+            AOperation limit = null;
+            for (AOperation operation : ((AQuery<?>) p).getOperations()) {
+                if (operation instanceof AOrder) orders.add((AOrder) operation);
+                else if (operation instanceof ALimit) limit = operation;
+                else if (operation instanceof ASeek) seek = (ASeek) operation;
+            }
+            // keyset paging without order uses the primary key
+            if (seek != null && orders.isEmpty()) {
+                DbManager manager = ((SqlDialectCreateContext) query.getContext()).getManager();
+                Table table = manager.getTable(manager.getRegistryName(query.getType()));
+                for (Field f : table.getPrimaryKeys())
+                    orders.add(new AOrder(query.getType(), f.getName(), true));
+            }
+
             //		buffer.append('(');
             {
                 boolean first = true;
@@ -647,20 +770,21 @@ public class DialectDefault extends Dialect {
                         createQuery(operation, query);
                     }
                 }
+                if (seek != null && !seek.isFirstPage()) {
+                    if (!first) buffer.append(" and ");
+                    createSeek(seek, orders, query);
+                }
             }
             //		buffer.append(')');
 
             {
                 boolean first = true;
-                AOperation limit = null;
-                for (AOperation operation : ((AQuery<?>) p).getOperations()) {
-                    if (operation instanceof AOrder) {
-                        if (first) {
-                            first = false;
-                            buffer.append(" ORDER BY ");
-                        } else buffer.append(" , ");
-                        createQuery(operation, query);
-                    } else if (operation instanceof ALimit) limit = operation;
+                for (AOrder order : orders) {
+                    if (first) {
+                        first = false;
+                        buffer.append(" ORDER BY ");
+                    } else buffer.append(" , ");
+                    createQuery(order, query);
                 }
 
                 if (limit != null) {
@@ -736,10 +860,7 @@ public class DialectDefault extends Dialect {
         } else if (p instanceof AFix) {
             buffer.append(((AFix) p).getValue());
         } else if (p instanceof ALimit) {
-            buffer.append(" LIMIT ")
-                    .append(((ALimit) p).getOffset())
-                    .append(",")
-                    .append(((ALimit) p).getLimit()); // mysql specific !!
+            appendLimit(buffer, ((ALimit) p).getOffset(), ((ALimit) p).getLimit());
         } else if (p instanceof AList) {
             buffer.append('(');
             boolean first = true;
@@ -241,4 +241,30 @@ public class DialectH2 extends DialectDefault {
         // sth.execute("SET DATABASE TRANSACTION ROLLBACK ON DEADLOCK TRUE");
         sth.close();
     }
+
+    /** Advisory locks are emulated in the JVM, see AdvisoryLockEmulation. */
+    @Override
+    public boolean isAdvisoryLockSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean advisoryLock(Connection con, String key, long timeout) throws SQLException {
+        return AdvisoryLockEmulation.lock(con, key, timeout);
+    }
+
+    @Override
+    public boolean advisoryUnlock(Connection con, String key) throws SQLException {
+        return AdvisoryLockEmulation.unlock(con, key);
+    }
+
+    @Override
+    public void advisoryReleaseAll(Connection con) throws SQLException {
+        AdvisoryLockEmulation.releaseAll(con);
+    }
+
+    @Override
+    protected boolean supportsWindowFunctions(Connection con) throws SQLException {
+        return true;
+    }
 }
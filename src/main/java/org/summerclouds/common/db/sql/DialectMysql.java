@@ -15,6 +15,11 @@
  */
 package org.summerclouds.common.db.sql;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
@@ -53,6 +58,16 @@ public class DialectMysql extends DialectDefault {
         return t;
     }
 
+    /**
+     * Connector/J buffers the whole result. Only Integer.MIN_VALUE switches to row by row
+     * streaming.
+     */
+    @Override
+    public int getFetchSize(int fetchSize) {
+        if (fetchSize == DbStatement.FETCH_STREAMING) return Integer.MIN_VALUE;
+        return fetchSize;
+    }
+
     private static SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
     @Override
@@ -74,4 +89,81 @@ public class DialectMysql extends DialectDefault {
         if (ret.indexOf('\\') < 0) return ret;
         return ret.replaceAll("\\\\", "\\\\\\\\");
     }
+
+    @Override
+    public boolean isAdvisoryLockSupported() {
+        return true;
+    }
+
+    /**
+     * Use GET_LOCK, the timeout is rounded up to seconds. Names longer then 64 characters are
+     * replaced by a hash.
+     */
+    @Override
+    public boolean advisoryLock(Connection con, String key, long timeout) throws SQLException {
+        try (PreparedStatement sth = con.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            sth.setString(1, toAdvisoryLockName(key));
+            sth.setLong(2, timeout <= 0 ? 0 : (timeout + 999) / 1000);
+            try (ResultSet res = sth.executeQuery()) {
+                return res.next() && res.getInt(1) == 1;
+            }
+        }
+    }
+
+    @Override
+    public boolean advisoryUnlock(Connection con, String key) throws SQLException {
+        try (PreparedStatement sth = con.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            sth.setString(1, toAdvisoryLockName(key));
+            try (ResultSet res = sth.executeQuery()) {
+                return res.next() && res.getInt(1) == 1;
+            }
+        }
+    }
+
+    @Override
+    public boolean isAdvisoryLocked(Connection con, String key) throws SQLException {
+        try (PreparedStatement sth = con.prepareStatement("SELECT IS_FREE_LOCK(?)")) {
+            sth.setString(1, toAdvisoryLockName(key));
+            try (ResultSet res = sth.executeQuery()) {
+                return res.next() && res.getInt(1) == 0;
+            }
+        }
+    }
+
+    protected String toAdvisoryLockName(String key) {
+        if (key.length() <= 64) return key;
+        return "lock_" + Long.toHexString(toAdvisoryLockId(key));
+    }
+
+    /**
+     * Use Seconds_Behind_Source of SHOW REPLICA STATUS (MySQL 8.0.22 and later) or
+     * Seconds_Behind_Master of SHOW SLAVE STATUS for older servers, SHOW SLAVE STATUS is removed
+     * with MySQL 8.4. Replication not running is infinite lag.
+     */
+    @Override
+    public long getReplicationLag(Connection con) throws SQLException {
+        try {
+            return getReplicationLag(con, "SHOW REPLICA STATUS", "Seconds_Behind_Source");
+        } catch (SQLException e) {
+            log().t("SHOW REPLICA STATUS not supported", e);
+        }
+        return getReplicationLag(con, "SHOW SLAVE STATUS", "Seconds_Behind_Master");
+    }
+
+    protected long getReplicationLag(Connection con, String query, String column)
+            throws SQLException {
+        try (Statement sth = con.createStatement();
+                ResultSet res = sth.executeQuery(query)) {
+            if (!res.next()) return 0; // not a replica
+            long seconds = res.getLong(column);
+            if (res.wasNull()) return Long.MAX_VALUE;
+            return seconds * 1000;
+        }
+    }
+
+    /** Window functions are supported since MySQL 8 and MariaDB 10.2. */
+    @Override
+    protected boolean supportsWindowFunctions(Connection con) throws SQLException {
+        return con.getMetaData().getDatabaseMajorVersion() >= 8;
+    }
 }
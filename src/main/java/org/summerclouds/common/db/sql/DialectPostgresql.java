@@ -15,6 +15,7 @@
  */
 package org.summerclouds.common.db.sql;
 
+import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -25,9 +26,6 @@ import java.util.Date;
 import org.summerclouds.common.core.node.INode;
 import org.summerclouds.common.core.tool.MSql;
 import org.summerclouds.common.db.annotations.DbType;
-import org.summerclouds.common.db.query.ALimit;
-import org.summerclouds.common.db.query.APrint;
-import org.summerclouds.common.db.query.AQuery;
 
 /**
  * This class can compare a configuration with a database table structure and can modify the
@@ -124,15 +122,9 @@ public class DialectPostgresql extends DialectDefault {
     }
 
     @Override
-    public void createQuery(APrint p, AQuery<?> query) {
-        StringBuilder buffer = ((SqlDialectCreateContext) query.getContext()).getBuffer();
-
-        if (p instanceof ALimit) {
-            if (((ALimit) p).getLimit() >= 0)
-                buffer.append(" LIMIT ").append(((ALimit) p).getLimit());
-            if (((ALimit) p).getOffset() >= 0)
-                buffer.append(" OFFSET ").append(((ALimit) p).getOffset());
-        } else super.createQuery(p, query);
+    public void appendLimit(StringBuilder buffer, int offset, int limit) {
+        if (limit >= 0) buffer.append(" LIMIT ").append(limit);
+        if (offset >= 0) buffer.append(" OFFSET ").append(offset);
     }
 
     @Override
@@ -170,4 +162,71 @@ public class DialectPostgresql extends DialectDefault {
             log().e(sql, e);
         }
     }
+
+    @Override
+    public boolean isAdvisoryLockSupported() {
+        return true;
+    }
+
+    /**
+     * Use a session level pg_advisory_lock. The wait is limited by lock_timeout, a timeout of zero
+     * uses pg_try_advisory_lock.
+     */
+    @Override
+    public boolean advisoryLock(Connection con, String key, long timeout) throws SQLException {
+        long id = toAdvisoryLockId(key);
+        try (Statement sth = con.createStatement()) {
+            if (timeout <= 0) {
+                boolean locked;
+                try (ResultSet res = sth.executeQuery("SELECT pg_try_advisory_lock(" + id + ")")) {
+                    locked = res.next() && res.getBoolean(1);
+                }
+                if (!con.getAutoCommit()) con.commit();
+                return locked;
+            }
+            try {
+                sth.execute("SET lock_timeout = " + timeout);
+                sth.executeQuery("SELECT pg_advisory_lock(" + id + ")").close();
+                sth.execute("SET lock_timeout = DEFAULT");
+                if (!con.getAutoCommit()) con.commit();
+                return true;
+            } catch (SQLException e) {
+                // lock_not_available
+                if (!"55P03".equals(e.getSQLState())) throw e;
+                if (!con.getAutoCommit()) con.rollback();
+                sth.execute("SET lock_timeout = DEFAULT");
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public boolean advisoryUnlock(Connection con, String key) throws SQLException {
+        long id = toAdvisoryLockId(key);
+        try (Statement sth = con.createStatement();
+                ResultSet res = sth.executeQuery("SELECT pg_advisory_unlock(" + id + ")")) {
+            boolean unlocked = res.next() && res.getBoolean(1);
+            if (!con.getAutoCommit()) con.commit();
+            return unlocked;
+        }
+    }
+
+    @Override
+    public long getReplicationLag(Connection con) throws SQLException {
+        try (Statement sth = con.createStatement();
+                ResultSet res =
+                        sth.executeQuery(
+                                "SELECT CASE WHEN pg_is_in_recovery() THEN COALESCE(EXTRACT(EPOCH"
+                                        + " FROM now() - pg_last_xact_replay_timestamp()) * 1000,"
+                                        + " 0) ELSE 0 END")) {
+            long lag = res.next() ? res.getLong(1) : -1;
+            if (!con.getAutoCommit()) con.commit();
+            return lag;
+        }
+    }
+
+    @Override
+    protected boolean supportsWindowFunctions(Connection con) throws SQLException {
+        return true;
+    }
 }
@@ -42,10 +42,7 @@ public abstract class InternalDbConnection extends MLog implements DbConnection
     }
 
     public boolean checkTimedOut() {
-        if (isUsed()) return false;
-        long currentTime = System.currentTimeMillis();
-        if ((currentTime - creationTime > timeoutLifetime)
-                || (lastUsedTime != 0 && currentTime - lastUsedTime > timeoutUnused)) {
+        if (isTimedOut()) {
             log().t("timeout");
             close();
             return true;
@@ -53,6 +50,19 @@ public abstract class InternalDbConnection extends MLog implements DbConnection
         return false;
     }
 
+    /**
+     * Return true if the unused connection reached the lifetime or unused timeout. In difference
+     * to checkTimedOut() the connection will not be closed.
+     *
+     * @return true if timed out
+     */
+    public boolean isTimedOut() {
+        if (isUsed()) return false;
+        long currentTime = System.currentTimeMillis();
+        return (currentTime - creationTime > timeoutLifetime)
+                || (lastUsedTime != 0 && currentTime - lastUsedTime > timeoutUnused);
+    }
+
     @Override
     public void setUsed(boolean used) {
         lastUsedTime = System.currentTimeMillis();
@@ -17,9 +17,14 @@ package org.summerclouds.common.db.sql;
 
 import java.io.IOException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedList;
 
+import org.summerclouds.common.core.cfg.CfgInt;
 import org.summerclouds.common.core.error.MException;
 import org.summerclouds.common.core.error.RC;
+import org.summerclouds.common.core.parser.CompiledString;
 import org.summerclouds.common.core.parser.Parser;
 import org.summerclouds.common.db.sql.parser.SimpleQueryCompiler;
 
@@ -35,12 +40,18 @@ public class JdbcConnection extends InternalDbConnection {
     /** Constant <code>LANGUAGE_SQL="sql"</code> */
     public static final String LANGUAGE_SQL = "sql";
 
+    private static final CfgInt CFG_STATEMENT_CACHE_SIZE =
+            new CfgInt(DbConnection.class, "statementCacheSize", 50);
+
     private boolean used = false;
     private Connection connection;
     private DbProvider provider;
     private boolean closed;
 
     private int id = System.identityHashCode(this);
+    private JdbcStatementCache statementCache =
+            new JdbcStatementCache(CFG_STATEMENT_CACHE_SIZE.value());
+    private final LinkedList<Runnable> afterCompletion = new LinkedList<>();
 
     /** {@inheritDoc} */
     @Override
@@ -48,6 +59,7 @@ public class JdbcConnection extends InternalDbConnection {
         log().t("commit", id, poolId);
         if (closed) throw new MException(RC.INTERNAL_ERROR, "Connection not valid", poolId);
         if (!connection.getAutoCommit()) connection.commit();
+        runAfterCompletion();
     }
 
     /** {@inheritDoc} */
@@ -62,7 +74,34 @@ public class JdbcConnection extends InternalDbConnection {
     public void rollback() throws Exception {
         log().t("rollback", id, poolId);
         if (closed) throw new IOException("Connection not valid");
-        connection.rollback();
+        try {
+            connection.rollback();
+        } finally {
+            runAfterCompletion();
+        }
+    }
+
+    @Override
+    public void afterCompletion(Runnable task) {
+        synchronized (afterCompletion) {
+            afterCompletion.add(task);
+        }
+    }
+
+    private void runAfterCompletion() {
+        LinkedList<Runnable> tasks;
+        synchronized (afterCompletion) {
+            if (afterCompletion.isEmpty()) return;
+            tasks = new LinkedList<>(afterCompletion);
+            afterCompletion.clear();
+        }
+        for (Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log().w("after completion task failed", poolId, t);
+            }
+        }
     }
 
     /**
@@ -153,6 +192,10 @@ public class JdbcConnection extends InternalDbConnection {
     public void close() {
         log().t("close", id, poolId);
         synchronized (this) {
+            statementCache.clear();
+            synchronized (afterCompletion) {
+                afterCompletion.clear();
+            }
             try {
                 if (connection != null && !connection.isClosed()) {
                     connection.close();
@@ -166,6 +209,79 @@ public class JdbcConnection extends InternalDbConnection {
         }
     }
 
+    /**
+     * Return a prepared statement for the query. The statement is taken from the statement cache
+     * if possible. Return the statement with checkinStatement() if it is no more needed.
+     *
+     * @param query
+     * @return The prepared statement
+     * @throws SQLException
+     */
+    PreparedStatement checkoutStatement(String query) throws SQLException {
+        if (closed || connection == null) throw new SQLException("Connection not valid");
+        return statementCache.checkout(connection, query);
+    }
+
+    /**
+     * Put the statement back into the statement cache. The statement will be closed if the
+     * connection is closed or the cache is full.
+     *
+     * @param query
+     * @param sth
+     */
+    void checkinStatement(String query, PreparedStatement sth) {
+        if (closed) {
+            try {
+                sth.close();
+            } catch (SQLException e) {
+                log().t(e);
+            }
+            return;
+        }
+        statementCache.checkin(query, sth);
+    }
+
+    /**
+     * Set the maximum amount of cached prepared statements. 0 disables the cache.
+     *
+     * @param size
+     */
+    public void setStatementCacheSize(int size) {
+        synchronized (this) {
+            statementCache.clear();
+            statementCache = new JdbcStatementCache(size);
+        }
+    }
+
+    Dialect getDialect() {
+        return provider.getDialect();
+    }
+
+    public int getCachedStatements() {
+        return statementCache.size();
+    }
+
+    public long getStatementCacheHits() {
+        return statementCache.getHits();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCache.getMisses();
+    }
+
+    /**
+     * Compile the query, the dialect of the pool caches the compiled queries.
+     *
+     * @param query
+     * @param language
+     * @return The compiled query
+     * @throws MException
+     */
+    CompiledString compileQuery(String query, String language) throws MException {
+        if (pool != null) return pool.getDialect().compileQuery(query, language);
+        return createQueryCompiler(language).compileString(query);
+    }
+
     /** {@inheritDoc} */
     @Override
     public Parser createQueryCompiler(String language) throws MException {
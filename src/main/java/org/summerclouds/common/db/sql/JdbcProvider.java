@@ -19,6 +19,7 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 
 import org.summerclouds.common.core.M;
+import org.summerclouds.common.core.tool.MCast;
 import org.summerclouds.common.core.tool.MPeriod;
 import org.summerclouds.common.core.tool.MString;
 
@@ -75,6 +76,9 @@ public class JdbcProvider extends DbProvider {
         long timeoutLifetime = MPeriod.toMilliseconds(config.getExtracted("timeout_lifetime"), 0);
         if (timeoutUnused > 0) dbCon.setTimeoutUnused(timeoutUnused);
         if (timeoutLifetime > 0) dbCon.setTimeoutLifetime(timeoutLifetime);
+        String statementCacheSize = config.getExtracted("statement_cache_size");
+        if (MString.isSet(statementCacheSize))
+            dbCon.setStatementCacheSize(MCast.toint(statementCacheSize, 0));
         return dbCon;
     }
 }
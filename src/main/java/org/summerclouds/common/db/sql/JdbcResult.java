@@ -41,6 +41,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.summerclouds.common.core.log.Log;
+import org.summerclouds.common.db.sql.analytics.SqlAnalytics;
 
 /**
  * This proxy is used to hold a instance of the connection while the ResultSet is used. That's the
@@ -53,6 +54,7 @@ public class JdbcResult extends DbResult {
     private ResultSet instance;
     private DbStatement sth; // need to have a reference to the statement to avoid a finalize
     private List<String> columnNames;
+    private long rows;
 
     JdbcResult(DbStatement sth, ResultSet instance) {
         this.sth = sth;
@@ -69,7 +71,9 @@ public class JdbcResult extends DbResult {
 
     @Override
     public boolean next() throws SQLException {
-        return instance.next();
+        boolean next = instance.next();
+        if (next) rows++;
+        return next;
     }
 
     @Override
@@ -79,6 +83,8 @@ public class JdbcResult extends DbResult {
         } catch (SQLException e) {
             Log.getLog(JdbcResult.class).d("close failed", this, e);
         }
+        if (sth instanceof JdbcStatement) ((JdbcStatement) sth).resultClosed(instance);
+        SqlAnalytics.traceResult(String.valueOf(sth), rows);
     }
 
     public boolean wasNull() throws SQLException {
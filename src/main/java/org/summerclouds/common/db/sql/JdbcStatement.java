@@ -21,10 +21,13 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.summerclouds.common.core.error.MException;
 import org.summerclouds.common.core.parser.CompiledString;
+import org.summerclouds.common.core.util.FallbackMap;
 import org.summerclouds.common.db.sql.analytics.SqlAnalytics;
 
 /**
@@ -40,6 +43,10 @@ public class JdbcStatement extends DbStatement {
     private CompiledString query;
 
     private PreparedStatement preparedSth;
+    private Statement current;
+    private ResultSet lastResult;
+    private boolean fetchSizeChanged;
+    private boolean sthFetchSizeChanged;
 
     private String xquery;
     private String original;
@@ -53,49 +60,88 @@ public class JdbcStatement extends DbStatement {
     JdbcStatement(JdbcConnection dbCon, String query, String language) throws MException {
         this.original = query;
         this.dbCon = dbCon;
-        this.query = dbCon.createQueryCompiler(language).compileString(query);
+        this.query = dbCon.compileQuery(query, language);
     }
 
     private void validateSth() throws Exception {
         synchronized (this) {
             if (sth == null || sth.isClosed()) {
                 Connection con = dbCon.getConnection();
-                sth = con.createStatement();
+                sth =
+                        con.createStatement(
+                                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                sthFetchSizeChanged = false;
             }
         }
     }
 
-    protected PreparedStatement prepareStatement(
-            Map<String, Object> attributes, Statement sth, String query) throws SQLException {
+    /**
+     * Render the query. The bind parameters are collected in the binder if the query was compiled
+     * in bind mode. Binary hack attributes are stored in the bindMap.
+     */
+    protected String compileQuery(
+            Map<String, Object> attributes, Map<String, Object> bindMap, BindParameters binder)
+            throws MException {
+        bindMap.put(BIND_PARAMETERS_KEY, binder);
+        if (attributes == null) return query.execute(bindMap);
+        return query.execute(new FallbackMap<String, Object>(bindMap, attributes, true));
+    }
 
-        // recycle prepared query - should not differ !
-        if (xquery != null & preparedSth != null && xquery.equals(query)) return preparedSth;
+    protected PreparedStatement prepareStatement(
+            Map<String, Object> bindMap, BindParameters binder, String query) throws SQLException {
 
-        // if differ close last prepared query
-        closePreparedSth();
+        boolean binary = bindMap.containsKey(RETURN_BINARY_KEY + "0");
+        if (binder.size() == 0 && !binary) return null;
 
-        // checkout new
-        if (attributes != null && attributes.containsKey(RETURN_BINARY_KEY + "0")) {
-            PreparedStatement psth = dbCon.getConnection().prepareStatement(query);
+        // recycle prepared query if the rendered query is the same
+        if (xquery != null && preparedSth != null && xquery.equals(query)) {
+            preparedSth.clearParameters();
+        } else {
+            // if differ return last prepared query to the connection cache
+            releasePreparedSth();
+            preparedSth = dbCon.checkoutStatement(query);
             xquery = query;
-            for (int nr = 0; attributes.containsKey(RETURN_BINARY_KEY + nr); nr++) {
-                psth.setBinaryStream(nr + 1, (InputStream) attributes.get(RETURN_BINARY_KEY + nr));
-                attributes.remove(RETURN_BINARY_KEY + nr);
-            }
-            return psth;
         }
-        return null;
+
+        int index = binder.bind(preparedSth, 1);
+        for (int nr = 0; bindMap.containsKey(RETURN_BINARY_KEY + nr); nr++) {
+            preparedSth.setBinaryStream(
+                    index + nr, (InputStream) bindMap.get(RETURN_BINARY_KEY + nr));
+        }
+        return preparedSth;
     }
 
-    protected void closePreparedSth() {
-        if (preparedSth != null) {
-            xquery = null;
-            try {
-                preparedSth.close();
-            } catch (SQLException e) {
-                log().t(e);
+    /** Return the prepared statement to the statement cache of the connection. */
+    protected void releasePreparedSth() {
+        synchronized (this) {
+            if (preparedSth != null) {
+                if (current == preparedSth) current = null;
+                if (fetchSizeChanged) {
+                    // the statement is shared by the connection cache
+                    try {
+                        preparedSth.setFetchSize(0);
+                    } catch (SQLException e) {
+                        log().d(e);
+                    }
+                    fetchSizeChanged = false;
+                }
+                dbCon.checkinStatement(xquery, preparedSth);
+                xquery = null;
+                preparedSth = null;
+                lastResult = null;
             }
-            preparedSth = null;
+        }
+    }
+
+    /**
+     * Called by the result if it was closed. If the result was created by the prepared statement
+     * the statement is no more needed.
+     *
+     * @param result
+     */
+    void resultClosed(ResultSet result) {
+        synchronized (this) {
+            if (result != null && result == lastResult) releasePreparedSth();
         }
     }
 
@@ -109,30 +155,44 @@ public class JdbcStatement extends DbStatement {
      */
     @Override
     public boolean execute(Map<String, Object> attributes) throws Exception {
-        validateSth();
-        String query = this.query.execute(attributes);
-        log().t(query);
-        long start = System.currentTimeMillis();
+        HashMap<String, Object> bindMap = new HashMap<>();
+        BindParameters binder = new BindParameters();
+        String query = compileQuery(attributes, bindMap, binder);
+        log().t(query, binder);
+        long start = System.nanoTime();
         try {
-            preparedSth = prepareStatement(attributes, sth, query);
-            boolean result = preparedSth == null ? sth.execute(query) : preparedSth.execute();
-            SqlAnalytics.trace(getConnection().getInstanceId(), original, query, start, null);
+            PreparedStatement psth = prepareStatement(bindMap, binder, query);
+            boolean result;
+            if (psth == null) {
+                validateSth();
+                current = sth;
+                result = sth.execute(query);
+            } else {
+                current = psth;
+                result = psth.execute();
+                // closing the result returns the statement to the cache
+                lastResult = result ? psth.getResultSet() : null;
+            }
+            SqlAnalytics.traceNanos(
+                    getConnection().getInstanceId(), original, query, start, -1, null);
             return result;
         } catch (Exception e) {
-            SqlAnalytics.trace(getConnection().getInstanceId(), original, query, start, e);
-            log().e(query);
+            SqlAnalytics.traceNanos(
+                    getConnection().getInstanceId(), original, query, start, -1, e);
+            log().e(query, binder);
             throw e;
         }
     }
 
     @Override
     public DbResult getResultSet() throws SQLException {
-        return new JdbcResult(this, sth.getResultSet());
+        if (current == preparedSth && lastResult != null) return new JdbcResult(this, lastResult);
+        return new JdbcResult(this, current.getResultSet());
     }
 
     @Override
     public int getUpdateCount() throws SQLException {
-        return sth.getUpdateCount();
+        return current.getUpdateCount();
     }
 
     /**
@@ -144,23 +204,49 @@ public class JdbcStatement extends DbStatement {
      */
     @Override
     public DbResult executeQuery(Map<String, Object> attributes) throws Exception {
-        validateSth();
-        String query = this.query.execute(attributes);
-        log().t(query);
-        preparedSth = prepareStatement(attributes, sth, query);
-        long start = System.currentTimeMillis();
+        HashMap<String, Object> bindMap = new HashMap<>();
+        BindParameters binder = new BindParameters();
+        String query = compileQuery(attributes, bindMap, binder);
+        log().t(query, binder);
+        long start = System.nanoTime();
         try {
-            ResultSet result =
-                    preparedSth == null ? sth.executeQuery(query) : preparedSth.executeQuery();
-            SqlAnalytics.trace(getConnection().getInstanceId(), original, query, start, null);
+            PreparedStatement psth = prepareStatement(bindMap, binder, query);
+            ResultSet result;
+            if (psth == null) {
+                validateSth();
+                current = sth;
+                applyFetchSize(sth, attributes);
+                result = sth.executeQuery(query);
+            } else {
+                current = psth;
+                applyFetchSize(psth, attributes);
+                result = psth.executeQuery();
+                lastResult = result;
+            }
+            SqlAnalytics.traceNanos(
+                    getConnection().getInstanceId(), original, query, start, -1, null);
             return new JdbcResult(this, result);
         } catch (Exception t) {
-            SqlAnalytics.trace(getConnection().getInstanceId(), original, query, start, t);
-            log().e(query);
+            SqlAnalytics.traceNanos(
+                    getConnection().getInstanceId(), original, query, start, -1, t);
+            log().e(query, binder);
             throw t;
         }
     }
 
+    private void applyFetchSize(Statement statement, Map<String, Object> attributes)
+            throws SQLException {
+        Object fetchSize = attributes == null ? null : attributes.get(FETCH_SIZE_KEY);
+        if (fetchSize instanceof Integer && ((Integer) fetchSize) != 0) {
+            statement.setFetchSize(dbCon.getDialect().getFetchSize((Integer) fetchSize));
+            if (statement == preparedSth) fetchSizeChanged = true;
+            else sthFetchSizeChanged = true;
+        } else if (statement == sth && sthFetchSizeChanged) {
+            sth.setFetchSize(0);
+            sthFetchSizeChanged = false;
+        }
+    }
+
     /**
      * Return the result of an update query. In the attributes InputStreams are allowed (blobs).
      *
@@ -170,23 +256,102 @@ public class JdbcStatement extends DbStatement {
      */
     @Override
     public int executeUpdate(Map<String, Object> attributes) throws Exception {
-        validateSth();
-        String query = this.query.execute(attributes);
-        log().t(query);
-        preparedSth = prepareStatement(attributes, sth, query);
-        long start = System.currentTimeMillis();
+        HashMap<String, Object> bindMap = new HashMap<>();
+        BindParameters binder = new BindParameters();
+        String query = compileQuery(attributes, bindMap, binder);
+        log().t(query, binder);
+        long start = System.nanoTime();
+        try {
+            PreparedStatement psth = prepareStatement(bindMap, binder, query);
+            int result;
+            if (psth == null) {
+                validateSth();
+                current = sth;
+                result = sth.executeUpdate(query);
+            } else {
+                current = psth;
+                result = psth.executeUpdate();
+            }
+            SqlAnalytics.traceNanos(
+                    getConnection().getInstanceId(), original, query, start, result, null);
+            return result;
+        } catch (Exception t) {
+            SqlAnalytics.traceNanos(
+                    getConnection().getInstanceId(), original, query, start, -1, t);
+            log().e(query, binder);
+            throw t;
+        } finally {
+            // no result set, the statement can be reused by the connection
+            releasePreparedSth();
+        }
+    }
+
+    @Override
+    public int[] executeBatch(List<Map<String, Object>> attributesList, int batchSize)
+            throws Exception {
+        if (batchSize < 1) batchSize = 1;
+        int[] result = new int[attributesList.size()];
+        int pos = 0;
+        int pending = 0;
+        String query = null;
+        long start = System.nanoTime();
         try {
-            int result =
-                    preparedSth == null ? sth.executeUpdate(query) : preparedSth.executeUpdate();
-            SqlAnalytics.trace(getConnection().getInstanceId(), original, query, start, null);
+            for (Map<String, Object> attributes : attributesList) {
+                HashMap<String, Object> bindMap = new HashMap<>();
+                BindParameters binder = new BindParameters();
+                query = compileQuery(attributes, bindMap, binder);
+                log().t(query, binder);
+
+                // rendered query changed (e.g. inlined null values), flush the open batch
+                if (pending > 0 && !query.equals(xquery)) {
+                    pos = flushBatch(result, pos, pending);
+                    pending = 0;
+                }
+
+                PreparedStatement psth = prepareStatement(bindMap, binder, query);
+                if (psth == null) {
+                    validateSth();
+                    current = sth;
+                    result[pos] = sth.executeUpdate(query);
+                    pos++;
+                } else {
+                    psth.addBatch();
+                    pending++;
+                    if (pending >= batchSize) {
+                        pos = flushBatch(result, pos, pending);
+                        pending = 0;
+                    }
+                }
+            }
+            if (pending > 0) flushBatch(result, pos, pending);
+            SqlAnalytics.traceNanos(
+                    getConnection().getInstanceId(), original, query, start, sum(result), null);
             return result;
         } catch (Exception t) {
-            SqlAnalytics.trace(getConnection().getInstanceId(), original, query, start, t);
-            log().e(query);
+            SqlAnalytics.traceNanos(
+                    getConnection().getInstanceId(), original, query, start, -1, t);
+            log().e(query, "batch", pos, pending);
             throw t;
+        } finally {
+            releasePreparedSth();
         }
     }
 
+    private static long sum(int[] result) {
+        long sum = 0;
+        for (int r : result) if (r > 0) sum += r;
+        return sum;
+    }
+
+    private int flushBatch(int[] result, int pos, int pending) throws SQLException {
+        current = preparedSth;
+        int[] counts = preparedSth.executeBatch();
+        if (counts.length != pending)
+            throw new SQLException("batch size mismatch " + counts.length + " != " + pending);
+        System.arraycopy(counts, 0, result, pos, pending);
+        return pos + pending;
+    }
+
     /**
      * Return the used connection.
      *
@@ -199,7 +364,8 @@ public class JdbcStatement extends DbStatement {
 
     @Override
     public void close() {
-        closePreparedSth();
+        releasePreparedSth();
+        current = null;
         if (sth == null) return;
         try {
             if (sth != null && !sth.isClosed()) {
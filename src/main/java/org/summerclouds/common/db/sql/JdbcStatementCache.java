@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.summerclouds.common.core.log.MLog;
+
+/**
+ * LRU cache of idle prepared statements for one jdbc connection. The key is the rendered sql
+ * query. A statement is removed from the cache while it is used (checkout) and put back if the
+ * statement is released (checkin). Evicted statements will be closed.
+ *
+ * @author mikehummel
+ */
+class JdbcStatementCache extends MLog {
+
+    private final int maxSize;
+    private final LinkedHashMap<String, PreparedStatement> cache;
+    private long hits;
+    private long misses;
+
+    JdbcStatementCache(int maxSize) {
+        this.maxSize = maxSize;
+        cache =
+                new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(
+                            Map.Entry<String, PreparedStatement> eldest) {
+                        if (size() <= JdbcStatementCache.this.maxSize) return false;
+                        closeStatement(eldest.getValue());
+                        return true;
+                    }
+                };
+    }
+
+    /**
+     * Return a cached statement or prepare a new one. The statement is owned by the caller until
+     * checkin() is called.
+     *
+     * @param con
+     * @param query
+     * @return The prepared statement
+     * @throws SQLException
+     */
+    synchronized PreparedStatement checkout(Connection con, String query) throws SQLException {
+        PreparedStatement sth = cache.remove(query);
+        if (sth != null) {
+            if (!sth.isClosed()) {
+                hits++;
+                return sth;
+            }
+        }
+        misses++;
+        return con.prepareStatement(query);
+    }
+
+    /**
+     * Return the statement to the cache. If a statement for the query is already cached the
+     * given one will be closed.
+     *
+     * @param query
+     * @param sth
+     */
+    synchronized void checkin(String query, PreparedStatement sth) {
+        try {
+            if (maxSize <= 0 || sth.isClosed() || cache.containsKey(query)) {
+                closeStatement(sth);
+                return;
+            }
+            sth.clearParameters();
+        } catch (SQLException e) {
+            log().t(e);
+            closeStatement(sth);
+            return;
+        }
+        cache.put(query, sth);
+    }
+
+    /** Close and remove all cached statements. */
+    synchronized void clear() {
+        Iterator<PreparedStatement> iter = cache.values().iterator();
+        while (iter.hasNext()) {
+            closeStatement(iter.next());
+            iter.remove();
+        }
+    }
+
+    synchronized int size() {
+        return cache.size();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    private void closeStatement(PreparedStatement sth) {
+        try {
+            sth.close();
+        } catch (SQLException e) {
+            log().t(e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.sql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache for compiled or rendered queries. The cache is thread safe, the creation of a
+ * missing value is done outside of the lock, concurrent callers can create the value twice.
+ *
+ * @author mikehummel
+ * @param <K>
+ * @param <V>
+ */
+public class QueryCache<K, V> {
+
+    private final int maxSize;
+    private final LinkedHashMap<K, V> cache;
+    private long hits;
+    private long misses;
+
+    public QueryCache(int maxSize) {
+        this.maxSize = maxSize;
+        cache =
+                new LinkedHashMap<K, V>(16, 0.75f, true) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                        return size() > QueryCache.this.maxSize;
+                    }
+                };
+    }
+
+    public synchronized V get(K key) {
+        V value = cache.get(key);
+        if (value == null) misses++;
+        else hits++;
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        if (maxSize <= 0) return;
+        cache.put(key, value);
+    }
+
+    /**
+     * Return the cached value or create and cache it.
+     *
+     * @param <E> Exception of the creator
+     * @param key
+     * @param creator
+     * @return The value
+     * @throws E
+     */
+    public <E extends Exception> V get(K key, Creator<K, V, E> creator) throws E {
+        V value = get(key);
+        if (value != null) return value;
+        value = creator.create(key);
+        if (value != null) put(key, value);
+        return value;
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public interface Creator<K, V, E extends Exception> {
+        V create(K key) throws E;
+    }
+}
@@ -0,0 +1,275 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.sql;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.summerclouds.common.core.cfg.CfgTimeInterval;
+import org.summerclouds.common.core.error.MException;
+import org.summerclouds.common.core.error.RC;
+import org.summerclouds.common.core.node.INode;
+import org.summerclouds.common.core.node.MNode;
+import org.summerclouds.common.core.tool.MPeriod;
+
+/**
+ * Read pool spreading the connections over a list of replica pools. The replica is selected round
+ * robin or by the lowest number of used connections. Replicas failing to deliver a connection or
+ * exceeding the maximum replication lag (see Dialect.getReplicationLag) are skipped until the next
+ * health check. If no replica is available the fallback pool (usually the primary) is used. The
+ * health check runs in a background timer, the callers of getConnection() never wait for it.
+ *
+ * <p>Configuration: replicas (comma separated pool names in the bundle), strategy (roundrobin or
+ * leastbusy), max_lag (e.g. 10s, 0 to ignore), health_check (e.g. 30s).
+ *
+ * @author mikehummel
+ */
+public class ReplicaDbPool extends DbPool {
+
+    public static final String STRATEGY_ROUND_ROBIN = "roundrobin";
+    public static final String STRATEGY_LEAST_BUSY = "leastbusy";
+
+    private static final CfgTimeInterval CFG_MAX_LAG =
+            new CfgTimeInterval(ReplicaDbPool.class, "maxLag", "0");
+    private static final CfgTimeInterval CFG_HEALTH_CHECK =
+            new CfgTimeInterval(ReplicaDbPool.class, "healthCheck", "30s");
+
+    private final Replica[] replicas;
+    private final DbPool fallback;
+    private final boolean leastBusy;
+    private final long maxLag;
+    private final long healthCheckInterval;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicBoolean checking = new AtomicBoolean();
+    private volatile long lastHealthCheck = System.currentTimeMillis();
+    private volatile boolean closed = false;
+    private Timer timer;
+
+    /**
+     * Create a replica pool.
+     *
+     * @param config Configuration or null for defaults
+     * @param replicas The replica pools, at least one
+     * @param fallback Pool to use if no replica is available or null
+     * @throws MException
+     */
+    public ReplicaDbPool(INode config, List<DbPool> replicas, DbPool fallback)
+            throws MException {
+        super(first(replicas).getProvider());
+        if (config == null) config = new MNode();
+        this.replicas = new Replica[replicas.size()];
+        for (int i = 0; i < this.replicas.length; i++)
+            this.replicas[i] = new Replica(replicas.get(i));
+        this.fallback = fallback;
+        leastBusy =
+                STRATEGY_LEAST_BUSY.equalsIgnoreCase(
+                        config.getString("strategy", STRATEGY_ROUND_ROBIN));
+        maxLag = MPeriod.toMilliseconds(config.getExtracted("max_lag"), CFG_MAX_LAG.interval());
+        healthCheckInterval =
+                MPeriod.toMilliseconds(
+                        config.getExtracted("health_check"), CFG_HEALTH_CHECK.interval());
+        if (healthCheckInterval > 0) {
+            timer = new Timer("replica-health", true);
+            timer.schedule(
+                    new TimerTask() {
+
+                        @Override
+                        public void run() {
+                            checkHealth();
+                        }
+                    },
+                    healthCheckInterval,
+                    healthCheckInterval);
+        }
+    }
+
+    private static DbPool first(List<DbPool> replicas) throws MException {
+        if (replicas == null || replicas.isEmpty())
+            throw new MException(RC.USAGE, "no replica pools defined");
+        return replicas.get(0);
+    }
+
+    @Override
+    public DbConnection getConnection() throws Exception {
+        if (closed) throw new MException(RC.CONFLICT, "pool {1} is closed", getName());
+
+        Exception error = null;
+        for (int i = 0; i < replicas.length; i++) {
+            Replica replica = select();
+            if (replica == null) break;
+            try {
+                return replica.pool.getConnection();
+            } catch (Exception e) {
+                log().w("replica failed", replica.pool.getPoolId(), e);
+                replica.healthy = false;
+                error = e;
+            }
+        }
+        if (fallback != null) return fallback.getConnection();
+        if (error != null) throw error;
+        throw new MException(RC.ERROR, "no healthy replica in pool {1}", getName());
+    }
+
+    private Replica select() {
+        if (leastBusy) {
+            Replica best = null;
+            for (Replica replica : replicas)
+                if (replica.isAvailable()
+                        && (best == null || replica.pool.getUsedSize() < best.pool.getUsedSize()))
+                    best = replica;
+            return best;
+        }
+        for (int i = 0; i < replicas.length; i++) {
+            Replica replica =
+                    replicas[(next.getAndIncrement() & Integer.MAX_VALUE) % replicas.length];
+            if (replica.isAvailable()) return replica;
+        }
+        return null;
+    }
+
+    /**
+     * Check all replicas, a replica is healthy if it delivers a connection and the replication lag
+     * is not exceeding max_lag. Only one thread executes the check, concurrent calls return
+     * immediately.
+     */
+    public void checkHealth() {
+        if (closed || !checking.compareAndSet(false, true)) return;
+        try {
+            lastHealthCheck = System.currentTimeMillis();
+            for (Replica replica : replicas) {
+                DbConnection con = null;
+                try {
+                    con = replica.pool.getConnection();
+                    if (maxLag > 0) {
+                        DbConnection instance = con.instance();
+                        if (instance instanceof JdbcConnection) {
+                            Connection jdbc = ((JdbcConnection) instance).getConnection();
+                            replica.lag = replica.pool.getDialect().getReplicationLag(jdbc);
+                        }
+                    }
+                    replica.healthy = true;
+                } catch (Exception e) {
+                    log().d("replica health check failed", replica.pool.getPoolId(), e);
+                    replica.healthy = false;
+                } finally {
+                    if (con != null) con.close();
+                }
+            }
+        } finally {
+            checking.set(false);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        int size = 0;
+        for (Replica replica : replicas)
+            if (!replica.pool.isClosed()) size += replica.pool.getSize();
+        return size;
+    }
+
+    @Override
+    public int getUsedSize() {
+        int size = 0;
+        for (Replica replica : replicas)
+            if (!replica.pool.isClosed()) size += replica.pool.getUsedSize();
+        return size;
+    }
+
+    @Override
+    public void cleanup(boolean unusedAlso) {
+        for (Replica replica : replicas)
+            if (!replica.pool.isClosed()) replica.pool.cleanup(unusedAlso);
+    }
+
+    /** Close the replica pools, the fallback pool is not closed. */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (timer != null) timer.cancel();
+        for (Replica replica : replicas) replica.pool.close();
+    }
+
+    @Override
+    public String dumpUsage(boolean used) {
+        StringBuilder out = new StringBuilder();
+        for (Replica replica : replicas) {
+            out.append(replica.pool.getPoolId())
+                    .append(" healthy=")
+                    .append(replica.healthy)
+                    .append(" lag=")
+                    .append(replica.lag)
+                    .append('\n')
+                    .append(replica.pool.dumpUsage(used));
+        }
+        return out.toString();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public List<DbPool> getReplicas() {
+        ArrayList<DbPool> out = new ArrayList<>(replicas.length);
+        for (Replica replica : replicas) out.add(replica.pool);
+        return out;
+    }
+
+    /**
+     * Return the number of replicas currently used for reads.
+     *
+     * @return x
+     */
+    public int getAvailableSize() {
+        int cnt = 0;
+        for (Replica replica : replicas) if (replica.isAvailable()) cnt++;
+        return cnt;
+    }
+
+    /**
+     * Return the time of the last health check.
+     *
+     * @return x
+     */
+    public long getLastHealthCheck() {
+        return lastHealthCheck;
+    }
+
+    public DbPool getFallback() {
+        return fallback;
+    }
+
+    private class Replica {
+        private final DbPool pool;
+        private volatile boolean healthy = true;
+        private volatile long lag = -1;
+
+        private Replica(DbPool pool) {
+            this.pool = pool;
+        }
+
+        private boolean isAvailable() {
+            return healthy && !pool.isClosed() && (maxLag <= 0 || lag <= maxLag);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.sql;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.summerclouds.common.core.tool.MCast;
+import org.summerclouds.common.core.tool.MDate;
+
+/**
+ * A detached copy of the current row of a result. The values are copied with getObject(), blobs
+ * and clobs are read into memory. The snapshot is positioned on the row, next() returns false. The
+ * column labels are case insensitive.
+ *
+ * @author mikehummel
+ */
+public class SnapshotResult extends DbResult {
+
+    private final Map<String, Object> row;
+    private final List<String> columnNames;
+
+    /**
+     * Copy the current row of the result.
+     *
+     * @param res
+     * @throws Exception
+     */
+    public SnapshotResult(DbResult res) throws Exception {
+        TreeMap<String, Object> values = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        List<String> names = res.getColumnNames();
+        for (String name : names) {
+            Object value = res.getObject(name);
+            if (value instanceof Blob) {
+                Blob blob = (Blob) value;
+                value = blob.getBytes(1, (int) blob.length());
+            } else if (value instanceof Clob) {
+                Clob clob = (Clob) value;
+                value = clob.getSubString(1, (int) clob.length());
+            }
+            values.put(name, value);
+        }
+        row = Collections.unmodifiableMap(values);
+        columnNames = Collections.unmodifiableList(new ArrayList<>(names));
+    }
+
+    // the row is shared by all copies, never return a mutable value itself
+    private static Object copy(Object value) {
+        if (value instanceof Timestamp) {
+            Timestamp t = (Timestamp) value;
+            Timestamp out = new Timestamp(t.getTime());
+            out.setNanos(t.getNanos());
+            return out;
+        }
+        if (value instanceof Time) return new Time(((Time) value).getTime());
+        if (value instanceof Date) return new Date(((Date) value).getTime());
+        if (value instanceof java.util.Date)
+            return new java.util.Date(((java.util.Date) value).getTime());
+        if (value instanceof Calendar) return ((Calendar) value).clone();
+        if (value instanceof byte[]) return ((byte[]) value).clone();
+        return value;
+    }
+
+    private SnapshotResult(Map<String, Object> row, List<String> columnNames) {
+        this.row = row;
+        this.columnNames = columnNames;
+    }
+
+    /**
+     * Return a new result on the same row. The snapshot itself is immutable and can be shared.
+     *
+     * @return x
+     */
+    public SnapshotResult copy() {
+        return new SnapshotResult(row, columnNames);
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public String getString(String columnLabel) throws Exception {
+        Object value = row.get(columnLabel);
+        if (value == null) return null;
+        if (value instanceof byte[]) return new String((byte[]) value);
+        return String.valueOf(value);
+    }
+
+    @Override
+    public boolean next() throws Exception {
+        return false;
+    }
+
+    @Override
+    public InputStream getBinaryStream(String columnLabel) throws Exception {
+        Object value = row.get(columnLabel);
+        if (value == null) return null;
+        if (value instanceof byte[]) return new ByteArrayInputStream((byte[]) value);
+        return new ByteArrayInputStream(String.valueOf(value).getBytes());
+    }
+
+    @Override
+    public boolean getBoolean(String columnLabel) throws Exception {
+        Object value = row.get(columnLabel);
+        if (value == null) return false;
+        if (value instanceof Boolean) return (Boolean) value;
+        if (value instanceof Number) return ((Number) value).intValue() != 0;
+        return MCast.toboolean(value.toString(), false);
+    }
+
+    @Override
+    public int getInt(String columnLabel) throws Exception {
+        Object value = row.get(columnLabel);
+        if (value == null) return 0;
+        if (value instanceof Number) return ((Number) value).intValue();
+        return MCast.toint(value, 0);
+    }
+
+    @Override
+    public long getLong(String columnLabel) throws Exception {
+        Object value = row.get(columnLabel);
+        if (value == null) return 0;
+        if (value instanceof Number) return ((Number) value).longValue();
+        return MCast.tolong(value, 0);
+    }
+
+    @Override
+    public float getFloat(String columnLabel) throws Exception {
+        Object value = row.get(columnLabel);
+        if (value == null) return 0;
+        if (value instanceof Number) return ((Number) value).floatValue();
+        return MCast.tofloat(value, 0);
+    }
+
+    @Override
+    public double getDouble(String columnLabel) throws Exception {
+        Object value = row.get(columnLabel);
+        if (value == null) return 0;
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        return MCast.todouble(value, 0);
+    }
+
+    @Override
+    public Date getDate(String columnLabel) throws Exception {
+        Object value = row.get(columnLabel);
+        if (value == null) return null;
+        if (value instanceof java.util.Date)
+            return new Date(((java.util.Date) value).getTime());
+        return MDate.toSqlDate(value.toString());
+    }
+
+    @Override
+    public Time getTime(String columnLabel) throws Exception {
+        Object value = row.get(columnLabel);
+        if (value == null) return null;
+        if (value instanceof java.util.Date)
+            return new Time(((java.util.Date) value).getTime());
+        return MDate.toSqlTime(value.toString());
+    }
+
+    @Override
+    public Timestamp getTimestamp(String columnLabel) throws Exception {
+        Object value = row.get(columnLabel);
+        if (value == null) return null;
+        if (value instanceof Timestamp) return (Timestamp) copy(value);
+        if (value instanceof java.util.Date)
+            return new Timestamp(((java.util.Date) value).getTime());
+        if (value instanceof Calendar) return new Timestamp(((Calendar) value).getTimeInMillis());
+        return MDate.toSqlTimestamp(value.toString());
+    }
+
+    @Override
+    public List<String> getColumnNames() throws Exception {
+        return columnNames;
+    }
+
+    @Override
+    public Object getObject(String columnLabel) throws Exception {
+        return copy(row.get(columnLabel));
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(String columnLabel) throws Exception {
+        Object value = row.get(columnLabel);
+        if (value == null) return null;
+        if (value instanceof BigDecimal) return (BigDecimal) value;
+        return MCast.toBigDecimal(value, BigDecimal.ZERO);
+    }
+}
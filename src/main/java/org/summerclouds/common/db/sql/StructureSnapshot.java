@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.sql;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Table and column structure of the current database schema, loaded with two bulk metadata calls.
+ * The snapshot is used while initializing the schema instead of asking the database for every
+ * table and field. Names are compared case insensitive. Tables not found in the snapshot must be
+ * looked up by the dialect directly, they could be located in another schema.
+ *
+ * @author mikehummel
+ */
+public class StructureSnapshot {
+
+    private final Map<String, Map<String, Column>> tables = new HashMap<>();
+
+    /**
+     * Load the tables and columns of the current schema of the connection.
+     *
+     * @param con
+     * @return The snapshot
+     * @throws SQLException
+     */
+    public static StructureSnapshot load(Connection con) throws SQLException {
+        StructureSnapshot out = new StructureSnapshot();
+        DatabaseMetaData meta = con.getMetaData();
+        String schema = null;
+        try {
+            schema = con.getSchema();
+        } catch (SQLException | AbstractMethodError e) {
+            // not supported by the driver, search all schemas
+        }
+        try (ResultSet res = meta.getTables(null, schema, "%", new String[] {"TABLE"})) {
+            while (res.next()) {
+                String name = res.getString("TABLE_NAME");
+                if (name != null) out.tables.put(key(name), new LinkedHashMap<>());
+            }
+        }
+        try (ResultSet res = meta.getColumns(null, schema, "%", "%")) {
+            while (res.next()) {
+                Map<String, Column> columns = out.tables.get(key(res.getString("TABLE_NAME")));
+                if (columns == null) continue; // view or system table
+                Column c =
+                        new Column(
+                                res.getString("COLUMN_NAME"),
+                                res.getString("TYPE_NAME"),
+                                res.getInt("COLUMN_SIZE"),
+                                res.getInt("NULLABLE"),
+                                res.getString("COLUMN_DEF"));
+                columns.put(key(c.getName()), c);
+            }
+        }
+        return out;
+    }
+
+    private static String key(String name) {
+        return name == null ? "" : name.toUpperCase(Locale.ROOT);
+    }
+
+    public boolean hasTable(String table) {
+        return tables.containsKey(key(table));
+    }
+
+    /**
+     * Return the column or null if the table or the column is not known.
+     *
+     * @param table
+     * @param column
+     * @return The column definition or null
+     */
+    public Column getColumn(String table, String column) {
+        Map<String, Column> columns = tables.get(key(table));
+        return columns == null ? null : columns.get(key(column));
+    }
+
+    public Collection<Column> getColumns(String table) {
+        Map<String, Column> columns = tables.get(key(table));
+        return columns == null
+                ? Collections.emptyList()
+                : Collections.unmodifiableCollection(columns.values());
+    }
+
+    public int size() {
+        return tables.size();
+    }
+
+    public static class Column {
+
+        private final String name;
+        private final String type;
+        private final int size;
+        private final int nullable;
+        private final String def;
+
+        public Column(String name, String type, int size, int nullable, String def) {
+            this.name = name;
+            this.type = type;
+            this.size = size;
+            this.nullable = nullable;
+            this.def = def;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getNullable() {
+            return nullable;
+        }
+
+        public String getDefault() {
+            return def;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.sql.analytics;
+
+import org.summerclouds.common.db.sql.DbPool;
+
+/**
+ * Listener for runtime metrics of the db layer. Register listeners with
+ * SqlAnalytics.addListener(). The methods are called in the executing thread and must be fast and
+ * thread safe. All timings are in nanoseconds.
+ *
+ * @author mikehummel
+ */
+public interface DbMetricsListener {
+
+    /**
+     * A statement was executed.
+     *
+     * @param connectionId
+     * @param original The statement before rendering, the shape of the statement
+     * @param query The rendered query
+     * @param nanos Execution time
+     * @param rows Updated rows or -1 if unknown (queries)
+     * @param t The error or null
+     */
+    default void onStatement(
+            long connectionId, String original, String query, long nanos, long rows, Throwable t) {}
+
+    /**
+     * A result was closed.
+     *
+     * @param original The statement before rendering
+     * @param rows Rows read from the result
+     */
+    default void onResult(String original, long rows) {}
+
+    /**
+     * A connection was requested from the pool.
+     *
+     * @param name Name of the pool
+     * @param pool The pool
+     * @param nanos Wait time until the connection was available
+     * @param t The error or null
+     */
+    default void onPoolBorrow(String name, DbPool pool, long nanos, Throwable t) {}
+
+    /**
+     * A object operation of a table was executed.
+     *
+     * @param registryName The table
+     * @param operation get, create, save, delete or the batch variants e.g. createBatch
+     * @param nanos Execution time
+     * @param t The error or null
+     */
+    default void onTableOperation(String registryName, String operation, long nanos, Throwable t) {}
+}
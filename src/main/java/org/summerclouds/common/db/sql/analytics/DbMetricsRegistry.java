@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.sql.analytics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.summerclouds.common.db.sql.DbPool;
+
+/**
+ * Collects statement, pool and table metrics. Statements are aggregated by their original
+ * (unrendered) sql, the number of statement shapes is limited, additional shapes are aggregated in
+ * OTHER. Bind the collections to a metrics system (e.g. Micrometer gauges and function counters)
+ * to export them.
+ *
+ * @author mikehummel
+ */
+public class DbMetricsRegistry implements DbMetricsListener {
+
+    public static final String OTHER = "[other]";
+
+    private final int maxStatements;
+    private final ConcurrentHashMap<String, TimerMetrics> statements = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, PoolMetrics> pools = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Map<String, TimerMetrics>> tables =
+            new ConcurrentHashMap<>();
+
+    public DbMetricsRegistry() {
+        this(1000);
+    }
+
+    public DbMetricsRegistry(int maxStatements) {
+        this.maxStatements = maxStatements;
+    }
+
+    @Override
+    public void onStatement(
+            long connectionId, String original, String query, long nanos, long rows, Throwable t) {
+        TimerMetrics metrics = getStatement(original);
+        metrics.record(nanos, t);
+        metrics.addRows(rows);
+    }
+
+    @Override
+    public void onResult(String original, long rows) {
+        getStatement(original).addRows(rows);
+    }
+
+    @Override
+    public void onPoolBorrow(String name, DbPool pool, long nanos, Throwable t) {
+        if (name == null) name = OTHER;
+        pools.computeIfAbsent(name, k -> new PoolMetrics(k, pool)).record(nanos, t);
+    }
+
+    @Override
+    public void onTableOperation(String registryName, String operation, long nanos, Throwable t) {
+        if (registryName == null) registryName = OTHER;
+        String name = registryName;
+        tables.computeIfAbsent(name, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(operation, k -> new TimerMetrics(name + "." + k))
+                .record(nanos, t);
+    }
+
+    protected TimerMetrics getStatement(String original) {
+        if (original == null) original = OTHER;
+        TimerMetrics metrics = statements.get(original);
+        if (metrics != null) return metrics;
+        if (statements.size() >= maxStatements) original = OTHER;
+        return statements.computeIfAbsent(original, TimerMetrics::new);
+    }
+
+    public Collection<TimerMetrics> getStatements() {
+        return Collections.unmodifiableCollection(statements.values());
+    }
+
+    public Collection<PoolMetrics> getPools() {
+        return Collections.unmodifiableCollection(pools.values());
+    }
+
+    /**
+     * Return the operation metrics of the tables.
+     *
+     * @return registryName to operation to metrics
+     */
+    public Map<String, Map<String, TimerMetrics>> getTables() {
+        return Collections.unmodifiableMap(tables);
+    }
+
+    public void reset() {
+        statements.clear();
+        pools.clear();
+        tables.clear();
+    }
+
+    /** Borrow time of a pool and gauges for the connections. */
+    public static class PoolMetrics extends TimerMetrics {
+
+        private final DbPool pool;
+
+        public PoolMetrics(String name, DbPool pool) {
+            super(name);
+            this.pool = pool;
+        }
+
+        public int getActive() {
+            return pool.getUsedSize();
+        }
+
+        public int getIdle() {
+            return pool.getSize() - pool.getUsedSize();
+        }
+
+        public DbPool getPool() {
+            return pool;
+        }
+    }
+}
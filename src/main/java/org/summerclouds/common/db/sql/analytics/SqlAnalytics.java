@@ -15,12 +15,18 @@
  */
 package org.summerclouds.common.db.sql.analytics;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import org.summerclouds.common.core.log.Log;
+import org.summerclouds.common.db.sql.DbPool;
 
 public class SqlAnalytics {
 
     private static Log log = Log.getLog(SqlAnalytics.class);
     private static SqlAnalyzer analyzer = null;
+    private static final CopyOnWriteArrayList<DbMetricsListener> listeners =
+            new CopyOnWriteArrayList<>();
 
     public static void setAnalyzer(SqlAnalyzer analyzer_) {
         try {
@@ -37,11 +43,88 @@ public class SqlAnalytics {
         return analyzer;
     }
 
+    public static void addListener(DbMetricsListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public static void removeListener(DbMetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    public static List<DbMetricsListener> getListeners() {
+        return listeners;
+    }
+
+    /**
+     * Trace a statement, start is in milliseconds.
+     *
+     * @param connectionId
+     * @param original
+     * @param query
+     * @param start System.currentTimeMillis() of the start
+     * @param t
+     */
     public static void trace(
             long connectionId, String original, String query, long start, Throwable t) {
         try {
             long delta = System.currentTimeMillis() - start;
             if (analyzer != null) analyzer.doAnalyze(connectionId, original, query, delta, t);
+            for (DbMetricsListener listener : listeners)
+                listener.onStatement(connectionId, original, query, delta * 1000000, -1, t);
+        } catch (Exception t2) {
+            log.e(t2);
+        }
+    }
+
+    /**
+     * Trace a statement, start is System.nanoTime().
+     *
+     * @param connectionId
+     * @param original
+     * @param query
+     * @param start System.nanoTime() of the start
+     * @param rows Updated rows or -1
+     * @param t
+     */
+    public static void traceNanos(
+            long connectionId, String original, String query, long start, long rows, Throwable t) {
+        try {
+            long delta = System.nanoTime() - start;
+            if (analyzer != null)
+                analyzer.doAnalyze(connectionId, original, query, delta / 1000000, t);
+            for (DbMetricsListener listener : listeners)
+                listener.onStatement(connectionId, original, query, delta, rows, t);
+        } catch (Exception t2) {
+            log.e(t2);
+        }
+    }
+
+    public static void traceResult(String original, long rows) {
+        if (listeners.isEmpty()) return;
+        try {
+            for (DbMetricsListener listener : listeners) listener.onResult(original, rows);
+        } catch (Exception t2) {
+            log.e(t2);
+        }
+    }
+
+    public static void tracePoolBorrow(String name, DbPool pool, long start, Throwable t) {
+        if (listeners.isEmpty()) return;
+        try {
+            long delta = System.nanoTime() - start;
+            for (DbMetricsListener listener : listeners)
+                listener.onPoolBorrow(name, pool, delta, t);
+        } catch (Exception t2) {
+            log.e(t2);
+        }
+    }
+
+    public static void traceTable(String registryName, String operation, long start, Throwable t) {
+        if (listeners.isEmpty()) return;
+        try {
+            long delta = System.nanoTime() - start;
+            for (DbMetricsListener listener : listeners)
+                listener.onTableOperation(registryName, operation, delta, t);
         } catch (Exception t2) {
             log.e(t2);
         }
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.sql.analytics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free counters and latency histogram. The histogram uses four buckets per power of two,
+ * percentiles are reported with the upper bound of the bucket (max 19% deviation).
+ *
+ * @author mikehummel
+ */
+public class TimerMetrics {
+
+    private static final int SUB_BITS = 2;
+    private static final int BUCKETS = 64 << SUB_BITS;
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    public TimerMetrics(String name) {
+        this.name = name;
+    }
+
+    public void record(long nanos, Throwable t) {
+        count.increment();
+        if (t != null) errors.increment();
+        if (nanos < 0) nanos = 0;
+        totalNanos.add(nanos);
+        buckets.incrementAndGet(bucket(nanos));
+    }
+
+    public void addRows(long cnt) {
+        if (cnt > 0) rows.add(cnt);
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < (1 << SUB_BITS)) return (int) nanos;
+        int log = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (log - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+        return ((log - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < (1 << SUB_BITS)) return bucket;
+        int log = (bucket >>> SUB_BITS) + SUB_BITS - 1;
+        int sub = bucket & ((1 << SUB_BITS) - 1);
+        return ((long) ((1 << SUB_BITS) + sub + 1) << (log - SUB_BITS)) - 1;
+    }
+
+    /**
+     * Return the latency of the percentile.
+     *
+     * @param percentile between 0 and 1, e.g. 0.99
+     * @return nanoseconds
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        long[] values = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            values[i] = buckets.get(i);
+            total += values[i];
+        }
+        if (total == 0) return 0;
+        long limit = (long) Math.ceil(total * percentile);
+        long sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            sum += values[i];
+            if (sum >= limit && values[i] > 0) return upperBound(i);
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMeanNanos() {
+        long c = count.sum();
+        return c == 0 ? 0 : totalNanos.sum() / c;
+    }
+
+    @Override
+    public String toString() {
+        return name
+                + " count="
+                + getCount()
+                + " errors="
+                + getErrors()
+                + " rows="
+                + getRows()
+                + " p50="
+                + getPercentile(0.5)
+                + " p99="
+                + getPercentile(0.99);
+    }
+}
@@ -25,6 +25,16 @@ public interface ICompiler {
 
     boolean isParseAttributes();
 
+    /**
+     * Return true if parameters should be rendered as '?' placeholders and collected in a bind
+     * parameter list instead of inlining the values as literals.
+     *
+     * @return x
+     */
+    default boolean isBindParameters() {
+        return false;
+    }
+
     ParsingPart compileFunction(FunctionPart function);
 
     default String toSqlDateValue(Object value) {
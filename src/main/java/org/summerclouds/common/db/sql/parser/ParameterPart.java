@@ -37,6 +37,7 @@ import org.summerclouds.common.core.util.FallbackValueProvider;
 import org.summerclouds.common.core.util.IValuesProvider;
 import org.summerclouds.common.core.util.MapValuesProvider;
 import org.summerclouds.common.core.util.Raw;
+import org.summerclouds.common.db.sql.BindParameters;
 import org.summerclouds.common.db.sql.DbStatement;
 
 public class ParameterPart extends StringParsingPart {
@@ -83,6 +84,12 @@ public class ParameterPart extends StringParsingPart {
             return;
         }
         if (value instanceof InputStream) {
+            BindParameters binder = getBinder(attributes);
+            if (binder != null) {
+                out.append("?");
+                binder.add(BindParameters.TYPE_BINARY, value);
+                return;
+            }
             if (!(attributes instanceof MapValuesProvider))
                 throw new ConflictRuntimeException(
                         "attributes must be a map provider to provide blob streams");
@@ -92,7 +99,8 @@ public class ParameterPart extends StringParsingPart {
             return;
         }
         String type = null;
-        if (attribute.length > 1 && !MString.isEmptyTrim(attribute[1])) {
+        boolean explicitType = attribute.length > 1 && !MString.isEmptyTrim(attribute[1]);
+        if (explicitType) {
             type = attribute[1];
         } else {
             if (value instanceof Integer || value instanceof Short || value instanceof Byte)
@@ -113,6 +121,16 @@ public class ParameterPart extends StringParsingPart {
 
         log().t(type, value);
 
+        // raw values (e.g. table and column names) are always inlined
+        if (!(value instanceof Raw) && !(explicitType && M.TYPE_RAW.equals(type))) {
+            BindParameters binder = getBinder(attributes);
+            if (binder != null) {
+                out.append("?");
+                binder.add(type, value);
+                return;
+            }
+        }
+
         if (M.TYPE_TEXT.equals(type) || M.TYPE_STRING.equals(type))
             out.append("'").append(compiler.escape(String.valueOf(value))).append("'");
         else if (M.TYPE_INT.equals(type)) {
@@ -129,6 +147,13 @@ public class ParameterPart extends StringParsingPart {
         else log().w("Unknown attribute type:", type);
     }
 
+    private BindParameters getBinder(IValuesProvider attributes) {
+        if (!compiler.isBindParameters()) return null;
+        Object binder = attributes.get(DbStatement.BIND_PARAMETERS_KEY);
+        if (binder instanceof BindParameters) return (BindParameters) binder;
+        return null;
+    }
+
     @Override
     public void doPreParse() {
         buffer = new StringBuilder();
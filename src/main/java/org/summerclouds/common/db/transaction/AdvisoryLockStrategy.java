@@ -0,0 +1,239 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.transaction;
+
+import java.sql.Connection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.summerclouds.common.core.error.MRuntimeException;
+import org.summerclouds.common.core.error.NotSupportedException;
+import org.summerclouds.common.core.error.RC;
+import org.summerclouds.common.core.error.TimeoutRuntimeException;
+import org.summerclouds.common.db.sql.DbConnection;
+import org.summerclouds.common.db.sql.DbPool;
+import org.summerclouds.common.db.sql.Dialect;
+import org.summerclouds.common.db.sql.JdbcConnection;
+
+/**
+ * Cluster wide locks using the advisory locks of the database (see Dialect.advisoryLock). Each
+ * transaction holding locks binds one connection of the pool of the DbManager until all its locks
+ * are released. If a node dies the database releases the locks with the session, a maximum lock
+ * age is not needed.
+ *
+ * <p>The bound connection is used in addition to the connections the transaction works with. With
+ * a size limited pool (e.g. BoundedDbPool) concurrent lock holders can exhaust the pool. Size the
+ * pool for it or set a separate pool for the lock sessions with setLockPool().
+ *
+ * <p>A contended lock is tried again with a short back off. The session is not blocked while
+ * waiting, other threads of the transaction can release their locks in the meantime.
+ *
+ * <p>If locking or unlocking fails the session connection is closed physically and not returned
+ * to the pool, the next borrower would hold the locks otherwise. All locks of the session are lost
+ * then. The session is marked invalid, isLockedByOwner returns false and further lock and release
+ * calls of the transaction fail.
+ *
+ * @author mikehummel
+ */
+public class AdvisoryLockStrategy extends LockStrategy {
+
+    private static final long MAX_BACKOFF = 200;
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private DbPool lockPool;
+
+    @Override
+    public void lock(Object object, String key, LockBase transaction, long timeout) {
+        long deadline = System.currentTimeMillis() + Math.max(0, timeout);
+        long backoff = 5;
+        while (true) {
+            Session session = sessions.computeIfAbsent(transaction.getName(), n -> new Session());
+            synchronized (session) {
+                if (session.closed) continue; // released concurrently
+                if (session.invalid)
+                    throw new MRuntimeException(
+                            RC.STATUS.ERROR, "lock session failed", key, transaction.getName());
+                if (session.keys.contains(key)) return;
+                boolean locked;
+                try {
+                    if (session.con == null) {
+                        DbPool pool = getPool(transaction);
+                        session.con = pool.getConnection();
+                        session.pool = pool;
+                    }
+                    locked =
+                            session.pool
+                                    .getDialect()
+                                    .advisoryLock(toJdbc(session.con), key, 0);
+                } catch (Exception e) {
+                    // the state of the session is unknown
+                    invalidate(transaction.getName(), session);
+                    throw new MRuntimeException(RC.STATUS.ERROR, "lock failed", key, e);
+                }
+                if (locked) {
+                    session.keys.add(key);
+                    return;
+                }
+                closeIfEmpty(transaction.getName(), session);
+            }
+            // wait outside of the session
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) throw new TimeoutRuntimeException(key);
+            try {
+                Thread.sleep(Math.min(backoff, left));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TimeoutRuntimeException(key, e);
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF);
+        }
+    }
+
+    @Override
+    public void releaseLock(Object object, String key, LockBase transaction) {
+        Session session = sessions.get(transaction.getName());
+        if (session != null && release(transaction.getName(), session, key)) return;
+        // locks of other transactions can't be released, they are bound to their connection
+        for (Session other : sessions.values())
+            if (!other.invalid && other.keys.contains(key)) {
+                log().w("you are not the lock owner", key, transaction.getName());
+                return;
+            }
+    }
+
+    @Override
+    public boolean isLocked(Object object, String key, LockBase transaction) {
+        for (Session session : sessions.values())
+            if (!session.invalid && session.keys.contains(key)) return true;
+        DbPool pool = getPool(transaction);
+        DbConnection con = null;
+        try {
+            con = pool.getConnection();
+            return pool.getDialect().isAdvisoryLocked(toJdbc(con), key);
+        } catch (Exception e) {
+            log().d(e);
+        } finally {
+            if (con != null) con.close();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isLockedByOwner(Object object, String key, LockBase transaction) {
+        Session session = sessions.get(transaction.getName());
+        return session != null && !session.invalid && session.keys.contains(key);
+    }
+
+    private boolean release(String name, Session session, String key) {
+        synchronized (session) {
+            if (!session.keys.remove(key)) return false;
+            if (session.invalid) {
+                closeIfEmpty(name, session);
+                throw new MRuntimeException(RC.STATUS.ERROR, "lock was lost", key, name);
+            }
+            try {
+                Dialect dialect = session.pool.getDialect();
+                if (!dialect.advisoryUnlock(toJdbc(session.con), key))
+                    log().w("advisory lock was not held", key, name);
+            } catch (Exception e) {
+                // close the session to be sure the lock is gone
+                invalidate(name, session);
+                throw new MRuntimeException(RC.STATUS.ERROR, "unlock failed", key, name, e);
+            }
+            closeIfEmpty(name, session);
+            return true;
+        }
+    }
+
+    // the locks of the session are lost, keep the keys to fail the next operations
+    private void invalidate(String name, Session session) {
+        log().w("lock session failed, locks are lost", name, session.keys);
+        session.invalid = true;
+        discard(session);
+        closeIfEmpty(name, session);
+    }
+
+    private void closeIfEmpty(String name, Session session) {
+        if (!session.keys.isEmpty()) return;
+        session.closed = true;
+        sessions.remove(name, session);
+        if (session.con != null) {
+            releaseAll(session);
+            session.con.close();
+        }
+        session.con = null;
+    }
+
+    // close the physical connection, it must not go back to the pool with session locks
+    private void discard(Session session) {
+        DbConnection con = session.con;
+        if (con == null) return;
+        releaseAll(session);
+        session.con = null;
+        try {
+            DbConnection instance = con.instance();
+            if (instance != null) instance.close();
+        } catch (Exception e) {
+            log().d(e);
+        }
+        con.close();
+    }
+
+    // emulated locks are not released with the session
+    private void releaseAll(Session session) {
+        try {
+            session.pool.getDialect().advisoryReleaseAll(toJdbc(session.con));
+        } catch (Exception e) {
+            log().d(e);
+        }
+    }
+
+    private DbPool getPool(LockBase transaction) {
+        return lockPool != null ? lockPool : transaction.getDbManager().getPool();
+    }
+
+    public DbPool getLockPool() {
+        return lockPool;
+    }
+
+    /**
+     * Set a separate pool for the lock sessions. By default the pool of the DbManager is used.
+     *
+     * @param lockPool The pool or null
+     */
+    public void setLockPool(DbPool lockPool) {
+        this.lockPool = lockPool;
+    }
+
+    private Connection toJdbc(DbConnection con) {
+        DbConnection instance = con.instance();
+        if (instance instanceof JdbcConnection) return ((JdbcConnection) instance).getConnection();
+        throw new NotSupportedException("jdbc connection needed for advisory locks", instance);
+    }
+
+    /** Return the number of transactions currently holding locks. */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    private static class Session {
+        private final Set<String> keys = ConcurrentHashMap.newKeySet();
+        private DbConnection con;
+        private DbPool pool;
+        private boolean closed;
+        private volatile boolean invalid;
+    }
+}
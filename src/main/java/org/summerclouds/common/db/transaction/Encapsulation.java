@@ -16,6 +16,7 @@
 package org.summerclouds.common.db.transaction;
 
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.WeakHashMap;
 
 import org.summerclouds.common.core.log.Log;
@@ -27,6 +28,7 @@ public class Encapsulation {
 
     private HashMap<String, TransactionConnection> connections = new HashMap<>();
     private WeakHashMap<Object, String> objectIdList = new WeakHashMap<>();
+    private LinkedList<Runnable> afterCompletion = new LinkedList<>();
 
     public boolean append(DbTransactionable owner) {
         String id = getObjectId(owner);
@@ -52,6 +54,7 @@ public class Encapsulation {
                     Log.getLog(Encapsulation.class).w(e);
                 }
         }
+        runAfterCompletion();
         return success;
     }
 
@@ -66,6 +69,7 @@ public class Encapsulation {
                     Log.getLog(Encapsulation.class).w(e);
                 }
         }
+        runAfterCompletion();
         return success;
     }
 
@@ -79,6 +83,28 @@ public class Encapsulation {
                 }
             connections.clear();
         }
+        runAfterCompletion();
+    }
+
+    public void afterCompletion(Runnable task) {
+        synchronized (afterCompletion) {
+            afterCompletion.add(task);
+        }
+    }
+
+    private void runAfterCompletion() {
+        while (true) {
+            Runnable task;
+            synchronized (afterCompletion) {
+                task = afterCompletion.poll();
+            }
+            if (task == null) return;
+            try {
+                task.run();
+            } catch (Exception e) {
+                Log.getLog(Encapsulation.class).w(e);
+            }
+        }
     }
 
     public TransactionConnection getCurrent(DbTransactionable owner) {
@@ -0,0 +1,223 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.transaction;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.summerclouds.common.core.cfg.CfgBoolean;
+import org.summerclouds.common.core.cfg.CfgInt;
+import org.summerclouds.common.core.cfg.CfgLong;
+import org.summerclouds.common.core.error.TimeoutRuntimeException;
+import org.summerclouds.common.core.tool.MPeriod;
+
+/**
+ * In memory lock strategy like MemoryLockStrategy but the keys are distributed over stripes with
+ * separate monitors. Waiting transactions are parked in a FIFO queue per key and the next waiter is
+ * signaled directly by releaseLock, no polling. Stale locks are evicted lazily if the key is
+ * accessed or a waiter reaches the maximum lock age of the owner.
+ *
+ * @author mikehummel
+ */
+public class StripedMemoryLockStrategy extends LockStrategy {
+
+    private static final CfgLong CFG_MAX_LOCK_AGE =
+            new CfgLong(
+                    StripedMemoryLockStrategy.class, "maxLockAge", MPeriod.HOUR_IN_MILLISECONDS);
+    private static final CfgInt CFG_STRIPES =
+            new CfgInt(StripedMemoryLockStrategy.class, "stripes", 64);
+    private static final CfgBoolean CFG_IGNORE_LOCK_OWNER =
+            new CfgBoolean(StripedMemoryLockStrategy.class, "ignoreLockOwner", false);
+
+    private long maxLockAge = CFG_MAX_LOCK_AGE.value();
+    private boolean ignoreLockOwner = CFG_IGNORE_LOCK_OWNER.value();
+    private final Stripe[] stripes;
+
+    public StripedMemoryLockStrategy() {
+        this(CFG_STRIPES.value());
+    }
+
+    public StripedMemoryLockStrategy(int stripes) {
+        if (stripes < 1) stripes = 1;
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) this.stripes[i] = new Stripe();
+    }
+
+    @Override
+    public boolean isLocked(Object object, String key, LockBase transaction) {
+        Stripe stripe = getStripe(key);
+        stripe.lock.lock();
+        try {
+            LockObject current = stripe.getCurrent(key);
+            return current != null && current.owner != null;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isLockedByOwner(Object object, String key, LockBase transaction) {
+        Stripe stripe = getStripe(key);
+        stripe.lock.lock();
+        try {
+            LockObject current = stripe.getCurrent(key);
+            return current != null
+                    && current.owner != null
+                    && current.owner.equals(transaction.getName());
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public void lock(Object object, String key, LockBase transaction, long timeout) {
+        Stripe stripe = getStripe(key);
+        stripe.lock.lock();
+        try {
+            LockObject current = stripe.getCurrent(key);
+            if (current == null) {
+                current = new LockObject();
+                stripe.locks.put(key, current);
+            }
+            if (current.owner == null && current.waiting.isEmpty()) {
+                current.acquire(transaction);
+                return;
+            }
+
+            log().t("wait for lock", key);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            Condition me = stripe.lock.newCondition();
+            current.waiting.addLast(me);
+            boolean acquired = false;
+            try {
+                while (true) {
+                    stripe.evictStale(key, current);
+                    if (current.owner == null && current.waiting.peekFirst() == me) {
+                        current.waiting.removeFirst();
+                        current.acquire(transaction);
+                        acquired = true;
+                        return;
+                    }
+                    long wait = deadline - System.nanoTime();
+                    if (wait <= 0) throw new TimeoutRuntimeException(key);
+                    if (current.owner != null) {
+                        // wake up when the owner becomes stale
+                        long stale =
+                                TimeUnit.MILLISECONDS.toNanos(maxLockAge - current.getAge() + 1);
+                        if (stale > 0 && stale < wait) wait = stale;
+                    }
+                    me.awaitNanos(wait);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TimeoutRuntimeException("interrupted", key, e);
+            } finally {
+                if (!acquired) {
+                    current.waiting.remove(me);
+                    stripe.signalNext(key, current);
+                }
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public void releaseLock(Object object, String key, LockBase transaction) {
+        Stripe stripe = getStripe(key);
+        stripe.lock.lock();
+        try {
+            LockObject current = stripe.locks.get(key);
+            if (current == null || current.owner == null) return;
+            if (!current.owner.equals(transaction.getName())) {
+                log().w("you are not the lock owner", key, current.owner, transaction.getName());
+                if (!ignoreLockOwner) return;
+            }
+            current.owner = null;
+            current.ownerStr = null;
+            stripe.signalNext(key, current);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private Stripe getStripe(String key) {
+        return stripes[(key.hashCode() & 0x7fffffff) % stripes.length];
+    }
+
+    public long getMaxLockAge() {
+        return maxLockAge;
+    }
+
+    public void setMaxLockAge(long maxLockAge) {
+        this.maxLockAge = maxLockAge;
+    }
+
+    public boolean isIgnoreLockOwner() {
+        return ignoreLockOwner;
+    }
+
+    public void setIgnoreLockOwner(boolean ignoreLockOwner) {
+        this.ignoreLockOwner = ignoreLockOwner;
+    }
+
+    private class Stripe {
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private final HashMap<String, LockObject> locks = new HashMap<>();
+
+        private LockObject getCurrent(String key) {
+            LockObject current = locks.get(key);
+            if (current != null) evictStale(key, current);
+            return locks.get(key);
+        }
+
+        private void evictStale(String key, LockObject current) {
+            if (current.owner != null && current.getAge() > maxLockAge) {
+                log().i("remove stare lock", current.owner, current.ownerStr, key);
+                current.owner = null;
+                current.ownerStr = null;
+                signalNext(key, current);
+            }
+        }
+
+        private void signalNext(String key, LockObject current) {
+            if (current.owner != null) return;
+            Condition next = current.waiting.peekFirst();
+            if (next != null) next.signal();
+            else if (locks.get(key) == current) locks.remove(key);
+        }
+    }
+
+    private static class LockObject {
+        private final ArrayDeque<Condition> waiting = new ArrayDeque<>();
+        private long created;
+        private String owner;
+        private String ownerStr;
+
+        private void acquire(LockBase transaction) {
+            owner = transaction.getName();
+            ownerStr = transaction.toString();
+            created = System.currentTimeMillis();
+        }
+
+        private long getAge() {
+            return System.currentTimeMillis() - created;
+        }
+    }
+}
@@ -119,6 +119,13 @@ public class TransactionPool extends MLog {
         return enc.getCurrent(owner);
     }
 
+    public boolean afterCompletion(Runnable task) {
+        Encapsulation enc = encapsulate.get();
+        if (enc == null) return false;
+        enc.afterCompletion(task);
+        return true;
+    }
+
     public boolean commitAndRelease() {
         boolean res = commit();
         releaseEncapsulate();
@@ -16,6 +16,7 @@
 package org.summerclouds.common.db.util;
 
 import org.summerclouds.common.db.DbComfortableObject;
+import org.summerclouds.common.db.annotations.DbEntity;
 import org.summerclouds.common.db.annotations.DbPersistent;
 import org.summerclouds.common.db.annotations.DbPrimaryKey;
 
@@ -25,6 +26,7 @@ import org.summerclouds.common.db.annotations.DbPrimaryKey;
  * @author mikehummel
  * @version $Id: $Id
  */
+@DbEntity(cacheSize = 100)
 public class Property extends DbComfortableObject {
 
     @DbPrimaryKey private String key;
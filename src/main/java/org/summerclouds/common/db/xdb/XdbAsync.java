@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2022 Mike Hummel (mh@mhus.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.summerclouds.common.db.xdb;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.summerclouds.common.core.cfg.CfgBoolean;
+import org.summerclouds.common.core.cfg.CfgInt;
+import org.summerclouds.common.core.log.MLog;
+import org.summerclouds.common.db.DbPublisher;
+import org.summerclouds.common.db.query.AQuery;
+
+/**
+ * Asynchronous facade of a XdbService. The blocking calls are executed on virtual threads if the
+ * runtime supports them, otherwise on a fixed pool of daemon threads. Not more then maxConcurrency
+ * calls are executed at the same time, usually the maximum size of the connection pool. Further
+ * calls wait in a queue without holding a thread or a connection.
+ *
+ * <p>The calls are executed in other threads. A DbTransaction of the calling thread is not
+ * propagated, the calls use own connections and are committed independently. If a call must be
+ * part of a transaction, start the transaction inside the task.
+ *
+ * <p>The facade must be closed if it is not needed any more, the facade of a manager is closed
+ * with the manager.
+ *
+ * @author mikehummel
+ */
+public class XdbAsync extends MLog implements AutoCloseable {
+
+    private static final CfgInt CFG_MAX_CONCURRENCY =
+            new CfgInt(XdbAsync.class, "maxConcurrency", 20);
+    private static final CfgBoolean CFG_VIRTUAL_THREADS =
+            new CfgBoolean(XdbAsync.class, "virtualThreads", true);
+
+    private final XdbService service;
+    private final int maxConcurrency;
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final ExecutorService executor;
+
+    /**
+     * Create the facade, if maxConcurrency is lesser then 1 the configured default is used.
+     *
+     * @param service
+     * @param maxConcurrency
+     */
+    public XdbAsync(XdbService service, int maxConcurrency) {
+        this.service = service;
+        this.maxConcurrency = maxConcurrency > 0 ? maxConcurrency : CFG_MAX_CONCURRENCY.value();
+        permits = new Semaphore(this.maxConcurrency);
+        executor = createExecutor(this.maxConcurrency);
+    }
+
+    private ExecutorService createExecutor(int threads) {
+        if (CFG_VIRTUAL_THREADS.value()) {
+            try {
+                // java 21, the library is compiled against older versions
+                return (ExecutorService)
+                        Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (NoSuchMethodException e) {
+                log().d("virtual threads not supported");
+            } catch (Exception e) {
+                log().d("can't create virtual thread executor", e);
+            }
+        }
+        AtomicInteger cnt = new AtomicInteger();
+        return Executors.newFixedThreadPool(
+                threads,
+                r -> {
+                    Thread thread = new Thread(r, "xdb-async-" + cnt.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Execute a task with the service asynchronous.
+     *
+     * @param <T>
+     * @param task
+     * @return The future result of the task
+     */
+    public <T> CompletableFuture<T> execute(Task<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        queue.add(
+                () -> {
+                    try {
+                        if (!future.isCancelled()) future.complete(task.call(service));
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                });
+        dispatch();
+        return future;
+    }
+
+    private void dispatch() {
+        while (!queue.isEmpty() && permits.tryAcquire()) {
+            Runnable next = queue.poll();
+            if (next == null) {
+                permits.release();
+                continue;
+            }
+            try {
+                executor.execute(
+                        () -> {
+                            try {
+                                next.run();
+                            } finally {
+                                permits.release();
+                                dispatch();
+                            }
+                        });
+            } catch (RuntimeException e) {
+                // executor is shut down
+                permits.release();
+                next.run();
+            }
+        }
+    }
+
+    public <T> CompletableFuture<T> getObject(Class<T> clazz, Object... keys) {
+        return execute(s -> s.getObject(clazz, keys));
+    }
+
+    public <T> CompletableFuture<T> getObjectByQualification(AQuery<T> query) {
+        return execute(s -> s.getObjectByQualification(query));
+    }
+
+    /**
+     * Load all objects of the query. The result is read completely, the connection is released
+     * before the future is completed.
+     *
+     * @param <T>
+     * @param query
+     * @return The future list of objects
+     */
+    public <T> CompletableFuture<List<T>> getByQualification(AQuery<T> query) {
+        return execute(s -> s.getByQualification(query).toCacheAndClose());
+    }
+
+    /**
+     * Stream the objects of the query to a reactive subscriber. The executor of this facade reads
+     * the rows on demand. An open stream holds a connection, it is not counted by maxConcurrency.
+     *
+     * @param <T>
+     * @param query
+     * @return The publisher, every subscriber executes the query
+     */
+    public <T> DbPublisher<T> publish(AQuery<T> query) {
+        return new DbPublisher<>(() -> service.getByQualification(query), executor);
+    }
+
+    public <T> CompletableFuture<List<T>> getAll(Class<T> type) {
+        return execute(s -> s.getAll(type).toCacheAndClose());
+    }
+
+    public <T> CompletableFuture<Long> count(AQuery<T> query) {
+        return execute(s -> s.count(query));
+    }
+
+    public CompletableFuture<Void> create(Object object) {
+        return execute(
+                s -> {
+                    s.create(object);
+                    return null;
+                });
+    }
+
+    public CompletableFuture<Void> save(Object object) {
+        return execute(
+                s -> {
+                    s.save(object);
+                    return null;
+                });
+    }
+
+    public CompletableFuture<Void> delete(Object object) {
+        return execute(
+                s -> {
+                    s.delete(object);
+                    return null;
+                });
+    }
+
+    public XdbService getService() {
+        return service;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Number of calls waiting for a free slot.
+     *
+     * @return x
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * Stop the executor. Running calls are finished, further calls are executed in the calling
+     * thread.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    public boolean isClosed() {
+        return executor.isShutdown();
+    }
+
+    public interface Task<T> {
+        T call(XdbService service) throws Exception;
+    }
+}
@@ -20,6 +20,7 @@ import java.util.Map;
 
 import org.summerclouds.common.core.error.MException;
 import org.summerclouds.common.db.DbCollection;
+import org.summerclouds.common.db.LimitedDbCollection;
 import org.summerclouds.common.db.query.AQuery;
 
 public interface XdbType<T> {
@@ -46,6 +47,27 @@ public interface XdbType<T> {
      */
     DbCollection<T> getByQualification(AQuery<T> query) throws MException;
 
+    /**
+     * Search and return a page of objects from db. The default implementation skips the rows of
+     * the previous pages and stops after 'limit' rows, implementations should page in the
+     * database.
+     *
+     * @param query
+     * @param parameterValues A list of parameter values or null if not needed
+     * @param offset Rows to skip
+     * @param limit Maximum rows to return, less than zero to ignore
+     * @return a result stream. You need to close the result or iterate it until the end (automatic
+     *     close)
+     * @throws MException
+     */
+    default DbCollection<T> getByQualification(
+            String query, Map<String, Object> parameterValues, int offset, int limit)
+            throws MException {
+        DbCollection<T> res = getByQualification(query, parameterValues);
+        if (offset > 0) res.skip(offset);
+        return limit < 0 ? res : new LimitedDbCollection<>(res, limit);
+    }
+
     /**
      * Search and return objects from db
      *
@@ -16,39 +16,74 @@
 package org.summerclouds.common.db;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.summerclouds.common.core.error.MException;
+import org.summerclouds.common.core.error.MRuntimeException;
+import org.summerclouds.common.core.error.TimeoutRuntimeException;
 import org.summerclouds.common.core.node.INode;
 import org.summerclouds.common.core.node.MNode;
+import org.summerclouds.common.core.tool.MSpring;
 import org.summerclouds.common.core.tool.MString;
 import org.summerclouds.common.core.util.StopWatch;
 import org.summerclouds.common.db.model.Book;
 import org.summerclouds.common.db.model.BookStoreSchema;
+import org.summerclouds.common.db.model.Field;
 import org.summerclouds.common.db.model.Finances;
 import org.summerclouds.common.db.model.Person;
 import org.summerclouds.common.db.model.Person2;
 import org.summerclouds.common.db.model.Regal;
 import org.summerclouds.common.db.model.Store;
+import org.summerclouds.common.db.model.Table;
+import org.summerclouds.common.db.model.TableCache;
 import org.summerclouds.common.db.query.AQuery;
 import org.summerclouds.common.db.query.Db;
+import org.summerclouds.common.db.sql.BoundedDbPool;
 import org.summerclouds.common.db.sql.DbConnection;
 import org.summerclouds.common.db.sql.DbPool;
 import org.summerclouds.common.db.sql.DbPoolBundle;
+import org.summerclouds.common.db.sql.DbResult;
+import org.summerclouds.common.db.sql.DbStatement;
+import org.summerclouds.common.db.sql.JdbcConnection;
+import org.summerclouds.common.db.sql.JdbcResult;
+import org.summerclouds.common.db.sql.Dialect;
+import org.summerclouds.common.db.sql.ReplicaDbPool;
+import org.summerclouds.common.db.sql.StructureSnapshot;
+import org.summerclouds.common.db.sql.analytics.DbMetricsRegistry;
+import org.summerclouds.common.db.sql.analytics.SqlAnalytics;
+import org.summerclouds.common.db.sql.analytics.TimerMetrics;
+import org.summerclouds.common.db.util.DbProperties;
+import org.summerclouds.common.db.util.Property;
+import org.summerclouds.common.db.xdb.XdbAsync;
 import org.summerclouds.common.junit.TestCase;
 
 public class AdbTest extends TestCase {
@@ -288,6 +323,14 @@ public class AdbTest extends TestCase {
         assertNotNull(retRel);
         assertEquals(2, retRel.size());
 
+        // load relations of all books in one query
+        List<Book> books =
+                manager.getByQualification(Db.query(Book.class))
+                        .setBatchSize(10)
+                        .toCacheAndClose();
+        assertEquals(2, books.size());
+        for (Book book : books) assertEquals(p2, book.getLendTo().getRelation().getId());
+
         b = manager.getObject(Book.class, b1);
         assertNotNull(b.getLendToId());
         b.getLendTo().setRelation(null);
@@ -595,6 +638,909 @@ public class AdbTest extends TestCase {
             assertEquals(1, res.size());
         }
 
+        {
+            AQuery<Store> q = Db.query(Store.class).like("name", "LA%").streaming();
+            List<Store> res = manager.getByQualification(q).toCacheAndClose();
+            assertEquals(2, res.size());
+        }
+
+        {
+            // same shape, different values
+            AQuery<Store> q1 = Db.query(Store.class).eq("name", "LA").limit(5);
+            AQuery<Store> q2 = Db.query(Store.class).eq("name", "LA West").limit(5);
+            q1.doFinal();
+            q2.doFinal();
+            StringBuilder shape1 = new StringBuilder();
+            StringBuilder shape2 = new StringBuilder();
+            assertTrue(q1.appendShape(shape1));
+            assertTrue(q2.appendShape(shape2));
+            assertEquals(shape1.toString(), shape2.toString());
+            assertEquals(manager.toQualification(q1), manager.toQualification(q2));
+            assertEquals(1, manager.getByQualification(q2).toCacheAndClose().size());
+        }
+
+        {
+            // offset pages
+            List<Store> res =
+                    manager.getByQualification(Db.query(Store.class).asc("name").page(0, 2))
+                            .toCacheAndClose();
+            assertEquals(2, res.size());
+            res =
+                    manager.getByQualification(Db.query(Store.class).asc("name").page(1, 2))
+                            .toCacheAndClose();
+            assertEquals(1, res.size());
+            try {
+                Db.query(Store.class).page(-1, 2);
+                fail("negative page");
+            } catch (MRuntimeException e) {
+                System.out.println(e);
+            }
+            try {
+                Db.query(Store.class).page(Integer.MAX_VALUE, 2);
+                fail("offset overflow");
+            } catch (MRuntimeException e) {
+                System.out.println(e);
+            }
+        }
+
+        {
+            // keyset pages by primary key
+            List<Store> res =
+                    manager.getByQualification(Db.query(Store.class).seek(2)).toCacheAndClose();
+            assertEquals(2, res.size());
+            String id0 = res.get(0).getId().toString();
+            String id1 = res.get(1).getId().toString();
+            assertTrue(id0.compareTo(id1) < 0);
+            List<Store> res2 =
+                    manager.getByQualification(Db.query(Store.class).seek(2, res.get(1).getId()))
+                            .toCacheAndClose();
+            assertEquals(1, res2.size());
+            assertTrue(id1.compareTo(res2.get(0).getId().toString()) < 0);
+        }
+
+        pool.close();
+    }
+
+    @Test
+    public void testBoundedPool() throws Exception {
+        DbPoolBundle bundle = createPool("testBoundedPool");
+        INode config = bundle.getConfig("test");
+        config.setProperty("pool", "bounded");
+        config.setProperty("max_size", "2");
+        config.setProperty("min_idle", "1");
+        config.setProperty("max_wait", "1s");
+        DbPool pool = bundle.getPool("test");
+        assertTrue(pool instanceof BoundedDbPool);
+        assertEquals(1, pool.getSize());
+
+        DbConnection con1 = pool.getConnection();
+        DbConnection con2 = pool.getConnection();
+        assertEquals(2, pool.getSize());
+        assertEquals(2, pool.getUsedSize());
+        try {
+            pool.getConnection();
+            fail("pool is exhausted");
+        } catch (TimeoutRuntimeException e) {
+            System.out.println(e);
+        }
+
+        con1.close();
+        assertEquals(1, pool.getUsedSize());
+        DbConnection con3 = pool.getConnection();
+        assertEquals(2, pool.getSize());
+
+        con2.close();
+        con3.close();
+        assertEquals(0, pool.getUsedSize());
+        pool.close();
+    }
+
+    @Test
+    public void testStatementCache() throws Exception {
+        DbPool pool = createPool("testStatementCache").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+        DbConnection con = pool.getConnection();
+        JdbcConnection jdbc = (JdbcConnection) con.instance();
+        jdbc.setStatementCacheSize(2);
+        HashMap<String, Object> attributes = new HashMap<>(manager.getNameMapping());
+        attributes.put("name", "x");
+        String q1 = "SELECT * FROM $db.person$ WHERE name=$name$";
+        String q2 = "SELECT * FROM $db.store$ WHERE name=$name$";
+        String q3 = "SELECT * FROM $db.book$ WHERE name=$name$";
+
+        // the statement is checked out while the result is open
+        DbResult res = con.createStatement(q1, null).executeQuery(attributes);
+        Statement first = ((JdbcResult) res).getStatement();
+        assertEquals(0, jdbc.getCachedStatements());
+        res.close();
+        assertEquals(1, jdbc.getCachedStatements());
+
+        // same sql is a hit
+        long hits = jdbc.getStatementCacheHits();
+        res = con.createStatement(q1, null).executeQuery(attributes);
+        assertSame(first, ((JdbcResult) res).getStatement());
+        assertEquals(hits + 1, jdbc.getStatementCacheHits());
+        res.close();
+
+        // execute() returns the statement if the result is closed
+        DbStatement sth = con.createStatement(q1, null);
+        assertTrue(sth.execute(attributes));
+        assertEquals(0, jdbc.getCachedStatements());
+        res = sth.getResultSet();
+        assertSame(first, ((JdbcResult) res).getStatement());
+        res.close();
+        assertEquals(1, jdbc.getCachedStatements());
+
+        // the fetch size is reset on check in
+        attributes.put(DbStatement.FETCH_SIZE_KEY, 50);
+        res = con.createStatement(q1, null).executeQuery(attributes);
+        assertEquals(50, ((JdbcResult) res).getStatement().getFetchSize());
+        res.close();
+        attributes.remove(DbStatement.FETCH_SIZE_KEY);
+        res = con.createStatement(q1, null).executeQuery(attributes);
+        assertSame(first, ((JdbcResult) res).getStatement());
+        assertEquals(0, ((JdbcResult) res).getStatement().getFetchSize());
+        res.close();
+
+        // least recently used is evicted and closed
+        con.createStatement(q2, null).executeQuery(attributes).close();
+        con.createStatement(q1, null).executeQuery(attributes).close();
+        res = con.createStatement(q3, null).executeQuery(attributes);
+        res.close();
+        assertEquals(2, jdbc.getCachedStatements());
+        long misses = jdbc.getStatementCacheMisses();
+        con.createStatement(q1, null).executeQuery(attributes).close();
+        assertEquals(misses, jdbc.getStatementCacheMisses());
+        res = con.createStatement(q2, null).executeQuery(attributes);
+        assertEquals(misses + 1, jdbc.getStatementCacheMisses());
+        res.close();
+
+        // close clears the cache
+        con.close();
+        jdbc.close();
+        assertEquals(0, jdbc.getCachedStatements());
+        assertTrue(first.isClosed());
+        pool.close();
+    }
+
+    @Test
+    public void testParallelInit() throws Exception {
+        DbPoolBundle bundle = createPool("testParallelInit");
+        INode config = bundle.getConfig("test");
+        config.setProperty("pool", "bounded");
+        config.setProperty("max_size", "2");
+        config.setProperty("max_wait", "5s");
+        DbPool pool = bundle.getPool("test");
+
+        // more threads than connections, the init connection must not block the workers
+        DbManager manager =
+                new DbManagerJdbc("", pool, null, new BookStoreSchema()) {
+                    @Override
+                    protected int getInitThreads() {
+                        return 4;
+                    }
+                };
+        assertEquals(0, pool.getUsedSize());
+        Store s1 = new Store();
+        s1.setName("Parallel");
+        s1.create(manager);
+        Store s2 = manager.getObject(Store.class, s1.getId());
+        assertEquals("Parallel", s2.getName());
+        Book b1 = new Book();
+        b1.setName("Parallel");
+        manager.createObject(b1);
+        assertNotNull(manager.getObject(Book.class, b1.getId()));
+
+        // the bulk structure contains the created tables and columns
+        Dialect dialect = pool.getDialect();
+        Table table = manager.getTable(manager.getRegistryName(Store.class));
+        String tableName = dialect.normalizeTableName(table.getTableName());
+        String columnName = dialect.normalizeColumnName(table.getField("name").getMappedName());
+        DbConnection con = pool.getConnection();
+        StructureSnapshot snapshot = dialect.loadStructure(con);
+        con.close();
+        assertTrue(snapshot.hasTable(tableName));
+        assertNotNull(snapshot.getColumn(tableName, columnName));
+        assertNull(snapshot.getColumn(tableName, "unknown_column"));
+        assertFalse(snapshot.hasTable("unknown_table"));
+
+        // a reload uses the snapshot and the fingerprints
+        manager.reconnect();
+        assertEquals("Parallel", manager.getObject(Store.class, s1.getId()).getName());
+
+        pool.close();
+    }
+
+    @Test
+    public void testStructureFingerprint() throws Exception {
+        DbPool pool = createPool("testStructureFingerprint").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+        String registryName = manager.getRegistryName(Store.class);
+        Table table = manager.getTable(registryName);
+        DbProperties properties =
+                new DbProperties(manager, manager.getRegistryName(BookStoreSchema.class));
+        String key = DbManagerJdbc.DATABASE_STRUCTURE + registryName;
+        assertNotNull(table.getFingerprint());
+        assertEquals(table.getFingerprint(), properties.get(key));
+
+        Dialect dialect = pool.getDialect();
+        String tableName = dialect.normalizeTableName(table.getTableName());
+        String columnName =
+                dialect.normalizeColumnName(table.getField("address").getMappedName());
+
+        // unchanged definition, the structure is not compared and the column stays removed
+        DbConnection con = pool.getConnection();
+        con.createStatement("ALTER TABLE " + tableName + " DROP COLUMN " + columnName, null)
+                .execute(manager.getNameMapping());
+        con.commit();
+        con.close();
+        manager.reconnect();
+        con = pool.getConnection();
+        assertNull(dialect.loadStructure(con).getColumn(tableName, columnName));
+        con.close();
+
+        // changed definition, the structure is reconciled
+        properties.set(key, "changed");
+        manager.reconnect();
+        con = pool.getConnection();
+        assertNotNull(dialect.loadStructure(con).getColumn(tableName, columnName));
+        con.close();
+        assertEquals(manager.getTable(registryName).getFingerprint(), properties.get(key));
+
+        // dropped table, created again
+        con = pool.getConnection();
+        assertTrue(dialect.existsTable(con, tableName));
+        con.createStatement("DROP TABLE " + tableName, null).execute(manager.getNameMapping());
+        con.commit();
+        assertFalse(dialect.existsTable(con, tableName));
+        con.close();
+        manager.reconnect();
+        con = pool.getConnection();
+        assertTrue(dialect.loadStructure(con).hasTable(tableName));
+        assertTrue(dialect.existsTable(con, tableName));
+        con.close();
+        Store store = new Store();
+        store.setName("Fingerprint");
+        store.create(manager);
+        assertEquals("Fingerprint", manager.getObject(Store.class, store.getId()).getName());
+
+        pool.close();
+    }
+
+    @Test
+    public void testSplitPoints() throws Exception {
+        DbPool pool = createPool("testSplitPoints").getPool("test");
+        Dialect dialect = pool.getDialect();
+        DbConnection con = pool.getConnection();
+        Connection jdbc = ((JdbcConnection) con.instance()).getConnection();
+        try (Statement sth = jdbc.createStatement()) {
+            sth.execute("CREATE TABLE split_test (id BIGINT PRIMARY KEY, name VARCHAR(20))");
+            sth.execute("INSERT INTO split_test VALUES (" + Long.MIN_VALUE + ", 'min')");
+            sth.execute("INSERT INTO split_test VALUES (" + Long.MAX_VALUE + ", 'max')");
+            for (int i = 0; i < 100; i++)
+                sth.execute(
+                        "INSERT INTO split_test VALUES ("
+                                + i
+                                + ", 'n"
+                                + String.format("%02d", i)
+                                + "')");
+        }
+
+        // the whole range of long, the width must not overflow
+        List<Object> points = dialect.getSplitPoints(jdbc, "split_test", "id", 4);
+        assertEquals(3, points.size());
+        long last = Long.MIN_VALUE;
+        for (Object point : points) {
+            assertTrue((Long) point > last);
+            last = (Long) point;
+        }
+
+        // nearly equal row count for other columns, "max" and "min" are sorted before "n00"
+        points = dialect.getSplitPoints(jdbc, "split_test", "name", 4);
+        assertEquals(3, points.size());
+        for (int i = 0; i < 3; i++) {
+            int rank = Integer.parseInt(((String) points.get(i)).substring(1)) + 2;
+            assertTrue(Math.abs(rank - 102 * (i + 1) / 4) <= 1, "rank " + rank);
+        }
+
+        con.close();
+        pool.close();
+    }
+
+    @Test
+    public void testReplicaPool() throws Exception {
+        DbPool primary = createPool("testReplicaPrimary").getPool("test");
+        DbPool replica1 = createPool("testReplica").getPool("test");
+        DbPool replica2 = createPool("testReplica").getPool("test");
+        ReplicaDbPool pool =
+                new ReplicaDbPool(null, Arrays.asList(replica1, replica2), primary);
+
+        // round robin
+        DbConnection con1 = pool.getConnection();
+        DbConnection con2 = pool.getConnection();
+        assertEquals(1, replica1.getUsedSize());
+        assertEquals(1, replica2.getUsedSize());
+        assertEquals(2, pool.getUsedSize());
+        con1.close();
+        con2.close();
+
+        // closed replicas are skipped, then the fallback is used
+        replica1.close();
+        assertEquals(1, pool.getAvailableSize());
+        con1 = pool.getConnection();
+        assertEquals(1, replica2.getUsedSize());
+        con1.close();
+        replica2.close();
+        con2 = pool.getConnection();
+        assertEquals(1, primary.getUsedSize());
+        con2.close();
+
+        pool.close();
+        primary.close();
+    }
+
+    @Test
+    public void testEntityCache() throws Exception {
+        DbPool pool = createPool("testEntityCache").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+        String registryName = manager.getRegistryName(BookStoreSchema.class);
+        TableCache cache = manager.getTable(registryName).getCache();
+        assertNotNull(cache);
+
+        Property p = new Property();
+        p.setKey("cache.test");
+        p.setValue("1");
+        manager.createObject(registryName, p);
+
+        // second read is a hit, every hit is a new instance
+        Property p1 = (Property) manager.getObject(registryName, "cache.test");
+        long hits = cache.getHits();
+        Property p2 = (Property) manager.getObject(registryName, "cache.test");
+        assertEquals(hits + 1, cache.getHits());
+        assertNotSame(p1, p2);
+        assertEquals("1", p2.getValue());
+
+        // save removes the entry
+        p2.setValue("2");
+        manager.saveObject(registryName, p2);
+        assertEquals("2", ((Property) manager.getObject(registryName, "cache.test")).getValue());
+
+        // a row selected before the key was removed is not stored
+        Object[] keys = new Object[] {"cache.test"};
+        DbResult row = cache.get(keys);
+        assertNotNull(row);
+        long version = cache.getVersion(keys);
+        cache.remove(keys);
+        cache.put(keys, row, version);
+        assertNull(cache.get(keys));
+
+        // time to live
+        TableCache shortCache = new TableCache(10, 50);
+        shortCache.put(keys, row, shortCache.getVersion(keys));
+        assertNotNull(shortCache.get(keys));
+        Thread.sleep(100);
+        assertNull(shortCache.get(keys));
+
+        // uncommitted data is not cached
+        DbTransaction.encapsulate(pool);
+        try {
+            p2.setValue("3");
+            manager.saveObject(registryName, p2);
+            assertEquals(
+                    "3", ((Property) manager.getObject(registryName, "cache.test")).getValue());
+        } finally {
+            DbTransaction.rollbackAndRelease();
+        }
+        assertEquals("2", ((Property) manager.getObject(registryName, "cache.test")).getValue());
+
+        // a row cached by another thread before the own connection is committed is removed
+        Property p3 = (Property) manager.getObject(registryName, "cache.test");
+        DbResult committed = cache.get(keys);
+        assertNotNull(committed);
+        DbConnection con = pool.getConnection();
+        p3.setValue("4");
+        manager.saveObject(con, registryName, p3);
+        assertNull(cache.get(keys));
+        cache.put(keys, committed, cache.getVersion(keys));
+        assertNotNull(cache.get(keys));
+        con.commit();
+        assertNull(cache.get(keys));
+        con.close();
+        assertEquals("4", ((Property) manager.getObject(registryName, "cache.test")).getValue());
+
+        // delete removes the entry
+        manager.deleteObject(registryName, p2);
+        assertNull(manager.getObject(registryName, "cache.test"));
+
+        pool.close();
+    }
+
+    @Test
+    public void testBoundAccessors() throws Exception {
+        DbPool pool = createPool("testBoundAccessors").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+
+        // field annotated attributes are bound to the field, not to the setter
+        Table storeTable = manager.getTable(manager.getRegistryName(Store.class));
+        assertTrue(storeTable.getField("name").isBound());
+        Store s1 = new Store();
+        s1.setName("Bound");
+        s1.create(manager);
+        int calls = Store.nameSetterCalls;
+        Store s2 = manager.getObject(Store.class, s1.getId());
+        assertEquals("Bound", s2.getName());
+        assertEquals(calls, Store.nameSetterCalls);
+
+        // method annotated attributes use the getter and setter
+        Table bookTable = manager.getTable(manager.getRegistryName(Book.class));
+        assertTrue(bookTable.getField("name").isBound());
+        Book b1 = new Book();
+        b1.setName("Accessor");
+        manager.createObject(b1);
+        Book b2 = manager.getObject(Book.class, b1.getId());
+        assertEquals("Accessor", b2.getName());
+
+        pool.close();
+    }
+
+    @Test
+    public void testObjectFactory() throws Exception {
+        DbPool pool = createPool("testObjectFactory").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+
+        // the class is loaded by the default activator, objects are created by the cached
+        // constructor
+        assertSame(MSpring.getDefaultActivator(), manager.getActivator());
+        Table table = manager.getTable(manager.getRegistryName(Store.class));
+        assertEquals(Store.class, table.getObjectClass());
+        Object obj = table.newObject(null, true);
+        assertTrue(obj instanceof Store);
+        assertTrue(((Store) obj).isAdbManaged());
+
+        // a schema with an own factory creates the objects itself
+        final int[] created = new int[1];
+        BookStoreSchema schema =
+                new BookStoreSchema() {
+                    @Override
+                    public Object createObject(
+                            Class<?> clazz,
+                            String registryName,
+                            DbResult ret,
+                            DbManager manager,
+                            boolean isPersistent)
+                            throws Exception {
+                        created[0]++;
+                        return super.createObject(
+                                clazz, registryName, ret, manager, isPersistent);
+                    }
+                };
+        DbManager manager2 = new DbManagerJdbc("", pool, null, schema);
+        Table table2 = manager2.getTable(manager2.getRegistryName(Store.class));
+        assertNull(table2.getObjectClass());
+        int before = created[0];
+        assertTrue(table2.newObject(null, true) instanceof Store);
+        assertEquals(before + 1, created[0]);
+
+        pool.close();
+    }
+
+    @Test
+    public void testSnapshotUpdate() throws Exception {
+        DbPool pool = createPool("testSnapshotUpdate").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+        Table table = manager.getTable(manager.getRegistryName(Store.class));
+
+        Store s1 = new Store();
+        s1.setName("Snapshot");
+        s1.setAddress("Dublin");
+        s1.create(manager);
+        assertFalse(s1.isAdbChanged());
+
+        Store s2 = manager.getObject(Store.class, s1.getId());
+        assertEquals(0, table.getChangedFields(s2).size());
+        assertFalse(s2.saveChanged());
+
+        s2.setAddress("Cork");
+        assertTrue(s2.isAdbChanged());
+        assertEquals(1, table.getChangedFields(s2).size());
+        assertTrue(s2.saveChanged());
+        assertFalse(s2.isAdbChanged());
+
+        // the stale object writes only the changed name, the address of s2 is kept
+        s1.setName("Other");
+        s1.save();
+        s1.reload();
+        assertEquals("Cork", s1.getAddress());
+        assertEquals("Other", s1.getName());
+
+        // an unchanged object of a deleted row can't be saved
+        Store s3 = manager.getObject(Store.class, s1.getId());
+        s1.delete();
+        try {
+            s3.save();
+            fail("saved a deleted row");
+        } catch (MException e) {
+            System.out.println(e);
+        }
+
+        pool.close();
+    }
+
+    @Test
+    public void testProjection() throws Exception {
+        DbPool pool = createPool("testProjection").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+        Table table = manager.getTable(manager.getRegistryName(Store.class));
+
+        Store s1 = new Store();
+        s1.setName("Projection");
+        s1.setAddress("Galway");
+        s1.create(manager);
+
+        List<Store> list =
+                manager.getByQualification(
+                                Db.query(Store.class).eq("name", "Projection").select("name"))
+                        .toCacheAndClose();
+        assertEquals(1, list.size());
+        Store s2 = list.get(0);
+        assertEquals(s1.getId(), s2.getId());
+        assertEquals("Projection", s2.getName());
+        assertNull(s2.getAddress());
+        assertTrue(table.isPartial(s2));
+
+        // only the changed column is written, the address is kept
+        s2.setName("Projected");
+        manager.saveObject(s2);
+        s1.reload();
+        assertEquals("Projected", s1.getName());
+        assertEquals("Galway", s1.getAddress());
+        assertFalse(table.isPartial(s1));
+
+        // objects without snapshot can't be marked as partial
+        try {
+            manager.getByQualification(Db.query(Person.class).select("name"));
+            fail("projection of a type without snapshot");
+        } catch (MException e) {
+            System.out.println(e);
+        }
+
+        pool.close();
+    }
+
+    @Test
+    public void testLazyBlob() throws Exception {
+        DbPool pool = createPool("testLazyBlob").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+
+        Store s1 = new Store();
+        s1.setName("Lazy");
+        HashMap<String, String> map = new HashMap<>();
+        map.put("a", "b");
+        s1.getLazyValue().set(map);
+        s1.create(manager);
+
+        Store s2 = manager.getObject(Store.class, s1.getId());
+        assertFalse(s2.getLazyValue().isLoaded());
+
+        // untouched value is written back as it was loaded
+        s2.setName("Lazy2");
+        s2.save();
+        assertFalse(s2.getLazyValue().isLoaded());
+        assertEquals("b", s2.getLazyValue().get().get("a"));
+        assertTrue(s2.getLazyValue().isLoaded());
+
+        s2.getLazyValue().get().put("c", "d");
+        s2.save();
+        s1.reload();
+        assertEquals("Lazy2", s1.getName());
+        assertEquals("d", s1.getLazyValue().get().get("c"));
+
+        pool.close();
+    }
+
+    @Test
+    public void testBatchObjects() throws Exception {
+        DbPool pool = createPool("testBatchObjects").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+
+        LinkedList<Person> persons = new LinkedList<>();
+        for (int i = 0; i < 25; i++) {
+            Person p = new Person();
+            p.setName("Batch " + i);
+            persons.add(p);
+        }
+        manager.createObjects(persons);
+        for (Person p : persons) assertNotNull(p.getId());
+
+        {
+            List<Person> list =
+                    manager.getByQualification(Db.query(Person.class).like("name", "Batch %"))
+                            .toCacheAndClose();
+            assertEquals(25, list.size());
+        }
+
+        for (Person p : persons) p.setName("Renamed " + p.getName());
+        manager.saveObjects(persons);
+        {
+            List<Person> list =
+                    manager.getByQualification(Db.query(Person.class).like("name", "Renamed %"))
+                            .toCacheAndClose();
+            assertEquals(25, list.size());
+        }
+
+        manager.deleteObjects(persons);
+        {
+            List<Person> list =
+                    manager.getByQualification(Db.query(Person.class).like("name", "Renamed %"))
+                            .toCacheAndClose();
+            assertEquals(0, list.size());
+        }
+
+        // the batch writes only the changed columns, stale objects keep the other columns
+        LinkedList<Store> stores = new LinkedList<>();
+        LinkedList<Store> stale = new LinkedList<>();
+        for (int i = 0; i < 4; i++) {
+            Store s = manager.inject(new Store());
+            s.setName("Store " + i);
+            s.setAddress("Dublin");
+            stores.add(s);
+        }
+        manager.createObjects(stores);
+        for (Store s : stores) stale.add(manager.getObject(Store.class, s.getId()));
+        for (Store s : stores) s.setAddress("Cork");
+        manager.saveObjects(stores);
+        stale.get(0).setName("Renamed 0");
+        stale.get(1).setName("Renamed 1");
+        stale.get(2).setIntValue(2);
+        manager.saveObjects(stale);
+        for (int i = 0; i < 4; i++) {
+            Store s = manager.getObject(Store.class, stores.get(i).getId());
+            assertEquals("Cork", s.getAddress());
+            assertEquals(i < 2 ? "Renamed " + i : "Store " + i, s.getName());
+            assertEquals(i == 2 ? 2 : 0, s.getIntValue());
+        }
+
+        // unchanged objects are not written, but the row must exist
+        manager.deleteObject(stores.get(3));
+        try {
+            manager.saveObjects(stale);
+            fail("saved a deleted row");
+        } catch (MException e) {
+            System.out.println(e);
+        }
+
+        pool.close();
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        DbPool pool = createPool("testAsync").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+        XdbAsync async = new XdbAsync(manager, 2);
+
+        LinkedList<Person> persons = new LinkedList<>();
+        LinkedList<CompletableFuture<Void>> created = new LinkedList<>();
+        for (int i = 0; i < 10; i++) {
+            Person p = new Person();
+            p.setName("Async " + i);
+            persons.add(p);
+            created.add(async.create(p));
+        }
+        CompletableFuture.allOf(created.toArray(new CompletableFuture[0])).get();
+        assertEquals(0, async.getQueueSize());
+
+        long count = async.count(Db.query(Person.class).like("name", "Async %")).get();
+        assertEquals(10, count);
+        Person p = async.getObject(Person.class, persons.getFirst().getId()).get();
+        assertEquals("Async 0", p.getName());
+        List<Person> list =
+                async.getByQualification(Db.query(Person.class).like("name", "Async %")).get();
+        assertEquals(10, list.size());
+
+        async.close();
+        assertTrue(async.isClosed());
+
+        // the facade of the manager survives a reconnect and is closed with the manager
+        XdbAsync shared = manager.async();
+        assertSame(shared, manager.async());
+        manager.reconnect();
+        assertSame(shared, manager.async());
+        count = shared.count(Db.query(Person.class).like("name", "Async %")).get();
+        assertEquals(10, count);
+        manager.disconnect();
+        assertTrue(shared.isClosed());
+        assertNotSame(shared, manager.async());
+        manager.closeAsync();
+
+        pool.close();
+    }
+
+    @Test
+    public void testPublisher() throws Exception {
+        DbPool pool = createPool("testPublisher").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+        LinkedList<Person> persons = new LinkedList<>();
+        for (int i = 0; i < 30; i++) {
+            Person p = new Person();
+            p.setName("Stream " + i);
+            persons.add(p);
+        }
+        manager.createObjects(persons);
+        XdbAsync async = new XdbAsync(manager, 2);
+        AQuery<Person> query = Db.query(Person.class).like("name", "Stream %");
+
+        // read all, five objects per request
+        {
+            List<Person> received = Collections.synchronizedList(new LinkedList<>());
+            CompletableFuture<Boolean> done = new CompletableFuture<>();
+            async.publish(query)
+                    .setChunkSize(2)
+                    .subscribe(
+                            new Flow.Subscriber<Person>() {
+                                private Flow.Subscription subscription;
+
+                                @Override
+                                public void onSubscribe(Flow.Subscription subscription) {
+                                    this.subscription = subscription;
+                                    subscription.request(5);
+                                }
+
+                                @Override
+                                public void onNext(Person item) {
+                                    received.add(item);
+                                    if (received.size() % 5 == 0) subscription.request(5);
+                                }
+
+                                @Override
+                                public void onError(Throwable throwable) {
+                                    done.completeExceptionally(throwable);
+                                }
+
+                                @Override
+                                public void onComplete() {
+                                    done.complete(true);
+                                }
+                            });
+            assertTrue(done.get(10, TimeUnit.SECONDS));
+            assertEquals(30, received.size());
+        }
+
+        // cancel after three objects, the connection is returned
+        {
+            CompletableFuture<Integer> done = new CompletableFuture<>();
+            async.publish(query)
+                    .subscribe(
+                            new Flow.Subscriber<Person>() {
+                                private Flow.Subscription subscription;
+                                private int cnt;
+
+                                @Override
+                                public void onSubscribe(Flow.Subscription subscription) {
+                                    this.subscription = subscription;
+                                    subscription.request(3);
+                                }
+
+                                @Override
+                                public void onNext(Person item) {
+                                    cnt++;
+                                    if (cnt == 3) {
+                                        subscription.cancel();
+                                        done.complete(cnt);
+                                    }
+                                }
+
+                                @Override
+                                public void onError(Throwable throwable) {
+                                    done.completeExceptionally(throwable);
+                                }
+
+                                @Override
+                                public void onComplete() {
+                                    done.complete(-1);
+                                }
+                            });
+            assertEquals(3, done.get(10, TimeUnit.SECONDS).intValue());
+            long start = System.currentTimeMillis();
+            while (pool.getUsedSize() > 0 && System.currentTimeMillis() - start < 5000)
+                Thread.sleep(10);
+            assertEquals(0, pool.getUsedSize());
+        }
+
+        async.close();
+        pool.close();
+    }
+
+    @Test
+    public void testScanner() throws Exception {
+        DbPool pool = createPool("testScanner").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+        LinkedList<Person> persons = new LinkedList<>();
+        for (int i = 0; i < 40; i++) {
+            Person p = new Person();
+            p.setName("Scan " + i);
+            persons.add(p);
+        }
+        manager.createObjects(persons);
+
+        Set<String> done = ConcurrentHashMap.newKeySet();
+        DbScanner.Checkpoint checkpoint =
+                new DbScanner.Checkpoint() {
+                    @Override
+                    public boolean isDone(DbScanner.Range range) {
+                        return done.contains(range.toString());
+                    }
+
+                    @Override
+                    public void done(DbScanner.Range range, long count) {
+                        done.add(range.toString());
+                    }
+                };
+        DbScanner<Person> scanner =
+                manager.scan(Person.class).setParts(4).setParallelism(2).setCheckpoint(checkpoint);
+        assertEquals(4, scanner.getRanges().size());
+
+        long cnt =
+                scanner.scan(
+                        (con, p) -> {
+                            p.setName("Scanned " + p.getName());
+                            manager.saveObject(con, p);
+                        });
+        assertEquals(40, cnt);
+        assertEquals(4, done.size());
+        List<Person> list =
+                manager.getByQualification(Db.query(Person.class).like("name", "Scanned Scan %"))
+                        .toCacheAndClose();
+        assertEquals(40, list.size());
+
+        // all ranges are checkpointed
+        assertEquals(0, scanner.scan((con, p) -> fail("already processed")));
+
+        // resume with the persisted ranges, new rows don't move the ranges
+        List<DbScanner.Range> ranges = scanner.getRanges();
+        DbScanner.Range copy =
+                new DbScanner.Range(99, ranges.get(1).getFrom(), ranges.get(1).getTo());
+        assertEquals(copy, ranges.get(1));
+        for (int i = 0; i < 10; i++) {
+            Person p = new Person();
+            p.setName("Scan new " + i);
+            manager.createObject(p);
+        }
+        done.remove(ranges.get(2).toString());
+        long resumed = scanner.scan(ranges, (con, p) -> {});
+        assertTrue(resumed > 0 && resumed < 50);
+        done.clear();
+        assertEquals(50, scanner.scan(ranges, (con, p) -> {}));
+
+        pool.close();
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        DbPool pool = createPool("testMetrics").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+        DbMetricsRegistry registry = new DbMetricsRegistry();
+        SqlAnalytics.addListener(registry);
+        try {
+            Person p = new Person();
+            p.setName("Metrics");
+            manager.createObject(p);
+            assertNotNull(manager.getObject(Person.class, p.getId()));
+            manager.deleteObject(p);
+
+            Map<String, TimerMetrics> ops =
+                    registry.getTables().get(manager.getRegistryName(Person.class));
+            assertNotNull(ops);
+            assertEquals(1, ops.get("create").getCount());
+            assertEquals(1, ops.get("get").getCount());
+            assertEquals(1, ops.get("delete").getCount());
+            assertEquals(0, ops.get("create").getErrors());
+            assertTrue(registry.getStatements().size() > 0);
+            assertTrue(registry.getPools().size() > 0);
+            for (TimerMetrics m : registry.getStatements())
+                assertTrue(m.getPercentile(0.99) >= m.getPercentile(0.5));
+        } finally {
+            SqlAnalytics.removeListener(registry);
+        }
         pool.close();
     }
 
@@ -651,6 +1597,97 @@ public class AdbTest extends TestCase {
         assertEquals(1000, store.getSqlDate().getTime());
     }
 
+    @Test
+    public void testRowMapper() throws Exception {
+        DbPool pool = createPool("testRowMapper").getPool("test");
+        DbManager manager = new DbManagerJdbc("", pool, null, new BookStoreSchema());
+
+        Calendar calendar = Calendar.getInstance(Locale.UK);
+        calendar.setTimeInMillis(3000);
+        Store full = manager.inject(new Store());
+        full.setName("Full");
+        full.setAddress("Street");
+        full.setPrincipal(UUID.randomUUID());
+        full.setSqlDate(new Date(1000));
+        full.setDateValue(new java.util.Date(2000));
+        full.setCalendarValue(calendar);
+        full.setIntValue(1);
+        full.setLongValue(Long.MAX_VALUE);
+        full.setBoolValue(true);
+        full.setDoubleValue(2.5);
+        full.setFloatValue(1.5f);
+        full.setBigDecimalValue(BigDecimal.TEN);
+        full.setCharValue('c');
+        full.setShortValue((short) 3);
+        full.setByteValue((byte) 4);
+        full.setKind(Store.KIND.GAMES);
+        full.getBlobValue().put("a", "b");
+        full.save();
+
+        Store empty = manager.inject(new Store());
+        empty.setBlobValue(null);
+        empty.save();
+
+        // index path, the row mapper resolves the columns once per result
+        assertFull(full, manager.getObject(Store.class, full.getId()));
+        assertEmpty(manager.getObject(Store.class, empty.getId()));
+
+        // name path, every field looks up its own column
+        Table table = manager.getTable(manager.getRegistryName(Store.class));
+        DbConnection con = pool.getConnection();
+        DbResult res =
+                con.createStatement("SELECT * FROM $db.store$", null)
+                        .executeQuery(manager.getNameMapping());
+        int cnt = 0;
+        while (res.next()) {
+            Store store = manager.inject(new Store());
+            for (Field field : table.getFields()) field.setToTarget(res, store);
+            if (full.getId().equals(store.getId())) assertFull(full, store);
+            else assertEmpty(store);
+            cnt++;
+        }
+        res.close();
+        con.close();
+        assertEquals(2, cnt);
+
+        pool.close();
+    }
+
+    private void assertFull(Store expected, Store store) {
+        assertEquals("Full", store.getName());
+        assertEquals("Street", store.getAddress());
+        assertEquals(expected.getPrincipal(), store.getPrincipal());
+        assertEquals(1000, store.getSqlDate().getTime());
+        assertEquals(2000, store.getDateValue().getTime());
+        assertEquals(3000, store.getCalendarValue().getTimeInMillis());
+        assertEquals(1, store.getIntValue());
+        assertEquals(Long.MAX_VALUE, store.getLongValue());
+        assertTrue(store.isBoolValue());
+        assertEquals(2.5, store.getDoubleValue());
+        assertEquals(1.5f, store.getFloatValue());
+        assertEquals(0, BigDecimal.TEN.compareTo(store.getBigDecimalValue()));
+        assertEquals('c', store.getCharValue());
+        assertEquals(3, store.getShortValue());
+        assertEquals(4, store.getByteValue());
+        assertEquals(Store.KIND.GAMES, store.getKind());
+        assertEquals("b", store.getBlobValue().get("a"));
+    }
+
+    private void assertEmpty(Store store) {
+        assertNull(store.getName());
+        assertNull(store.getAddress());
+        assertNull(store.getPrincipal());
+        assertNull(store.getSqlDate());
+        assertNull(store.getDateValue());
+        assertNull(store.getCalendarValue());
+        assertEquals(0, store.getIntValue());
+        assertEquals(0, store.getLongValue());
+        assertFalse(store.isBoolValue());
+        assertNull(store.getBigDecimalValue());
+        assertEquals(Store.KIND.BOOKS, store.getKind());
+        assertNull(store.getBlobValue());
+    }
+
     @Test
     public void testDateType() throws Exception {
         DbPool pool = createPool("testDataTypes").getPool("test");
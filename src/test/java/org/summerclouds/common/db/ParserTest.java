@@ -19,11 +19,19 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.UUID;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.summerclouds.common.core.M;
+import org.summerclouds.common.core.parser.CompiledString;
+import org.summerclouds.common.core.util.Raw;
 import org.summerclouds.common.db.model.Person;
+import org.summerclouds.common.db.sql.BindParameters;
+import org.summerclouds.common.db.sql.DbStatement;
+import org.summerclouds.common.db.sql.parser.SqlCompiler;
 import org.summerclouds.common.db.util.ParserJdbcDebug;
 import org.summerclouds.common.junit.TestCase;
 
@@ -132,6 +140,39 @@ public class ParserTest extends TestCase {
         assertEquals("[name, created]", parser.getColumnNames().toString());
     }
 
+    @Test
+    public void testBindParameters() throws Throwable {
+        SqlCompiler compiler =
+                new SqlCompiler(
+                        new SqlCompiler() {
+                            @Override
+                            public boolean isBindParameters() {
+                                return true;
+                            }
+                        });
+        CompiledString query =
+                compiler.compileString(
+                        "SELECT * FROM $table$ WHERE name=$name$ AND id IN ($ids$) AND x=$x,raw$");
+
+        BindParameters binder = new BindParameters();
+        HashMap<String, Object> attributes = new HashMap<>();
+        attributes.put(DbStatement.BIND_PARAMETERS_KEY, binder);
+        attributes.put("table", new Raw("book_"));
+        attributes.put("name", "O'Neil");
+        attributes.put("ids", Arrays.asList(1, 2, 3));
+        attributes.put("x", 5);
+
+        String sql = query.execute(attributes);
+        System.out.println(sql + " " + binder);
+
+        assertEquals("SELECT * FROM book_ WHERE name=? AND id IN (?,?,?) AND x=5", sql);
+        assertEquals(4, binder.size());
+        assertEquals(M.TYPE_TEXT, binder.getType(0));
+        assertEquals("O'Neil", binder.getValue(0));
+        assertEquals(M.TYPE_INT, binder.getType(3));
+        assertEquals(3, binder.getValue(3));
+    }
+
     @Test
     public void testRealQuery() throws Throwable {
         DbManager manager = AdbTest.createBookstoreManager();
@@ -15,10 +15,17 @@
  */
 package org.summerclouds.common.db;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.sql.Connection;
+import java.util.Set;
+
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.summerclouds.common.core.error.TimeoutRuntimeException;
 import org.summerclouds.common.core.node.INode;
 import org.summerclouds.common.core.node.MNode;
 import org.summerclouds.common.core.tool.MPeriod;
@@ -26,10 +33,16 @@ import org.summerclouds.common.core.tool.MThread;
 import org.summerclouds.common.core.util.Value;
 import org.summerclouds.common.db.model.TransactionDummy;
 import org.summerclouds.common.db.model.TransactionSchema;
+import org.summerclouds.common.db.sql.DbConnection;
 import org.summerclouds.common.db.sql.DbPool;
 import org.summerclouds.common.db.sql.DbPoolBundle;
+import org.summerclouds.common.db.sql.Dialect;
+import org.summerclouds.common.db.sql.JdbcConnection;
+import org.summerclouds.common.db.transaction.AdvisoryLockStrategy;
+import org.summerclouds.common.db.transaction.LockBase;
 import org.summerclouds.common.db.transaction.MemoryLockStrategy;
 import org.summerclouds.common.db.transaction.NestedTransactionException;
+import org.summerclouds.common.db.transaction.StripedMemoryLockStrategy;
 
 public class TransactionTest {
 
@@ -149,6 +162,83 @@ public class TransactionTest {
         DbTransaction.releaseLock();
     }
 
+    @Test
+    public void testAdvisoryLock() throws Exception {
+        DbPool pool = createPool("transactionAdvisory").getPool("test");
+        DbSchema schema =
+                new TransactionSchema() {
+                    {
+                        lockStrategy = new AdvisoryLockStrategy();
+                    }
+                };
+        DbManager advisory = new DbManagerJdbc("", pool, null, schema);
+        TransactionDummy a1 = advisory.inject(new TransactionDummy());
+        a1.save();
+
+        DbTransaction.lock(2000, a1);
+        try {
+            final Value<Boolean> done = new Value<>(false);
+            final Value<String> fail = new Value<>();
+            new MThread(
+                            new Runnable() {
+
+                                @Override
+                                public void run() {
+                                    try {
+                                        DbTransaction.lock(500, a1);
+                                        fail.setValue("Concurrent Lock Possible");
+                                        return;
+                                    } catch (Exception t) {
+                                        System.out.println(t);
+                                    } finally {
+                                        DbTransaction.releaseLock();
+                                    }
+                                    done.setValue(true);
+                                }
+                            })
+                    .start();
+
+            while (done.getValue() == false && fail.getValue() == null) MThread.sleep(200);
+
+            if (fail.getValue() != null) fail(fail.getValue());
+        } finally {
+            DbTransaction.releaseLock();
+        }
+
+        assertEquals(0, ((AdvisoryLockStrategy) schema.getLockStrategy()).getSessionCount());
+        DbTransaction.lock(500, a1);
+        DbTransaction.releaseLock();
+        pool.close();
+    }
+
+    @Test
+    public void testAdvisoryReleaseAll() throws Exception {
+        DbPool pool = createPool("transactionReleaseAll").getPool("test");
+        Dialect dialect = pool.getDialect();
+        DbConnection con1 = pool.getConnection();
+        DbConnection con2 = pool.getConnection();
+        Connection jdbc1 = ((JdbcConnection) con1.instance()).getConnection();
+        Connection jdbc2 = ((JdbcConnection) con2.instance()).getConnection();
+
+        assertTrue(dialect.advisoryLock(jdbc1, "a", 0));
+        assertTrue(dialect.advisoryLock(jdbc1, "b", 0));
+        assertFalse(dialect.advisoryLock(jdbc2, "a", 0));
+
+        // emulated locks are not released with the session, release them explicitly
+        dialect.advisoryReleaseAll(jdbc1);
+        assertTrue(dialect.advisoryLock(jdbc2, "a", 0));
+        assertTrue(dialect.advisoryLock(jdbc2, "b", 0));
+        assertFalse(dialect.advisoryUnlock(jdbc1, "a"));
+        assertTrue(dialect.advisoryUnlock(jdbc2, "a"));
+        assertTrue(dialect.advisoryUnlock(jdbc2, "b"));
+        assertTrue(dialect.advisoryLock(jdbc1, "a", 0));
+        assertTrue(dialect.advisoryUnlock(jdbc1, "a"));
+
+        con1.close();
+        con2.close();
+        pool.close();
+    }
+
     @Test
     public void testConcurrentLockTimeout() throws Exception {
 
@@ -211,4 +301,89 @@ public class TransactionTest {
                     .setMaxLockAge(MPeriod.HOUR_IN_MILLISECONDS); // set back to 'long'
         }
     }
+
+    @Test
+    public void testStripedLockStrategy() throws Exception {
+        StripedMemoryLockStrategy strategy = new StripedMemoryLockStrategy(4);
+        LockBase owner1 = new DummyLock("owner1");
+        LockBase owner2 = new DummyLock("owner2");
+
+        // only the owner can release the lock
+        strategy.lock(null, "a", owner1, 1000);
+        assertTrue(strategy.isLockedByOwner(null, "a", owner1));
+        assertFalse(strategy.isLockedByOwner(null, "a", owner2));
+        strategy.releaseLock(null, "a", owner2);
+        assertTrue(strategy.isLocked(null, "a", owner2));
+
+        // timeout
+        long start = System.currentTimeMillis();
+        try {
+            strategy.lock(null, "a", owner2, 200);
+            fail("Concurrent Lock Possible");
+        } catch (TimeoutRuntimeException e) {
+            System.out.println(e);
+        }
+        assertTrue(System.currentTimeMillis() - start >= 200);
+
+        // contention, the waiter gets the lock after release
+        final Value<Boolean> acquired = new Value<>(false);
+        Thread waiter =
+                new Thread(
+                        () -> {
+                            strategy.lock(null, "a", owner2, 5000);
+                            acquired.setValue(true);
+                        });
+        waiter.start();
+        MThread.sleep(200);
+        assertFalse(acquired.getValue());
+        strategy.releaseLock(null, "a", owner1);
+        waiter.join(5000);
+        assertTrue(acquired.getValue());
+        assertTrue(strategy.isLockedByOwner(null, "a", owner2));
+        strategy.releaseLock(null, "a", owner2);
+        assertFalse(strategy.isLocked(null, "a", owner1));
+
+        // stale locks are evicted
+        strategy.setMaxLockAge(200);
+        strategy.lock(null, "b", owner1, 1000);
+        strategy.lock(null, "b", owner2, 2000);
+        assertTrue(strategy.isLockedByOwner(null, "b", owner2));
+        strategy.releaseLock(null, "b", owner2);
+        assertFalse(strategy.isLocked(null, "b", owner2));
+    }
+
+    private static class DummyLock extends LockBase {
+
+        private String name;
+
+        DummyLock(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void lock(long timeout) throws TimeoutRuntimeException {}
+
+        @Override
+        public void release() {}
+
+        @Override
+        public DbManager getDbManager() {
+            return null;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Set<String> getLockKeys() {
+            return null;
+        }
+
+        @Override
+        protected boolean isLocked() {
+            return true;
+        }
+    }
 }
@@ -16,15 +16,27 @@
 package org.summerclouds.common.db.model;
 
 import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.UUID;
 
 import org.summerclouds.common.db.DbComfortableObject;
+import org.summerclouds.common.db.DbLazy;
 import org.summerclouds.common.db.annotations.DbPersistent;
 import org.summerclouds.common.db.annotations.DbPrimaryKey;
 
 public class Store extends DbComfortableObject {
 
+    public enum KIND {
+        BOOKS,
+        MUSIC,
+        GAMES
+    }
+
+    // the attributes are annotated fields, loading must not call the setters
+    public static int nameSetterCalls;
+
     @DbPrimaryKey private UUID id;
     @DbPersistent private String name;
     @DbPersistent private String address;
@@ -38,6 +50,12 @@ public class Store extends DbComfortableObject {
     @DbPersistent private byte byteValue;
     @DbPersistent private BigDecimal bigDecimalValue;
     @DbPersistent private HashMap<String, String> blobValue = new HashMap<>();
+    @DbPersistent private DbLazy<HashMap<String, String>> lazyValue = new DbLazy<>();
+    @DbPersistent private long longValue;
+    @DbPersistent private boolean boolValue;
+    @DbPersistent private Date dateValue;
+    @DbPersistent private Calendar calendarValue;
+    @DbPersistent private KIND kind;
 
     public UUID getId() {
         return id;
@@ -52,6 +70,7 @@ public class Store extends DbComfortableObject {
     }
 
     public void setName(String name) {
+        nameSetterCalls++;
         this.name = name;
     }
 
@@ -142,4 +161,48 @@ public class Store extends DbComfortableObject {
     public void setBlobValue(HashMap<String, String> blobValue) {
         this.blobValue = blobValue;
     }
+
+    public DbLazy<HashMap<String, String>> getLazyValue() {
+        return lazyValue;
+    }
+
+    public long getLongValue() {
+        return longValue;
+    }
+
+    public void setLongValue(long longValue) {
+        this.longValue = longValue;
+    }
+
+    public boolean isBoolValue() {
+        return boolValue;
+    }
+
+    public void setBoolValue(boolean boolValue) {
+        this.boolValue = boolValue;
+    }
+
+    public Date getDateValue() {
+        return dateValue;
+    }
+
+    public void setDateValue(Date dateValue) {
+        this.dateValue = dateValue;
+    }
+
+    public Calendar getCalendarValue() {
+        return calendarValue;
+    }
+
+    public void setCalendarValue(Calendar calendarValue) {
+        this.calendarValue = calendarValue;
+    }
+
+    public KIND getKind() {
+        return kind;
+    }
+
+    public void setKind(KIND kind) {
+        this.kind = kind;
+    }
 }